@@ -0,0 +1,129 @@
+package com.example.photo_album.cache;
+
+import com.example.photo_album.config.ListingCacheProperties;
+import com.example.photo_album.config.StorageProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serialized first pages of each user's photo listing, served as they are without a query or Jackson.
+ * <p>
+ * Entries are keyed by the listing version of the user as well as the page parameters. Uploads, tag edits
+ * and deletions move the user to a new version once they commit (through
+ * {@link SecondLevelCacheInvalidator#evictPhotoListings}), so later requests miss and the old pages age
+ * out. A reader takes the version before querying, so a page built from data a concurrent write has
+ * since replaced is stored under a version that is already stale. Versions come from one node-wide
+ * counter and are never reused, so forgetting a user's version cannot revive old pages.
+ * <p>
+ * A page that is going to be cached is built in a read-write transaction, which the read replica routing
+ * sends to the primary. A lagging replica could otherwise serve the page from before the write that
+ * bumped the version, and it would be cached under the new version for the whole TTL.
+ */
+@Component
+public class PhotoListingCache {
+    private final ListingCacheProperties properties;
+    private final TransactionOperations primaryReads;
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final Cache<String, Long> versions;
+    private final Cache<VersionedKey, Listing> pages;
+
+    @Autowired
+    public PhotoListingCache(
+            ListingCacheProperties properties,
+            StorageProperties storageProperties,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        this(properties, storageProperties.getUrls(), new TransactionTemplate(transactionManager));
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, pages, "photo-listings"));
+    }
+
+    public PhotoListingCache(ListingCacheProperties properties, StorageProperties.Urls urls) {
+        this(properties, urls, TransactionOperations.withoutTransaction());
+    }
+
+    /**
+     * @param primaryReads runs the builds of pages that are cached; must not be read-only
+     */
+    public PhotoListingCache(ListingCacheProperties properties, StorageProperties.Urls urls,
+                             TransactionOperations primaryReads) {
+        // Cached pages carry signed URLs, which must still be valid for a while when a page is served
+        if (urls.getMode() == StorageProperties.UrlMode.PRESIGNED
+                && properties.getTtl().compareTo(urls.getRefreshMargin()) >= 0) {
+            throw new IllegalArgumentException("Listing cache TTL must be shorter than the URL refresh margin");
+        }
+        this.properties = properties;
+        this.primaryReads = primaryReads;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedUsers())
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .<VersionedKey, Listing>weigher((key, listing) -> listing.body().length)
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Parameters of one listing page, and the media type it is serialized as.
+     */
+    public record Key(String userId, int page, int size, String sortBy, String direction, String format) {
+    }
+
+    /**
+     * A serialized page and its strong ETag, derived from the bytes so that it matches across versions
+     * and nodes for as long as the content does.
+     */
+    public record Listing(byte[] body, String eTag) {
+        static Listing of(byte[] body) {
+            return new Listing(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        }
+    }
+
+    private record VersionedKey(Key key, long version) {
+    }
+
+    /**
+     * The cached page, or the one {@code serializer} builds, which is cached if it is one of the first pages.
+     */
+    public Listing get(Key key, Supplier<byte[]> serializer) {
+        if (!properties.isEnabled() || key.page() >= properties.getMaxPages()) {
+            return Listing.of(serializer.get());
+        }
+        long version = versions.get(key.userId(), userId -> versionCounter.incrementAndGet());
+        VersionedKey versionedKey = new VersionedKey(key, version);
+        Listing cached = pages.getIfPresent(versionedKey);
+        if (cached != null) {
+            return cached;
+        }
+        // The version is taken first, so the primary has every write that version stands for
+        Listing listing = Listing.of(primaryReads.execute(status -> serializer.get()));
+        pages.put(versionedKey, listing);
+        return listing;
+    }
+
+    /**
+     * Stop serving the pages cached for the user; call once the change is committed.
+     */
+    public void invalidate(String userId) {
+        versions.put(userId, versionCounter.incrementAndGet());
+    }
+
+    public void invalidateAll() {
+        versions.invalidateAll();
+        pages.invalidateAll();
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.photo_album.cache;
+
+import com.example.photo_album.model.Album;
+import com.example.photo_album.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the Hibernate second-level cache of users and albums correct for writes Hibernate does not see,
+ * and across nodes.
+ * <p>
+ * Writes through JPA update the local regions themselves; set-based SQL such as the account deletion's
+ * evicts through {@link #evictUser} and {@link #evictAlbums} once its transaction commits. With
+ * {@code hibernate-cache.invalidation=notify}, every change to a cached user or album, through JPA or SQL,
+ * is also sent on a Postgres NOTIFY channel from the writing transaction, so it is delivered only if that
+ * commits. Each node LISTENs on a dedicated connection and evicts what it hears; after losing the
+ * connection it clears its regions, as notifications may have been missed.
+ * <p>
+ * The {@link PhotoListingCache} is invalidated the same way, through {@link #evictPhotoListings}, by every
+ * change to what a user's photo listing shows.
+ */
+@Component
+@Slf4j
+public class SecondLevelCacheInvalidator
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    static final String CHANNEL = "photo_album_cache";
+    private static final String NOTIFY = "SELECT pg_notify(?, ?)";
+    private static final String USER_ALBUMS = User.class.getName() + ".albums";
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectProvider<JdbcConnectionDetails> connectionDetails;
+    private final PhotoListingCache photoListingCache;
+    private final boolean broadcast;
+
+    private final ExecutorService listener = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("cache-invalidation-listener").daemon().factory());
+
+    public SecondLevelCacheInvalidator(
+            EntityManagerFactory entityManagerFactory,
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails,
+            PhotoListingCache photoListingCache,
+            @Value("${hibernate-cache.invalidation:local}") String invalidation
+    ) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.connectionDetails = connectionDetails;
+        this.photoListingCache = photoListingCache;
+        this.broadcast = "notify".equalsIgnoreCase(invalidation);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!broadcast) {
+            return;
+        }
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        listener.execute(this::listen);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        listener.shutdownNow();
+    }
+
+    /**
+     * Evict a user changed or deleted with SQL, once the current transaction commits.
+     */
+    public void evictUser(String userId) {
+        afterCommit(() -> evictUserLocally(userId));
+        if (broadcast) {
+            jdbcTemplate.queryForList(NOTIFY, CHANNEL, userMessage(userId));
+        }
+    }
+
+    /**
+     * Evict albums of a user changed or deleted with SQL, once the current transaction commits.
+     */
+    public void evictAlbums(String userId, Collection<String> albumIds) {
+        afterCommit(() -> albumIds.forEach(albumId -> evictAlbumLocally(userId, albumId)));
+        if (broadcast && !albumIds.isEmpty()) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ? || album_id) FROM unnest(?::varchar[]) AS album_id",
+                    CHANNEL, albumMessage(userId, ""), albumIds.toArray(String[]::new));
+        }
+    }
+
+    /**
+     * Drop the cached photo listing pages of a user whose photos, tags or labels change, once the current
+     * transaction commits.
+     */
+    public void evictPhotoListings(String userId) {
+        afterCommit(() -> photoListingCache.invalidate(userId));
+        if (broadcast) {
+            jdbcTemplate.queryForList(NOTIFY, CHANNEL, photosMessage(userId));
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        broadcastChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        broadcastChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        broadcastChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void broadcastChange(Object entity, EventSource session) {
+        String message;
+        if (entity instanceof User user) {
+            message = userMessage(user.getId());
+        } else if (entity instanceof Album album) {
+            message = albumMessage(album.getUser().getId(), album.getId());
+        } else {
+            return;
+        }
+        // Sent on the writing transaction's connection, so it goes out with its commit
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(NOTIFY)) {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, message);
+                statement.execute();
+            }
+        });
+    }
+
+    private void listen() {
+        JdbcConnectionDetails details = connectionDetails.getIfAvailable();
+        String url = details != null ? details.getJdbcUrl() : dataSourceProperties.determineUrl();
+        String username = details != null ? details.getUsername() : dataSourceProperties.determineUsername();
+        String password = details != null ? details.getPassword() : dataSourceProperties.determinePassword();
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Changes made while no connection was listening went unheard
+                sessionFactory.getCache().evictAllRegions();
+                photoListingCache.invalidateAll();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                log.warn("Listening for cache invalidations failed, reconnecting in {}: {}",
+                        RECONNECT_DELAY, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void apply(String message) {
+        List<String> parts = List.of(message.split(":", 3));
+        switch (parts.get(0)) {
+            case "user" -> evictUserLocally(parts.get(1));
+            case "album" -> evictAlbumLocally(parts.get(1), parts.get(2));
+            case "photos" -> photoListingCache.invalidate(parts.get(1));
+            default -> log.warn("Ignoring unknown cache invalidation {}", message);
+        }
+    }
+
+    private void evictUserLocally(String userId) {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(User.class, userId);
+        cache.evictCollectionData(USER_ALBUMS, userId);
+        // Cached username lookups, including ones that found nothing
+        cache.evictDefaultQueryRegion();
+    }
+
+    private void evictAlbumLocally(String userId, String albumId) {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Album.class, albumId);
+        cache.evictCollectionData(USER_ALBUMS, userId);
+    }
+
+    private static String userMessage(String userId) {
+        return "user:" + userId;
+    }
+
+    private static String albumMessage(String userId, String albumId) {
+        return "album:" + userId + ":" + albumId;
+    }
+
+    private static String photosMessage(String userId) {
+        return "photos:" + userId;
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+}
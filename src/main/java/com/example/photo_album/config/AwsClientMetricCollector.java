@@ -0,0 +1,69 @@
+package com.example.photo_album.config;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the HTTP connection pool state and call latency of an AWS SDK client to Micrometer.
+ * The SDK samples the pool when each request leases a connection.
+ */
+public class AwsClientMetricCollector extends RequestMetricCollector {
+    private final String clientName;
+    private final MeterRegistry registry;
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong available = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+
+    public AwsClientMetricCollector(String clientName, int maxConnections, MeterRegistry registry) {
+        this.clientName = clientName;
+        this.registry = registry;
+        Gauge.builder("aws.client.pool.leased", leased, AtomicLong::get)
+                .tag("client", clientName)
+                .description("Connections in use")
+                .register(registry);
+        Gauge.builder("aws.client.pool.available", available, AtomicLong::get)
+                .tag("client", clientName)
+                .description("Idle pooled connections")
+                .register(registry);
+        Gauge.builder("aws.client.pool.pending", pending, AtomicLong::get)
+                .tag("client", clientName)
+                .description("Requests waiting for a connection")
+                .register(registry);
+        Gauge.builder("aws.client.pool.max", () -> maxConnections)
+                .tag("client", clientName)
+                .register(registry);
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        TimingInfo timing = request.getAWSRequestMetrics().getTimingInfo();
+        update(leased, timing.getCounter(AWSRequestMetrics.Field.HttpClientPoolLeasedCount.name()));
+        update(available, timing.getCounter(AWSRequestMetrics.Field.HttpClientPoolAvailableCount.name()));
+        update(pending, timing.getCounter(AWSRequestMetrics.Field.HttpClientPoolPendingCount.name()));
+
+        Double millis = timing.getTimeTakenMillisIfKnown();
+        if (millis != null) {
+            Timer.builder("aws.client.requests")
+                    .tag("client", clientName)
+                    .tag("operation", request.getOriginalRequest().getClass().getSimpleName())
+                    .tag("outcome", response != null ? "success" : "error")
+                    .register(registry)
+                    .record((long) (millis * 1000), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private static void update(AtomicLong gauge, Number value) {
+        if (value != null) {
+            gauge.set(value.longValue());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection pool, timeout and retry settings of the AWS SDK clients.
+ * A zero duration disables the corresponding timeout.
+ */
+@Data
+@ConfigurationProperties(prefix = "aws.clients")
+public class AwsClientProperties {
+    private Client s3 = Client.s3Defaults();
+    private Client rekognition = Client.rekognitionDefaults();
+
+    @Data
+    public static class Client {
+        private int maxConnections = 50;
+        private boolean tcpKeepAlive = true;
+        // Recycle pooled connections so DNS changes and load balancer rotation are picked up
+        private Duration connectionTtl = Duration.ofMinutes(1);
+        private Duration connectionMaxIdle = Duration.ofSeconds(30);
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+        private Duration socketTimeout = Duration.ofSeconds(30);
+        // Per HTTP attempt
+        private Duration requestTimeout = Duration.ZERO;
+        // Whole call including retries
+        private Duration clientExecutionTimeout = Duration.ZERO;
+        private Retry retry = new Retry();
+
+        static Client s3Defaults() {
+            Client client = new Client();
+            // Uploads stream large bodies, so only the socket timeout bounds a stalled transfer
+            client.setMaxConnections(100);
+            return client;
+        }
+
+        static Client rekognitionDefaults() {
+            Client client = new Client();
+            client.setMaxConnections(20);
+            client.setSocketTimeout(Duration.ofSeconds(10));
+            client.setRequestTimeout(Duration.ofSeconds(10));
+            client.setClientExecutionTimeout(Duration.ofSeconds(20));
+            client.getRetry().setMaxErrorRetry(2);
+            return client;
+        }
+    }
+
+    @Data
+    public static class Retry {
+        private int maxErrorRetry = 3;
+        private Duration baseDelay = Duration.ofMillis(100);
+        private Duration throttledBaseDelay = Duration.ofMillis(500);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+    }
+}
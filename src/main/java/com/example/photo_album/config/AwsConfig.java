@@ -1,14 +1,22 @@
 package com.example.photo_album.config;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedBackoffStrategies;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.services.rekognition.AmazonRekognition;
 import com.amazonaws.services.rekognition.AmazonRekognitionClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@EnableConfigurationProperties({AwsClientProperties.class, RekognitionProperties.class})
 public class AwsConfig {
     @Value("${aws.region}")
     private String awsRegion;
@@ -16,17 +24,57 @@ public class AwsConfig {
     @Value("${aws.s3.bucket}")
     private String bucketName;
 
+    private final AwsClientProperties clientProperties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public AwsConfig(AwsClientProperties clientProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.clientProperties = clientProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Bean
     public AmazonS3 amazonS3() {
-        return AmazonS3ClientBuilder.standard()
+        AwsClientProperties.Client client = clientProperties.getS3();
+        AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
                 .withRegion(awsRegion)
-                .build();
+                .withClientConfiguration(clientConfiguration(client));
+        meterRegistry.ifAvailable(registry -> builder.withMetricsCollector(
+                new AwsClientMetricCollector("s3", client.getMaxConnections(), registry)));
+        return builder.build();
     }
 
     @Bean
     public AmazonRekognition amazonRekognition() {
-        return AmazonRekognitionClientBuilder.standard()
+        AwsClientProperties.Client client = clientProperties.getRekognition();
+        AmazonRekognitionClientBuilder builder = AmazonRekognitionClientBuilder.standard()
                 .withRegion(awsRegion)
-                .build();
+                .withClientConfiguration(clientConfiguration(client));
+        meterRegistry.ifAvailable(registry -> builder.withMetricsCollector(
+                new AwsClientMetricCollector("rekognition", client.getMaxConnections(), registry)));
+        return builder.build();
+    }
+
+    static ClientConfiguration clientConfiguration(AwsClientProperties.Client client) {
+        AwsClientProperties.Retry retry = client.getRetry();
+        RetryPolicy retryPolicy = new RetryPolicy(
+                PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                new PredefinedBackoffStrategies.SDKDefaultBackoffStrategy(
+                        (int) retry.getBaseDelay().toMillis(),
+                        (int) retry.getThrottledBaseDelay().toMillis(),
+                        (int) retry.getMaxBackoff().toMillis()),
+                retry.getMaxErrorRetry(),
+                true);
+
+        return new ClientConfiguration()
+                .withMaxConnections(client.getMaxConnections())
+                .withTcpKeepAlive(client.isTcpKeepAlive())
+                .withConnectionTTL(client.getConnectionTtl().isZero() ? -1 : client.getConnectionTtl().toMillis())
+                .withConnectionMaxIdleMillis(client.getConnectionMaxIdle().toMillis())
+                .withConnectionTimeout((int) client.getConnectionTimeout().toMillis())
+                .withSocketTimeout((int) client.getSocketTimeout().toMillis())
+                .withRequestTimeout((int) client.getRequestTimeout().toMillis())
+                .withClientExecutionTimeout((int) client.getClientExecutionTimeout().toMillis())
+                .withMaxErrorRetry(retry.getMaxErrorRetry())
+                .withRetryPolicy(retryPolicy);
     }
 }
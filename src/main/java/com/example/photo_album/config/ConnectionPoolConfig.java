@@ -0,0 +1,63 @@
+package com.example.photo_album.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * With {@code datasource.pool-sizing.mode=computed}, sizes the Hikari pools from the database instead of
+ * a fixed {@code maximum-pool-size}: a database keeps about two connections per core plus one per
+ * effective spindle busy, shared between the application nodes, and more connections only queue inside
+ * the database. The size is capped at the request concurrency, as no more connections can be in use.
+ * Each read replica is its own database server and gets a pool of the same size.
+ */
+@Configuration
+@Slf4j
+public class ConnectionPoolConfig {
+
+    // Static and bound from the environment directly: post-processors are created before other beans
+    @Bean
+    static BeanPostProcessor hikariPoolSizer(Environment environment) {
+        PoolSizingProperties sizing = bindSizing(environment);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    applySizing(hikari, beanName, sizing);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static PoolSizingProperties bindSizing(Environment environment) {
+        return Binder.get(environment).bindOrCreate("datasource.pool-sizing", PoolSizingProperties.class);
+    }
+
+    /**
+     * Size a pool that is not a bean, such as a read replica's, the way the bean pools are sized.
+     * Must be applied before the pool is started.
+     */
+    static void applySizing(HikariConfig pool, String name, PoolSizingProperties sizing) {
+        if (sizing.getMode() != PoolSizingProperties.Mode.COMPUTED) {
+            return;
+        }
+        int poolSize = computePoolSize(sizing);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setMinimumIdle(Math.min(pool.getMinimumIdle(), poolSize));
+        log.info("Sized connection pool {} to {} connections", name, poolSize);
+    }
+
+    static int computePoolSize(PoolSizingProperties sizing) {
+        int cores = sizing.getDatabaseCores() > 0 ? sizing.getDatabaseCores() : Runtime.getRuntime().availableProcessors();
+        int databaseConnections = cores * 2 + sizing.getEffectiveSpindleCount();
+        int instances = Math.max(sizing.getInstances(), 1);
+        int perInstance = (databaseConnections + instances - 1) / instances;
+        return Math.max(1, Math.min(perInstance, sizing.getRequestConcurrency()));
+    }
+}
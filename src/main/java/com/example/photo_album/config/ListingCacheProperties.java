@@ -0,0 +1,21 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "listing-cache")
+public class ListingCacheProperties {
+    private boolean enabled = true;
+    // Pages 0 .. max-pages - 1 of GET /api/photos are cached
+    private int maxPages = 3;
+    // Total size of the cached response bodies
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    // Bounds staleness when an invalidation is missed; shorter than the URL refresh margin in presigned mode
+    private Duration ttl = Duration.ofMinutes(5);
+    // Listing versions are tracked for this many users
+    private int maxTrackedUsers = 100_000;
+}
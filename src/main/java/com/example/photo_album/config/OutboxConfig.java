@@ -0,0 +1,28 @@
+package com.example.photo_album.config;
+
+import com.example.photo_album.outbox.OutboxPoller;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig implements SchedulingConfigurer {
+    private final OutboxProperties outboxProperties;
+    private final OutboxPoller outboxPoller;
+
+    public OutboxConfig(OutboxProperties outboxProperties, OutboxPoller outboxPoller) {
+        this.outboxProperties = outboxProperties;
+        this.outboxPoller = outboxPoller;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (outboxProperties.isEnabled()) {
+            registrar.addFixedDelayTask(outboxPoller::poll, outboxProperties.getPollInterval());
+        }
+    }
+}
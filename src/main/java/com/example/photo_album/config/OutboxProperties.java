@@ -0,0 +1,19 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "outbox")
+public class OutboxProperties {
+    private boolean enabled = true;
+    private Duration pollInterval = Duration.ofSeconds(1);
+    private int batchSize = 100;
+    // Events still failing after this many deliveries stay in the table for inspection
+    private int maxAttempts = 10;
+    // Delay before the first retry, doubled on each further failure
+    private Duration retryBackoff = Duration.ofSeconds(5);
+    private Duration maxRetryBackoff = Duration.ofMinutes(10);
+}
@@ -0,0 +1,22 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+
+@Data
+public class PoolSizingProperties {
+    private Mode mode = Mode.FIXED;
+    // Cores of the database server; 0 uses this machine's
+    private int databaseCores = 0;
+    private int effectiveSpindleCount = 1;
+    // Application nodes sharing the database
+    private int instances = 1;
+    // Most requests that can need a connection at once, e.g. server.tomcat.threads.max
+    private int requestConcurrency = 200;
+
+    public enum Mode {
+        // Use spring.datasource.hikari.maximum-pool-size as set
+        FIXED,
+        // Derive the pool size from the database's cores and the request concurrency
+        COMPUTED
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+
+    // Per-user upload limits (POST /api/photos)
+    private long uploadRequestsPerSecond = 2;
+    private long uploadRequestBurst = 10;
+    private long uploadBytesPerSecond = 10 * 1024 * 1024;
+    private long uploadBytesBurst = 50 * 1024 * 1024;
+
+    // Per-user read limits (GET on /api/photos and /api/albums)
+    private long readRequestsPerSecond = 20;
+    private long readRequestBurst = 100;
+
+    // Global cap on uploads in flight across all users
+    private int maxConcurrentUploads = 4;
+    private Duration uploadQueueTimeout = Duration.ofSeconds(10);
+
+    // Idle buckets are dropped once this many users are tracked
+    private int maxTrackedUsers = 10_000;
+}
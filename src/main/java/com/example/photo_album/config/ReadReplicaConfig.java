@@ -0,0 +1,94 @@
+package com.example.photo_album.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single Hikari pool with a primary pool and one pool per read replica. The application's
+ * {@link DataSource} is a {@link LazyConnectionDataSourceProxy}: a transaction's connection is only
+ * fetched on its first statement, after the transaction manager has marked it read-only or not, so
+ * {@code @Transactional(readOnly = true)} work goes to a replica and everything else to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.read-replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(
+            DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        DataSourceBuilder<HikariDataSource> builder = properties.initializeDataSourceBuilder().type(HikariDataSource.class);
+        connectionDetails.ifAvailable(details -> builder
+                .url(details.getJdbcUrl())
+                .username(details.getUsername())
+                .password(details.getPassword())
+                .driverClassName(details.getDriverClassName()));
+        HikariDataSource dataSource = builder.build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadReplicaDataSource readReplicaDataSource(
+            ReadReplicaProperties properties,
+            HikariDataSource primaryDataSource,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        PoolSizingProperties sizing = ConnectionPoolConfig.bindSizing(environment);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReadReplicaProperties.Node> nodes = properties.getNodes();
+        for (int i = 0; i < nodes.size(); i++) {
+            ReadReplicaProperties.Node node = nodes.get(i);
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + i);
+            config.setDriverClassName(primaryDataSource.getDriverClassName());
+            config.setJdbcUrl(node.getUrl());
+            config.setUsername(StringUtils.hasText(node.getUsername()) ? node.getUsername() : primaryDataSource.getUsername());
+            config.setPassword(StringUtils.hasText(node.getPassword()) ? node.getPassword() : primaryDataSource.getPassword());
+            config.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            config.setMaximumPoolSize(node.getMaximumPoolSize());
+            config.setMinimumIdle(node.getMinimumIdle());
+            // Built here rather than as beans, so the pool sizer does not see them
+            ConnectionPoolConfig.applySizing(config, config.getPoolName(), sizing);
+            config.setConnectionTimeout(node.getConnectionTimeout().toMillis());
+            config.setLeakDetectionThreshold(primaryDataSource.getLeakDetectionThreshold());
+            config.setReadOnly(true);
+            // A replica that is down at startup is left to the health checks instead of failing the boot
+            config.setInitializationFailTimeout(-1);
+            meterRegistry.ifAvailable(registry -> config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return new ReadReplicaDataSource(replicas, primaryDataSource,
+                properties.getMaxLag(), properties.getHealthCheckInterval());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReadReplicaDataSource readReplicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readReplicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.photo_album.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections from a set of read replica pools, round-robin over the replicas that passed
+ * their last health check and are no further behind the primary than {@code maxLag}. When none is usable,
+ * or a replica fails to hand out a connection, the connection comes from the fallback (the primary), so
+ * reads degrade to the primary instead of failing.
+ * <p>
+ * Replicas start out unusable and are checked once on startup, then every {@code healthCheckInterval}.
+ */
+@Slf4j
+public class ReadReplicaDataSource extends AbstractDataSource {
+    /**
+     * Replay lag of a streaming replica: zero when it has replayed everything it received, or when the
+     * server is not in recovery at all.
+     */
+    static final String LAG_QUERY = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END""";
+
+    @FunctionalInterface
+    interface LagProbe {
+        Duration lag(DataSource replica) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource target) throws SQLException;
+    }
+
+    private final List<Replica> replicas;
+    private final DataSource fallback;
+    private final Duration maxLag;
+    private final Duration healthCheckInterval;
+    private final LagProbe lagProbe;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-health-check").daemon().factory());
+
+    public ReadReplicaDataSource(Map<String, DataSource> replicas, DataSource fallback,
+                                 Duration maxLag, Duration healthCheckInterval) {
+        this(replicas, fallback, maxLag, healthCheckInterval, ReadReplicaDataSource::queryLag);
+    }
+
+    ReadReplicaDataSource(Map<String, DataSource> replicas, DataSource fallback,
+                          Duration maxLag, Duration healthCheckInterval, LagProbe lagProbe) {
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .toList();
+        this.fallback = fallback;
+        this.maxLag = maxLag;
+        this.healthCheckInterval = healthCheckInterval;
+        this.lagProbe = lagProbe;
+    }
+
+    @PostConstruct
+    void start() {
+        checkHealth();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                healthCheckInterval.toMillis(), healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Closing replica {} failed", replica.name, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(target -> target.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.usable) {
+                continue;
+            }
+            try {
+                return source.connect(replica.dataSource);
+            } catch (SQLException e) {
+                log.warn("Replica {} failed to hand out a connection, skipping it until the next check: {}",
+                        replica.name, e.getMessage());
+                replica.usable = false;
+            }
+        }
+        return source.connect(fallback);
+    }
+
+    /**
+     * Probe every replica and update which of them take reads.
+     */
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean usable;
+            try {
+                Duration lag = lagProbe.lag(replica.dataSource);
+                usable = lag.compareTo(maxLag) <= 0;
+                if (!usable && replica.usable) {
+                    log.warn("Replica {} is {} ms behind the primary, reads go elsewhere until it catches up",
+                            replica.name, lag.toMillis());
+                }
+            } catch (SQLException | RuntimeException e) {
+                usable = false;
+                if (replica.usable) {
+                    log.warn("Replica {} failed its health check: {}", replica.name, e.getMessage());
+                }
+            }
+            if (usable && !replica.usable) {
+                log.info("Replica {} is taking reads", replica.name);
+            }
+            replica.usable = usable;
+        }
+    }
+
+    /**
+     * @return the replicas currently taking reads
+     */
+    public List<String> getUsableReplicas() {
+        return replicas.stream().filter(replica -> replica.usable).map(replica -> replica.name).toList();
+    }
+
+    private static Duration queryLag(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(5);
+            try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                return Duration.ofMillis(resultSet.getLong(1));
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean usable;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "datasource.read-replicas")
+public class ReadReplicaProperties {
+    // Route read-only transactions to the replicas; the primary comes from spring.datasource.*
+    private boolean enabled = false;
+    private List<Node> nodes = new ArrayList<>();
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    // Replicas further behind the primary than this are skipped until they catch up
+    private Duration maxLag = Duration.ofSeconds(10);
+
+    @Data
+    public static class Node {
+        private String url;
+        // The primary's credentials are used when empty
+        private String username;
+        private String password;
+        private int maximumPoolSize = 5;
+        private int minimumIdle = 1;
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rekognition")
+public class RekognitionProperties {
+    private int maxLabels = 10;
+    private float minConfidence = 75F;
+    // Bump after changing the label settings so the backfill job re-analyzes existing photos
+    private int analysisVersion = 1;
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Bulkhead bulkhead = new Bulkhead();
+    private Backfill backfill = new Backfill();
+
+    @Data
+    public static class CircuitBreaker {
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        // Calls slower than this count as failures
+        private Duration slowCallThreshold = Duration.ofSeconds(5);
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 4;
+        // How long an upload waits for a free slot before skipping analysis
+        private Duration maxWait = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class Backfill {
+        private int batchSize = 100;
+        // Keep below the bulkhead size so uploads still get analysis slots while a backfill runs
+        private int parallelism = 2;
+        private double maxRequestsPerSecond = 5;
+        // Pause before the next batch when Rekognition deferred analyses in the last one
+        private Duration deferralBackoff = Duration.ofSeconds(30);
+        // Continue an interrupted run when the application starts
+        private boolean resumeOnStartup = true;
+    }
+}
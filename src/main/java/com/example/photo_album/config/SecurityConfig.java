@@ -32,6 +32,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/photos/**").authenticated()
                         .requestMatchers("/api/albums/**").authenticated()
                         .requestMatchers("/api/users/**").authenticated()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .httpBasic(withDefaults()); // Fixed deprecated method
@@ -0,0 +1,53 @@
+package com.example.photo_album.config;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.example.photo_album.storage.CachingPhotoStorage;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import com.example.photo_album.storage.LocalPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import com.example.photo_album.storage.S3PhotoStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "s3", matchIfMissing = true)
+    public PhotoStorage s3PhotoStorage(
+            AmazonS3 amazonS3,
+            @Value("${aws.s3.bucket}") String bucketName,
+            StorageProperties properties,
+            ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        PhotoStorage s3 = new S3PhotoStorage(amazonS3, bucketName);
+        StorageProperties.Cache cache = properties.getCache();
+        if (!cache.isEnabled()) {
+            return s3;
+        }
+        CachingPhotoStorage cachingStorage = new CachingPhotoStorage(s3, Path.of(cache.getDir()),
+                cache.getMaxSize().toBytes(), cache.getMaxObjectSize().toBytes());
+        meterRegistry.ifAvailable(cachingStorage::bindTo);
+        return cachingStorage;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "local")
+    public PhotoStorage localPhotoStorage(StorageProperties properties) throws IOException {
+        return new LocalPhotoStorage(Path.of(properties.getLocal().getRootDir()), properties.getLocal().getBaseUrl());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "memory")
+    public PhotoStorage inMemoryPhotoStorage() {
+        return new InMemoryPhotoStorage();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.photo_album.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+    private Type type = Type.S3;
+    private Local local = new Local();
+    private Cache cache = new Cache();
+    private Urls urls = new Urls();
+    private OrphanSweeper orphanSweeper = new OrphanSweeper();
+    private Export export = new Export();
+    private BulkImport bulkImport = new BulkImport();
+
+    public enum Type {
+        S3, LOCAL, MEMORY
+    }
+
+    public enum UrlMode {
+        // Serve the URL stored with the photo
+        PUBLIC,
+        // Serve short-lived presigned URLs, for private buckets
+        PRESIGNED
+    }
+
+    @Data
+    public static class Local {
+        private String rootDir = System.getProperty("java.io.tmpdir") + "/photo-album";
+        // Prefix for generated photo URLs; file: URIs are used when empty
+        private String baseUrl = "";
+    }
+
+    @Data
+    public static class Cache {
+        // Read-through disk cache in front of S3
+        private boolean enabled = false;
+        private String dir = System.getProperty("java.io.tmpdir") + "/photo-album-cache";
+        private DataSize maxSize = DataSize.ofGigabytes(10);
+        // Larger objects are streamed from S3 without being cached
+        private DataSize maxObjectSize = DataSize.ofMegabytes(256);
+    }
+
+    @Data
+    public static class Urls {
+        private UrlMode mode = UrlMode.PUBLIC;
+        private Duration signatureTtl = Duration.ofHours(1);
+        // Cached URLs are re-signed this long before their signature expires
+        private Duration refreshMargin = Duration.ofMinutes(15);
+        private int maxCachedUrls = 100_000;
+    }
+
+    @Data
+    public static class OrphanSweeper {
+        // Deletes stored objects no photo row refers to; enable on one node only
+        private boolean enabled = false;
+        private String cron = "0 30 3 * * *";
+        // Objects younger than this are kept, so uploads between store and insert are not swept
+        private Duration gracePeriod = Duration.ofHours(24);
+        // Key prefixes to list; only uploaded keys ("<uuid>_<name>") under them are reconciled
+        private List<String> prefixes = List.of(
+                "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "a", "b", "c", "d", "e", "f");
+        private int pageSize = 1000;
+        private int deleteBatchSize = 1000;
+        // Only count and log orphans
+        private boolean dryRun = false;
+    }
+
+    @Data
+    public static class Export {
+        // Album ZIP exports running at once on this node; more are answered with 503
+        private int maxConcurrentExports = 4;
+        // Objects fetched from storage ahead of the one being written, per export
+        private int prefetchWindow = 8;
+        // Bytes held by those objects, per export; larger objects are streamed without prefetching
+        private DataSize prefetchBuffer = DataSize.ofMegabytes(64);
+        // Photos read from the database at a time
+        private int pageSize = 200;
+    }
+
+    @Data
+    public static class BulkImport {
+        // Objects listed, checked and inserted per batch, each batch in one transaction
+        private int batchSize = 1000;
+        // Objects registered per second on this node, so an import leaves the database to interactive traffic
+        private double maxObjectsPerSecond = 500;
+        // Continue unfinished imports when the application starts
+        private boolean resumeOnStartup = true;
+        // Start the label backfill when an import finishes, which analyzes the imported photos
+        private boolean analyzeImportedPhotos = true;
+    }
+}
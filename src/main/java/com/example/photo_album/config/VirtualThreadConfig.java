@@ -0,0 +1,95 @@
+package com.example.photo_album.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Virtual-thread execution mode. Setting {@code spring.threads.virtual.enabled=true} makes Tomcat
+ * run every request on its own virtual thread, so the blocking AWS SDK and JDBC calls made from
+ * the request thread park a virtual thread instead of holding one of the platform worker threads.
+ * <p>
+ * Code that blocks inside {@code synchronized} pins the carrier thread. The pinning monitor reports
+ * those spots from the JFR {@code jdk.VirtualThreadPinned} event so they can be found in the SDK path.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "virtual-threads.pinning-diagnostics.enabled", havingValue = "true")
+    public PinnedThreadMonitor pinnedThreadMonitor(
+            @Value("${virtual-threads.pinning-diagnostics.threshold:20ms}") Duration threshold) {
+        return new PinnedThreadMonitor(threshold);
+    }
+
+    @Slf4j
+    public static class PinnedThreadMonitor implements SmartLifecycle {
+        private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+        private static final int MAX_LOGGED_FRAMES = 8;
+
+        private final Duration threshold;
+        private final AtomicLong pinnedCount = new AtomicLong();
+        private RecordingStream stream;
+
+        public PinnedThreadMonitor(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public synchronized void start() {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            log.info("Virtual thread pinning diagnostics enabled, threshold {}", threshold);
+        }
+
+        @Override
+        public synchronized void stop() {
+            if (stream != null) {
+                stream.close();
+                stream = null;
+            }
+        }
+
+        @Override
+        public synchronized boolean isRunning() {
+            return stream != null;
+        }
+
+        public long getPinnedCount() {
+            return pinnedCount.get();
+        }
+
+        private void onPinned(RecordedEvent event) {
+            pinnedCount.incrementAndGet();
+            log.warn("Virtual thread pinned for {} ms at:\n\t{}",
+                    event.getDuration().toMillis(), describeStack(event));
+        }
+
+        private String describeStack(RecordedEvent event) {
+            if (event.getStackTrace() == null) {
+                return "<no stack trace>";
+            }
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            return frames.stream()
+                    .limit(MAX_LOGGED_FRAMES)
+                    .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                            + ":" + frame.getLineNumber())
+                    .collect(Collectors.joining("\n\t"));
+        }
+    }
+}
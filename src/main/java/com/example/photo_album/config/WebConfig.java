@@ -0,0 +1,108 @@
+package com.example.photo_album.config;
+
+import com.example.photo_album.ratelimit.RateLimitInterceptor;
+import com.example.photo_album.ratelimit.UploadAdmissionControl;
+import com.example.photo_album.ratelimit.UserRateLimiter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.ui.ModelMap;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.WebRequestInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableConfigurationProperties({RateLimitProperties.class, ListingCacheProperties.class})
+public class WebConfig implements WebMvcConfigurer {
+    // Streams for as long as the download takes; reads its pages in short transactions of its own
+    private static final String ALBUM_EXPORT_PATH = "/api/albums/*/export.zip";
+    // Queries before and after the slow storage and Rekognition calls, each in its own short transaction
+    private static final String UPLOAD_PATH = "/api/photos";
+
+    private final RateLimitProperties rateLimitProperties;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public WebConfig(RateLimitProperties rateLimitProperties, ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.rateLimitProperties = rateLimitProperties;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Serves application/cbor, a binary encoding of the same JSON model that mobile clients parse faster
+     * and that is smaller on the wire. Built from Boot's Jackson settings so both formats agree.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Open-in-view for every request except album exports and uploads, in place of Boot's
+     * (spring.jpa.open-in-view=false). Under open-in-view the first query of a request holds its connection
+     * until the response is complete, which for an export is the whole download and for an upload includes
+     * storing and analyzing the photo.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        entityManagerFactory.ifAvailable(factory -> {
+            OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+            openInView.setEntityManagerFactory(factory);
+            registry.addWebRequestInterceptor(new ExceptUploads(openInView)).excludePathPatterns(ALBUM_EXPORT_PATH);
+        });
+
+        if (!rateLimitProperties.isEnabled()) {
+            return;
+        }
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(
+                new UserRateLimiter(rateLimitProperties),
+                new UploadAdmissionControl(
+                        rateLimitProperties.getMaxConcurrentUploads(),
+                        rateLimitProperties.getUploadQueueTimeout()));
+        registry.addInterceptor(interceptor)
+                .addPathPatterns("/api/photos/**", "/api/albums/**");
+    }
+
+    /**
+     * Applies an interceptor to every request but photo uploads, which share their path with the photo listing.
+     */
+    private record ExceptUploads(WebRequestInterceptor delegate) implements WebRequestInterceptor {
+        @Override
+        public void preHandle(WebRequest request) throws Exception {
+            if (!isUpload(request)) {
+                delegate.preHandle(request);
+            }
+        }
+
+        @Override
+        public void postHandle(WebRequest request, ModelMap model) throws Exception {
+            if (!isUpload(request)) {
+                delegate.postHandle(request, model);
+            }
+        }
+
+        @Override
+        public void afterCompletion(WebRequest request, Exception ex) throws Exception {
+            if (!isUpload(request)) {
+                delegate.afterCompletion(request, ex);
+            }
+        }
+
+        private static boolean isUpload(WebRequest request) {
+            if (!(request instanceof ServletWebRequest servletRequest)) {
+                return false;
+            }
+            HttpServletRequest httpRequest = servletRequest.getRequest();
+            return "POST".equals(httpRequest.getMethod())
+                    && UPLOAD_PATH.equals(httpRequest.getRequestURI().substring(httpRequest.getContextPath().length()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.photo_album.controller;
+
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.service.AccountDeletionService;
+import com.example.photo_album.service.LabelBackfillService;
+import com.example.photo_album.service.PhotoImportService;
+import com.example.photo_album.service.PhotoPartitioningService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Operational endpoints, restricted to users listed in {@code admin.usernames}.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    private final LabelBackfillService labelBackfillService;
+    private final AccountDeletionService accountDeletionService;
+    private final PhotoPartitioningService photoPartitioningService;
+    private final PhotoImportService photoImportService;
+
+    public AdminController(
+            LabelBackfillService labelBackfillService,
+            AccountDeletionService accountDeletionService,
+            PhotoPartitioningService photoPartitioningService,
+            PhotoImportService photoImportService
+    ) {
+        this.labelBackfillService = labelBackfillService;
+        this.accountDeletionService = accountDeletionService;
+        this.photoPartitioningService = photoPartitioningService;
+        this.photoImportService = photoImportService;
+    }
+
+    @GetMapping("/backfill/labels")
+    public ResponseEntity<LabelBackfillService.Progress> getLabelBackfillProgress() {
+        return ResponseEntity.ok(labelBackfillService.getProgress());
+    }
+
+    @PostMapping("/backfill/labels/start")
+    public ResponseEntity<LabelBackfillService.Progress> startLabelBackfill() {
+        if (!labelBackfillService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(labelBackfillService.getProgress());
+        }
+        return ResponseEntity.accepted().body(labelBackfillService.getProgress());
+    }
+
+    @PostMapping("/backfill/labels/stop")
+    public ResponseEntity<LabelBackfillService.Progress> stopLabelBackfill() {
+        labelBackfillService.stop();
+        return ResponseEntity.accepted().body(labelBackfillService.getProgress());
+    }
+
+    @DeleteMapping("/users/{userId}")
+    public ResponseEntity<Void> deleteUser(@PathVariable String userId) {
+        try {
+            if (!accountDeletionService.requestDeletion(userId)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/users/{userId}/deletion")
+    public ResponseEntity<JobCheckpoint> getUserDeletionProgress(@PathVariable String userId) {
+        return ResponseEntity.of(accountDeletionService.getProgress(userId));
+    }
+
+    @GetMapping("/partitioning")
+    public ResponseEntity<JobCheckpoint> getPartitioningProgress() {
+        return ResponseEntity.of(photoPartitioningService.getProgress());
+    }
+
+    @PostMapping("/partitioning/start")
+    public ResponseEntity<Void> startPartitioning() {
+        if (!photoPartitioningService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/imports")
+    public ResponseEntity<List<JobCheckpoint>> getImports() {
+        return ResponseEntity.ok(photoImportService.getImports());
+    }
+
+    /**
+     * Register the objects under {@code prefix} in storage as photos of the user.
+     */
+    @PostMapping("/imports")
+    public ResponseEntity<Void> startImport(@RequestParam String userId, @RequestParam String prefix) {
+        try {
+            if (!photoImportService.requestImport(userId, prefix)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @PostMapping("/imports/stop")
+    public ResponseEntity<Void> stopImports() {
+        photoImportService.stop();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -1,23 +1,40 @@
 // src/main/java/com/example/photo_album/controller/AlbumController.java
 package com.example.photo_album.controller;
 
+import com.example.photo_album.dto.AlbumDetails;
+import com.example.photo_album.dto.AlbumPhotoPage;
+import com.example.photo_album.dto.AlbumSummary;
 import com.example.photo_album.model.Album;
+import com.example.photo_album.service.AlbumExportService;
 import com.example.photo_album.service.AlbumService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/albums")
 public class AlbumController {
+    private static final int MAX_PHOTO_PAGE_SIZE = 200;
+
+    private static final String EXPORT_RETRY_AFTER_SECONDS = "30";
+
     private final AlbumService albumService;
+    private final AlbumExportService albumExportService;
 
-    public AlbumController(AlbumService albumService) {
+    public AlbumController(AlbumService albumService, AlbumExportService albumExportService) {
         this.albumService = albumService;
+        this.albumExportService = albumExportService;
     }
 
     @PostMapping
@@ -36,13 +53,15 @@ public class AlbumController {
     }
 
     @PostMapping("/{albumId}/photos/{photoId}")
-    public ResponseEntity<Album> addPhotoToAlbum(
+    public ResponseEntity<AlbumDetails> addPhotoToAlbum(
+            Principal principal,
             @PathVariable String albumId,
             @PathVariable String photoId
     ) {
         try {
-            Album album = albumService.addPhotoToAlbum(albumId, photoId);
-            return ResponseEntity.ok(album);
+            return albumService.addPhotoToAlbum(principal.getName(), albumId, photoId)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             log.error("Error adding photo to album", e);
             return ResponseEntity.badRequest().build();
@@ -50,9 +69,9 @@ public class AlbumController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Album>> getUserAlbums(Principal principal) {
+    public ResponseEntity<List<AlbumSummary>> getUserAlbums(Principal principal) {
         try {
-            List<Album> albums = albumService.getUserAlbums(principal.getName());
+            List<AlbumSummary> albums = albumService.getUserAlbums(principal.getName());
             return ResponseEntity.ok(albums);
         } catch (Exception e) {
             log.error("Error getting user albums", e);
@@ -61,13 +80,60 @@ public class AlbumController {
     }
 
     @GetMapping("/{albumId}")
-    public ResponseEntity<Album> getAlbum(@PathVariable String albumId) {
+    public ResponseEntity<AlbumDetails> getAlbum(
+            Principal principal,
+            @PathVariable String albumId
+    ) {
+        return albumService.getUserAlbum(principal.getName(), albumId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * A page of the album's photos; pass the previous page's nextAfter as {@code after} to get the next one
+     */
+    @GetMapping("/{albumId}/photos")
+    public ResponseEntity<AlbumPhotoPage> getAlbumPhotos(
+            Principal principal,
+            @PathVariable String albumId,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        int pageSize = Math.clamp(limit, 1, MAX_PHOTO_PAGE_SIZE);
+        return albumService.getUserAlbumPhotos(principal.getName(), albumId, after, pageSize)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The album's photos as a ZIP archive. Written on the request thread rather than as a
+     * StreamingResponseBody, which is cut off by the async request timeout long before a multi-GB album is done.
+     */
+    @GetMapping("/{albumId}/export.zip")
+    public void exportAlbum(
+            Principal principal,
+            @PathVariable String albumId,
+            HttpServletResponse response
+    ) throws IOException {
+        Optional<AlbumDetails> album = albumService.getUserAlbum(principal.getName(), albumId);
+        if (album.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (!albumExportService.tryBeginExport()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, EXPORT_RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
         try {
-            Album album = albumService.getAlbumById(albumId);
-            return ResponseEntity.ok(album);
-        } catch (Exception e) {
-            log.error("Error getting album", e);
-            return ResponseEntity.notFound().build();
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(album.get().name() + ".zip", StandardCharsets.UTF_8)
+                    .build()
+                    .toString());
+            albumExportService.export(principal.getName(), albumId, response.getOutputStream());
+        } finally {
+            albumExportService.endExport();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package com.example.photo_album.controller;
+
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.service.PhotoService;
+import com.example.photo_album.storage.PhotoStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.*;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.Principal;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves photo bytes through the application, for private buckets and the local storage tier.
+ * Supports single byte ranges and conditional GETs; photo objects never change once stored,
+ * so responses are cacheable for a year.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/photos")
+public class PhotoContentController {
+    // Tomcat serves the file itself with sendfile (zero-copy) when these request attributes are set
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePrivate()
+            .immutable();
+
+    private final PhotoService photoService;
+    private final PhotoStorage photoStorage;
+
+    public PhotoContentController(PhotoService photoService, PhotoStorage photoStorage) {
+        this.photoService = photoService;
+        this.photoStorage = photoStorage;
+    }
+
+    @GetMapping("/{id}/content")
+    public ResponseEntity<StreamingResponseBody> getPhotoContent(
+            Principal principal,
+            @PathVariable String id,
+            @RequestHeader HttpHeaders requestHeaders,
+            HttpServletRequest request) {
+        Optional<Photo> photoOpt = photoService.getUserPhotoById(principal.getName(), id);
+        if (photoOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Photo photo = photoOpt.get();
+
+        String eTag = "\"" + photo.getId() + "\"";
+        long lastModified = photo.getUploadDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.setLastModified(lastModified);
+        headers.setCacheControl(IMMUTABLE);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(requestHeaders, eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        long size = photo.getSize();
+        long offset = 0;
+        long length = size;
+        HttpStatus status = HttpStatus.OK;
+
+        Optional<HttpRange> range = singleRange(requestHeaders, eTag, lastModified);
+        if (range.isPresent()) {
+            try {
+                offset = range.get().getRangeStart(size);
+                long end = range.get().getRangeEnd(size);
+                if (offset >= size || end < offset) {
+                    throw new IllegalArgumentException("Range outside of object");
+                }
+                length = end - offset + 1;
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + size);
+        }
+
+        headers.setContentType(mediaTypeOf(photo));
+        headers.setContentLength(length);
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+
+        String key = photo.getFileName();
+        Optional<Path> localPath = photoStorage.getLocalPath(key);
+        if (localPath.isPresent() && !Files.isReadable(localPath.get())) {
+            log.error("Stored object missing for photo {}", photo.getId());
+            return ResponseEntity.notFound().build();
+        }
+
+        if (localPath.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, localPath.get().toString());
+            request.setAttribute(SENDFILE_START, offset);
+            request.setAttribute(SENDFILE_END, offset + length);
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+
+        long start = offset;
+        long count = length;
+        boolean partial = status == HttpStatus.PARTIAL_CONTENT;
+        StreamingResponseBody body = localPath.isPresent()
+                ? out -> transferFile(localPath.get(), start, count, out)
+                : out -> {
+                    try (InputStream in = partial ? photoStorage.open(key, start, count) : photoStorage.open(key)) {
+                        StreamUtils.copy(in, out);
+                    }
+                };
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    private boolean isNotModified(HttpHeaders requestHeaders, String eTag, long lastModified) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.stream().anyMatch(tag -> "*".equals(tag) || eTagMatches(tag, eTag));
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * The requested byte range, if exactly one was asked for and {@code If-Range} (when sent) still
+     * matches. Anything else is answered with the whole object, which RFC 9110 allows.
+     */
+    private Optional<HttpRange> singleRange(HttpHeaders requestHeaders, String eTag, long lastModified) {
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (ranges.size() != 1) {
+            return Optional.empty();
+        }
+
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(requestHeaders, ifRange, eTag, lastModified)) {
+            return Optional.empty();
+        }
+        return Optional.of(ranges.get(0));
+    }
+
+    private boolean ifRangeMatches(HttpHeaders requestHeaders, String ifRange, String eTag, long lastModified) {
+        // If-Range needs a strong comparison, so weak validators never match
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            return requestHeaders.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean eTagMatches(String candidate, String eTag) {
+        String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+        return tag.equals(eTag);
+    }
+
+    private MediaType mediaTypeOf(Photo photo) {
+        try {
+            return MediaType.parseMediaType(photo.getContentType());
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private void transferFile(Path path, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long end = position + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+}
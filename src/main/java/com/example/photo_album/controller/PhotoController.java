@@ -1,19 +1,31 @@
 // src/main/java/com/example/photo_album/controller/PhotoController.java
 package com.example.photo_album.controller;
 
+import com.example.photo_album.cache.PhotoListingCache;
+import com.example.photo_album.dto.PhotoSummary;
 import com.example.photo_album.model.Photo;
 import com.example.photo_album.service.PhotoService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.Principal;
 import java.util.List;
 
@@ -22,9 +34,23 @@ import java.util.List;
 @RequestMapping("/api/photos")
 public class PhotoController {
     private final PhotoService photoService;
+    private final PhotoListingCache photoListingCache;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final ContentNegotiationManager contentNegotiationManager;
 
-    public PhotoController(PhotoService photoService) {
+    public PhotoController(
+            PhotoService photoService,
+            PhotoListingCache photoListingCache,
+            ObjectMapper objectMapper,
+            MappingJackson2CborHttpMessageConverter cborConverter,
+            ContentNegotiationManager contentNegotiationManager
+    ) {
         this.photoService = photoService;
+        this.photoListingCache = photoListingCache;
+        this.jsonMapper = objectMapper;
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
     @PostMapping
@@ -40,21 +66,37 @@ public class PhotoController {
         }
     }
 
-    @GetMapping
-    public ResponseEntity<Page<Photo>> getAllPhotos(
+    /**
+     * Pages of {@link PhotoSummary}, as JSON or, for clients that prefer it, CBOR. The first pages are
+     * served from the {@link PhotoListingCache} already serialized. Every page carries an ETag of its
+     * content; a matching If-None-Match gets a 304 from the ResponseEntity handling.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<byte[]> getAllPhotos(
             Principal principal,
+            NativeWebRequest request,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadDate") String sortBy,
-            @RequestParam(defaultValue = "desc") String direction) {
+            @RequestParam(defaultValue = "desc") String direction) throws HttpMediaTypeNotAcceptableException {
 
         Sort.Direction sortDirection = direction.equalsIgnoreCase("asc") ?
                 Sort.Direction.ASC : Sort.Direction.DESC;
+        MediaType format = negotiateListingFormat(request);
+        ObjectMapper mapper = format.equals(MediaType.APPLICATION_CBOR) ? cborMapper : jsonMapper;
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        Page<Photo> photos = photoService.getUserPhotos(principal.getName(), pageable);
+        PhotoListingCache.Key key = new PhotoListingCache.Key(
+                principal.getName(), page, size, sortBy, sortDirection.name(), format.toString());
+        PhotoListingCache.Listing listing = photoListingCache.get(key, () -> serialize(mapper,
+                new PagedModel<>(photoService.getUserPhotos(principal.getName(), pageable).map(PhotoSummary::from))));
 
-        return ResponseEntity.ok(photos);
+        return ResponseEntity.ok()
+                .contentType(format)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(listing.eTag())
+                .body(listing.body());
     }
 
     @GetMapping("/{id}")
@@ -97,4 +139,25 @@ public class PhotoController {
         List<Photo> photos = photoService.findUserPhotosByLabel(principal.getName(), label, minConfidence);
         return ResponseEntity.ok(photos);
     }
+
+    // JSON unless CBOR is asked for ahead of it; */* and missing Accept headers get JSON
+    private MediaType negotiateListingFormat(NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType accepted : contentNegotiationManager.resolveMediaTypes(request)) {
+            if (accepted.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (accepted.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return MediaType.APPLICATION_CBOR;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private static byte[] serialize(ObjectMapper mapper, Object body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
\ No newline at end of file
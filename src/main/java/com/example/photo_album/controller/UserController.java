@@ -0,0 +1,31 @@
+package com.example.photo_album.controller;
+
+import com.example.photo_album.service.AccountDeletionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/api/users")
+public class UserController {
+    private final AccountDeletionService accountDeletionService;
+
+    public UserController(AccountDeletionService accountDeletionService) {
+        this.accountDeletionService = accountDeletionService;
+    }
+
+    /**
+     * Delete the caller's account with all photos and albums. Runs in the background.
+     */
+    @DeleteMapping("/me")
+    public ResponseEntity<Void> deleteAccount(Principal principal) {
+        if (!accountDeletionService.requestDeletion(principal.getName())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.photo_album.dto;
+
+import com.example.photo_album.model.Album;
+import com.example.photo_album.repository.AlbumRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * An album's metadata and summary; {@code GET /api/albums/{id}/photos} pages through the photos.
+ */
+public record AlbumDetails(
+        String id,
+        String name,
+        String description,
+        LocalDateTime createdAt,
+        int photoCount,
+        String coverPhotoId,
+        LocalDateTime lastModified
+) {
+    public static AlbumDetails from(Album album, AlbumRepository.Summary summary) {
+        return new AlbumDetails(album.getId(), album.getName(), album.getDescription(), album.getCreatedAt(),
+                summary.getPhotoCount(), summary.getCoverPhotoId(), summary.getLastModified());
+    }
+}
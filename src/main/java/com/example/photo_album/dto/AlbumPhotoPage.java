@@ -0,0 +1,13 @@
+package com.example.photo_album.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One page of an album's photos in album order. {@code nextAfter} is the cursor for the next page and
+ * is left out on the last one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AlbumPhotoPage(List<PhotoSummary> photos, Long nextAfter) {
+}
@@ -0,0 +1,21 @@
+package com.example.photo_album.dto;
+
+import com.example.photo_album.repository.AlbumRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * An album as shown in the album list: what a grid of albums with cover thumbnails needs.
+ */
+public record AlbumSummary(
+        String id,
+        String name,
+        int photoCount,
+        String coverPhotoId,
+        LocalDateTime lastModified
+) {
+    public static AlbumSummary from(AlbumRepository.Summary summary) {
+        return new AlbumSummary(summary.getId(), summary.getName(), summary.getPhotoCount(),
+                summary.getCoverPhotoId(), summary.getLastModified());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.photo_album.dto;
+
+import com.example.photo_album.model.Photo;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A photo as shown in listings: what a thumbnail grid needs, with label names ordered by confidence
+ * instead of the full label map. {@code GET /api/photos/{id}} returns the whole photo.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record PhotoSummary(
+        String id,
+        String fileName,
+        String url,
+        String contentType,
+        long size,
+        LocalDateTime uploadDate,
+        List<String> tags,
+        List<String> labels
+) {
+    public static PhotoSummary from(Photo photo) {
+        return new PhotoSummary(
+                photo.getId(),
+                photo.getFileName(),
+                photo.getUrl(),
+                photo.getContentType(),
+                photo.getSize(),
+                photo.getUploadDate(),
+                photo.getTags() != null ? List.copyOf(photo.getTags()) : List.of(),
+                photo.getLabels() != null ? labelNames(photo.getLabels()) : List.of());
+    }
+
+    private static List<String> labelNames(Map<String, Float> labels) {
+        return labels.entrySet().stream()
+                .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
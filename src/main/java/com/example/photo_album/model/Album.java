@@ -1,17 +1,23 @@
 // src/main/java/com/example/photo_album/model/Album.java
 package com.example.photo_album.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLOrder;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "albums")
 @Table(name = "albums")
 @Data
 @Builder
@@ -29,11 +35,16 @@ public class Album {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Not serialized: GET /api/albums/{id}/photos pages through them.
+    // In the order they were added; position is filled in by the database
+    @JsonIgnore
     @ManyToMany
+    @SQLOrder("position")
     @JoinTable(
             name = "album_photos",
             joinColumns = @JoinColumn(name = "album_id"),
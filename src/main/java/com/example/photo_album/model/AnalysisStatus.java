@@ -0,0 +1,10 @@
+package com.example.photo_album.model;
+
+public enum AnalysisStatus {
+    // Labels are up to date
+    COMPLETED,
+    // Analysis was skipped or failed transiently and should be retried
+    PENDING,
+    // Rekognition rejected the image; retrying will not help
+    FAILED
+}
@@ -0,0 +1,51 @@
+package com.example.photo_album.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent progress of a long-running batch job, so an interrupted run can resume from its cursor.
+ * A run is in progress while {@code finishedAt} is null.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint {
+    @Id
+    private String jobName;
+
+    // Last key the job has fully processed; the next batch starts after it
+    private String cursor;
+
+    private long processed;
+
+    private long succeeded;
+
+    private long failed;
+
+    private long skipped;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+
+    // Node working on the job and the end of its lease, for jobs that claim their checkpoint
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.photo_album.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event recorded in the same transaction as the change it describes and delivered to handlers
+ * afterwards by the outbox poller. Delivered events are deleted.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_events_available_at", columnList = "availableAt"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    // Sequence ids (unlike IDENTITY) let Hibernate batch the inserts
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // Not delivered before this time; pushed back after a failed delivery
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    private int attempts;
+
+    @Column(columnDefinition = "text")
+    private String lastError;
+}
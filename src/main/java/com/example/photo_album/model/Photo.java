@@ -1,6 +1,7 @@
 // src/main/java/com/example/photo_album/model/Photo.java
 package com.example.photo_album.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -34,25 +35,55 @@ public class Photo {
     @Column(nullable = false)
     private String url;
 
+    // Short-lived signed URL issued for the current response; never persisted
+    @Transient
+    @JsonIgnore
+    private String signedUrl;
+
     @Column(nullable = false)
     private LocalDateTime uploadDate;
 
+    // Keyed by the owner's user_id as well, the partition key of the collection tables, so loading and
+    // replacing a photo's tags and labels touches a single partition
     @ElementCollection
-    @CollectionTable(name = "photo_tags", joinColumns = @JoinColumn(name = "photo_id"))
+    @CollectionTable(name = "photo_tags", joinColumns = {
+            @JoinColumn(name = "photo_id", referencedColumnName = "id"),
+            @JoinColumn(name = "user_id", referencedColumnName = "user_id")
+    })
     @Column(name = "tag")
     private List<String> tags;
 
     @ElementCollection
-    @CollectionTable(name = "photo_labels", joinColumns = @JoinColumn(name = "photo_id"))
+    @CollectionTable(name = "photo_labels", joinColumns = {
+            @JoinColumn(name = "photo_id", referencedColumnName = "id"),
+            @JoinColumn(name = "user_id", referencedColumnName = "user_id")
+    })
     @MapKeyColumn(name = "label_name")
     @Column(name = "confidence")
     private Map<String, Float> labels;
 
+    // Null for photos stored before analysis tracking, which are treated like PENDING
+    @Enumerated(EnumType.STRING)
+    private AnalysisStatus analysisStatus;
+
+    // RekognitionProperties.analysisVersion the labels were produced with; older versions are stale
+    private Integer analysisVersion;
 
+    // Not serialized: the owner is the caller, and the owner's photos and albums lead back here
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnore
     private User user;
 
     @ManyToMany(mappedBy = "photos")
+    @JsonIgnore
     private List<Album> albums = new ArrayList<>();
+
+    /**
+     * URL clients should fetch the photo from: the signed URL when one was issued, otherwise the stored one.
+     * JPA uses field access, so the stored column is unaffected.
+     */
+    public String getUrl() {
+        return signedUrl != null ? signedUrl : url;
+    }
 }
\ No newline at end of file
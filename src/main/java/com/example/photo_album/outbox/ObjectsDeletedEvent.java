@@ -0,0 +1,10 @@
+package com.example.photo_album.outbox;
+
+import java.util.List;
+
+/**
+ * Storage keys whose rows have been deleted; the objects are removed once the deletion commits.
+ */
+public record ObjectsDeletedEvent(List<String> keys) {
+    public static final String TYPE = "objects.deleted";
+}
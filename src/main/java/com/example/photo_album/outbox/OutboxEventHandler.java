@@ -0,0 +1,18 @@
+package com.example.photo_album.outbox;
+
+import com.example.photo_album.model.OutboxEvent;
+
+/**
+ * In-process consumer of outbox events. Delivery is at least once, so handlers must be idempotent.
+ */
+public interface OutboxEventHandler {
+    /**
+     * Event type this handler consumes, e.g. {@link PhotoUploadedEvent#TYPE}.
+     */
+    String eventType();
+
+    /**
+     * Handle one event. Throwing schedules the event for redelivery with backoff.
+     */
+    void handle(OutboxEvent event) throws Exception;
+}
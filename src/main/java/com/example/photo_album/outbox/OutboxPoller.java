@@ -0,0 +1,103 @@
+package com.example.photo_album.outbox;
+
+import com.example.photo_album.config.OutboxProperties;
+import com.example.photo_album.model.OutboxEvent;
+import com.example.photo_album.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox table and dispatches events to the {@link OutboxEventHandler}s for their type.
+ * <p>
+ * Each batch is locked with {@code FOR UPDATE SKIP LOCKED} and handled inside that transaction, so every
+ * node can poll concurrently and each event is worked on by one node at a time. Delivered events are
+ * deleted in the same transaction; failed ones are pushed back with exponential backoff. If the node dies
+ * before commit, the locks are released and the batch is delivered again elsewhere.
+ */
+@Component
+@Slf4j
+public class OutboxPoller {
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+    private final Map<String, List<OutboxEventHandler>> handlersByType;
+
+    public OutboxPoller(
+            OutboxEventRepository outboxEventRepository,
+            TransactionTemplate transactionTemplate,
+            OutboxProperties properties,
+            List<OutboxEventHandler> handlers
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.handlersByType = handlers.stream()
+                .collect(Collectors.groupingBy(OutboxEventHandler::eventType));
+    }
+
+    /**
+     * Deliver due events until the outbox has no full batch left.
+     *
+     * @return number of events delivered
+     */
+    public int poll() {
+        int delivered = 0;
+        try {
+            while (true) {
+                BatchResult result = transactionTemplate.execute(status -> processBatch());
+                delivered += result.delivered();
+                if (result.locked() < properties.getBatchSize()) {
+                    return delivered;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Outbox poll failed", e);
+            return delivered;
+        }
+    }
+
+    private record BatchResult(int locked, int delivered) {
+    }
+
+    private BatchResult processBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.lockDueEvents(
+                now, properties.getMaxAttempts(), properties.getBatchSize());
+        List<OutboxEvent> delivered = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            try {
+                for (OutboxEventHandler handler : handlersByType.getOrDefault(event.getEventType(), List.of())) {
+                    handler.handle(event);
+                }
+                delivered.add(event);
+            } catch (Exception e) {
+                int attempts = event.getAttempts() + 1;
+                event.setAttempts(attempts);
+                event.setLastError(e.toString());
+                event.setAvailableAt(now.plus(backoff(attempts)));
+                if (attempts >= properties.getMaxAttempts()) {
+                    log.error("Giving up on outbox event {} ({}) after {} attempts",
+                            event.getId(), event.getEventType(), attempts, e);
+                } else {
+                    log.warn("Outbox event {} ({}) failed, attempt {}: {}",
+                            event.getId(), event.getEventType(), attempts, e.toString());
+                }
+            }
+        }
+        outboxEventRepository.deleteAllInBatch(delivered);
+        return new BatchResult(events.size(), delivered.size());
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = properties.getRetryBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(properties.getMaxRetryBackoff()) > 0 ? properties.getMaxRetryBackoff() : delay;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.photo_album.outbox;
+
+import com.example.photo_album.model.OutboxEvent;
+import com.example.photo_album.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records events in the outbox table. Must be called inside the transaction that makes the change,
+ * so the event is stored if and only if the change commits.
+ */
+@Component
+public class OutboxPublisher {
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxPublisher(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String eventType, String aggregateId, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .eventType(eventType)
+                    .aggregateId(aggregateId)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(now)
+                    .availableAt(now)
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + eventType + " event", e);
+        }
+    }
+}
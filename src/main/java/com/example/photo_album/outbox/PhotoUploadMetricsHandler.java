@@ -0,0 +1,40 @@
+package com.example.photo_album.outbox;
+
+import com.example.photo_album.model.OutboxEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts stored photos and bytes from committed uploads only, unlike request metrics which
+ * also see uploads whose transaction rolled back.
+ */
+@Component
+public class PhotoUploadMetricsHandler implements OutboxEventHandler {
+    private final ObjectMapper objectMapper;
+    private final Counter photos;
+    private final Counter bytes;
+
+    public PhotoUploadMetricsHandler(ObjectMapper objectMapper, MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.photos = Counter.builder("photo.uploads.committed")
+                .description("Photos whose upload transaction committed")
+                .register(registry);
+        this.bytes = Counter.builder("photo.uploads.committed.bytes")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public String eventType() {
+        return PhotoUploadedEvent.TYPE;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        PhotoUploadedEvent uploaded = objectMapper.readValue(event.getPayload(), PhotoUploadedEvent.class);
+        photos.increment();
+        bytes.increment(uploaded.size());
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.photo_album.outbox;
+
+/**
+ * Payload of the event recorded when a photo row is inserted.
+ *
+ * @param userId null for photos uploaded without a user
+ */
+public record PhotoUploadedEvent(String photoId, String userId, String fileName, String contentType, long size) {
+    public static final String TYPE = "photo.uploaded";
+}
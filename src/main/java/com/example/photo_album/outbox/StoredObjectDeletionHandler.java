@@ -0,0 +1,32 @@
+package com.example.photo_album.outbox;
+
+import com.example.photo_album.model.OutboxEvent;
+import com.example.photo_album.storage.PhotoStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes the stored objects of removed photos with batched deletes. Deleting a missing object
+ * succeeds, so redelivery is harmless.
+ */
+@Component
+public class StoredObjectDeletionHandler implements OutboxEventHandler {
+    private final ObjectMapper objectMapper;
+    private final PhotoStorage photoStorage;
+
+    public StoredObjectDeletionHandler(ObjectMapper objectMapper, PhotoStorage photoStorage) {
+        this.objectMapper = objectMapper;
+        this.photoStorage = photoStorage;
+    }
+
+    @Override
+    public String eventType() {
+        return ObjectsDeletedEvent.TYPE;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        ObjectsDeletedEvent deleted = objectMapper.readValue(event.getPayload(), ObjectsDeletedEvent.class);
+        photoStorage.deleteAll(deleted.keys());
+    }
+}
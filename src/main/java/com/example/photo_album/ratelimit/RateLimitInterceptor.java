@@ -0,0 +1,95 @@
+package com.example.photo_album.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies per-user rate limits and the global upload concurrency cap before a request
+ * reaches the controllers. Runs after Spring Security, so the principal is already resolved.
+ * Uploads must declare their Content-Length so their bytes can be metered; a rejected upload
+ * keeps none of the user's quota.
+ */
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private static final String ADMITTED_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".ADMITTED";
+
+    private final UserRateLimiter rateLimiter;
+    private final UploadAdmissionControl admissionControl;
+
+    public RateLimitInterceptor(UserRateLimiter rateLimiter, UploadAdmissionControl admissionControl) {
+        this.rateLimiter = rateLimiter;
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        Principal principal = request.getUserPrincipal();
+        if (principal == null) {
+            return true;
+        }
+
+        if (isUpload(request)) {
+            long bytes = request.getContentLengthLong();
+            if (bytes < 0) {
+                // A chunked body could not be metered against the byte limit
+                response.setStatus(HttpStatus.LENGTH_REQUIRED.value());
+                return false;
+            }
+            long wait = rateLimiter.tryAcquireUpload(principal.getName(), bytes);
+            if (wait > 0) {
+                return reject(response, HttpStatus.TOO_MANY_REQUESTS, wait);
+            }
+            if (!admissionControl.tryEnter()) {
+                log.warn("Upload queue timed out for user {}", principal.getName());
+                rateLimiter.refundUpload(principal.getName(), bytes);
+                return reject(response, HttpStatus.SERVICE_UNAVAILABLE,
+                        admissionControl.getQueueTimeout().toNanos());
+            }
+            request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+
+        if (isRead(request)) {
+            long wait = rateLimiter.tryAcquireRead(principal.getName());
+            if (wait > 0) {
+                return reject(response, HttpStatus.TOO_MANY_REQUESTS, wait);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            admissionControl.exit();
+        }
+    }
+
+    private boolean isUpload(HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod())
+                && "/api/photos".equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    private boolean reject(HttpServletResponse response, HttpStatus status, long waitNanos) {
+        long oneSecond = TimeUnit.SECONDS.toNanos(1);
+        long retryAfterSeconds = Math.max(1, (waitNanos + oneSecond - 1) / oneSecond);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return false;
+    }
+}
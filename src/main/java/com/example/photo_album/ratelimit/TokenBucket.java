@@ -0,0 +1,70 @@
+package com.example.photo_album.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Classic token bucket refilled continuously at a fixed rate.
+ * A request larger than the whole bucket is let through once the bucket is full
+ * and leaves the balance negative, so large uploads are paced rather than rejected forever.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, double refillPerSecond, LongSupplier clock) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Try to take {@code amount} tokens.
+     *
+     * @return 0 if the tokens were taken, otherwise the nanoseconds to wait before retrying
+     */
+    public synchronized long tryConsume(long amount) {
+        refill();
+        double required = Math.min(amount, capacity);
+        if (tokens >= required) {
+            tokens -= amount;
+            return 0;
+        }
+        return (long) Math.ceil((required - tokens) / refillPerNano);
+    }
+
+    /**
+     * Give back tokens taken for a request that was rejected later on, up to the capacity.
+     */
+    public synchronized void refund(long amount) {
+        refill();
+        tokens = Math.min(capacity, tokens + amount);
+    }
+
+    /**
+     * Whether the bucket has been idle long enough to be completely refilled.
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
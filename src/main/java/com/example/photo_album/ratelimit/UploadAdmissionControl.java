@@ -0,0 +1,35 @@
+package com.example.photo_album.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global cap on uploads in flight. Callers queue fairly for a permit up to a timeout,
+ * so an overloaded node rejects early instead of timing out on a DB or S3 connection later.
+ */
+public class UploadAdmissionControl {
+    private final Semaphore permits;
+    private final Duration queueTimeout;
+
+    public UploadAdmissionControl(int maxConcurrentUploads, Duration queueTimeout) {
+        this.permits = new Semaphore(maxConcurrentUploads, true);
+        this.queueTimeout = queueTimeout;
+    }
+
+    public boolean tryEnter() throws InterruptedException {
+        return permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
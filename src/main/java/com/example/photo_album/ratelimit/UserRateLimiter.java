@@ -0,0 +1,87 @@
+package com.example.photo_album.ratelimit;
+
+import com.example.photo_album.config.RateLimitProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-principal token buckets: one for upload requests, one for upload bytes and one for reads.
+ */
+public class UserRateLimiter {
+    private final RateLimitProperties properties;
+    private final Map<String, UserBuckets> buckets = new ConcurrentHashMap<>();
+
+    public UserRateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Take one upload request and {@code bytes} from the user's buckets, or neither.
+     *
+     * @return 0 if the upload is allowed, otherwise the nanoseconds to wait before retrying
+     * @throws IllegalArgumentException if the upload size is unknown
+     */
+    public long tryAcquireUpload(String principal, long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Upload size must be known to meter it");
+        }
+        UserBuckets userBuckets = bucketsFor(principal);
+        long wait = userBuckets.uploadRequests.tryConsume(1);
+        if (wait > 0) {
+            return wait;
+        }
+        wait = userBuckets.uploadBytes.tryConsume(bytes);
+        if (wait > 0) {
+            userBuckets.uploadRequests.refund(1);
+        }
+        return wait;
+    }
+
+    /**
+     * Give back what {@link #tryAcquireUpload} took for an upload that was turned away afterwards.
+     */
+    public void refundUpload(String principal, long bytes) {
+        UserBuckets userBuckets = bucketsFor(principal);
+        userBuckets.uploadRequests.refund(1);
+        userBuckets.uploadBytes.refund(bytes);
+    }
+
+    /**
+     * @return 0 if the read is allowed, otherwise the nanoseconds to wait before retrying
+     */
+    public long tryAcquireRead(String principal) {
+        return bucketsFor(principal).reads.tryConsume(1);
+    }
+
+    int trackedUsers() {
+        return buckets.size();
+    }
+
+    private UserBuckets bucketsFor(String principal) {
+        if (buckets.size() >= properties.getMaxTrackedUsers()) {
+            // A full bucket carries no state, so dropping it is indistinguishable from keeping it
+            buckets.values().removeIf(UserBuckets::isIdle);
+        }
+        return buckets.computeIfAbsent(principal, key -> new UserBuckets(properties));
+    }
+
+    private static final class UserBuckets {
+        private final TokenBucket uploadRequests;
+        private final TokenBucket uploadBytes;
+        private final TokenBucket reads;
+
+        private UserBuckets(RateLimitProperties properties) {
+            this.uploadRequests = new TokenBucket(
+                    properties.getUploadRequestBurst(), properties.getUploadRequestsPerSecond());
+            this.uploadBytes = new TokenBucket(
+                    properties.getUploadBytesBurst(), properties.getUploadBytesPerSecond());
+            this.reads = new TokenBucket(
+                    properties.getReadRequestBurst(), properties.getReadRequestsPerSecond());
+        }
+
+        private boolean isIdle() {
+            return uploadRequests.isFull() && uploadBytes.isFull() && reads.isFull();
+        }
+    }
+}
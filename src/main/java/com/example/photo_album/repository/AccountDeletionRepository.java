@@ -0,0 +1,71 @@
+package com.example.photo_album.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Set-based deletes of a user's data in chunks, bypassing the JPA cascades that would load every
+ * photo and its collections into the persistence context.
+ */
+@Repository
+public class AccountDeletionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountDeletionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record PhotoKey(String id, String fileName) {
+    }
+
+    public List<PhotoKey> findPhotos(String userId, int limit) {
+        return jdbcTemplate.query("SELECT id, file_name FROM photos WHERE user_id = ? LIMIT ?",
+                (rs, rowNum) -> new PhotoKey(rs.getString("id"), rs.getString("file_name")), userId, limit);
+    }
+
+    /**
+     * Delete the user's photos and every row referring to them.
+     */
+    public void deletePhotos(String userId, List<String> photoIds) {
+        String[] ids = photoIds.toArray(String[]::new);
+        jdbcTemplate.update("DELETE FROM photo_tags WHERE user_id = ? AND photo_id = ANY (?)", userAndArrayOf(userId, ids));
+        jdbcTemplate.update("DELETE FROM photo_labels WHERE user_id = ? AND photo_id = ANY (?)", userAndArrayOf(userId, ids));
+        jdbcTemplate.update("DELETE FROM album_photos WHERE photo_id = ANY (?)", arrayOf(ids));
+        jdbcTemplate.update("DELETE FROM photos WHERE user_id = ? AND id = ANY (?)", userAndArrayOf(userId, ids));
+    }
+
+    public List<String> findAlbumIds(String userId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM albums WHERE user_id = ? LIMIT ?",
+                String.class, userId, limit);
+    }
+
+    public void deleteAlbums(List<String> albumIds) {
+        String[] ids = albumIds.toArray(String[]::new);
+        jdbcTemplate.update("DELETE FROM album_photos WHERE album_id = ANY (?)", arrayOf(ids));
+        jdbcTemplate.update("DELETE FROM albums WHERE id = ANY (?)", arrayOf(ids));
+    }
+
+    public boolean userExists(String userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)", Boolean.class, userId));
+    }
+
+    public int deleteUser(String userId) {
+        return jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    private static PreparedStatementSetter arrayOf(String[] ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", ids));
+    }
+
+    // The user id prunes the partitioned tables to the user's partition
+    private static PreparedStatementSetter userAndArrayOf(String userId, String[] ids) {
+        return ps -> {
+            ps.setString(1, userId);
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", ids));
+        };
+    }
+}
@@ -1,15 +1,87 @@
-// src/main/java/com/example/photo_album/repository/AlbumRepository.java
 package com.example.photo_album.repository;
 
 import com.example.photo_album.model.Album;
 import com.example.photo_album.model.User;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+
+import static com.example.photo_album.repository.PhotoRepository.SEARCH_TIMEOUT_MS;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_QUERY_TIMEOUT;
 
 @Repository
 public interface AlbumRepository extends JpaRepository<Album, String> {
     List<Album> findByUser(User user);
     List<Album> findByUserAndNameContainingIgnoreCase(User user, String name);
-}
\ No newline at end of file
+
+    // Keyset page of an album's photo ids in the order they were added, index-only
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
+    @Query(value = "SELECT photo_id AS \"photoId\", position AS \"position\" FROM album_photos " +
+            "WHERE album_id = :albumId AND position > :afterPosition ORDER BY position LIMIT :limit",
+            nativeQuery = true)
+    List<PhotoPosition> findPhotoPositions(String albumId, long afterPosition, int limit);
+
+    // A page of the user's album for export, in album order: only the columns an archive entry needs, as
+    // projections that never enter the persistence context
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
+    @Query(value = "SELECT ap.position AS \"position\", p.file_name AS \"fileName\", " +
+            "p.content_type AS \"contentType\", p.size AS \"size\", p.upload_date AS \"uploadDate\" " +
+            "FROM album_photos ap " +
+            "JOIN albums a ON a.id = ap.album_id " +
+            "JOIN photos p ON p.user_id = :userId AND p.id = ap.photo_id " +
+            "WHERE ap.album_id = :albumId AND a.user_id = :userId AND ap.position > :afterPosition " +
+            "ORDER BY ap.position LIMIT :limit",
+            nativeQuery = true)
+    List<ExportedPhoto> findExportedPhotos(String userId, String albumId, long afterPosition, int limit);
+
+    // A user's album summaries, most recently changed first, index-only; the V5 triggers keep them up to date
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
+    @Query(value = SUMMARY_COLUMNS + "WHERE user_id = :userId ORDER BY last_modified DESC, id", nativeQuery = true)
+    List<Summary> findSummariesByUserId(String userId);
+
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
+    @Query(value = SUMMARY_COLUMNS + "WHERE id = :albumId", nativeQuery = true)
+    Optional<Summary> findSummaryById(String albumId);
+
+    // Appends the photo to the album without loading the album's photos; a photo already there keeps its place.
+    // The query space keeps Hibernate from clearing every second-level cache region after the native insert;
+    // the album columns the insert trigger updates are not mapped, so cached albums stay valid.
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "album_photos"))
+    @Query(value = "INSERT INTO album_photos (album_id, photo_id) VALUES (:albumId, :photoId) " +
+            "ON CONFLICT (album_id, photo_id) DO NOTHING",
+            nativeQuery = true)
+    int addPhoto(String albumId, String photoId);
+
+    String SUMMARY_COLUMNS = "SELECT id, name, photo_count AS \"photoCount\", cover_photo_id AS \"coverPhotoId\", " +
+            "last_modified AS \"lastModified\" FROM albums ";
+
+    interface Summary {
+        String getId();
+        String getName();
+        int getPhotoCount();
+        String getCoverPhotoId();
+        LocalDateTime getLastModified();
+    }
+
+    interface ExportedPhoto {
+        long getPosition();
+        String getFileName();
+        String getContentType();
+        long getSize();
+        LocalDateTime getUploadDate();
+    }
+
+    interface PhotoPosition {
+        String getPhotoId();
+        long getPosition();
+    }
+}
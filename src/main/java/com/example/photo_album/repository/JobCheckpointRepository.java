@@ -0,0 +1,37 @@
+package com.example.photo_album.repository;
+
+import com.example.photo_album.model.JobCheckpoint;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+    List<JobCheckpoint> findByJobNameStartingWith(String jobNamePrefix);
+
+    List<JobCheckpoint> findByJobNameStartingWithAndFinishedAtIsNull(String jobNamePrefix);
+
+    long deleteByJobNameStartingWith(String jobNamePrefix);
+
+    /**
+     * Take or renew the claim on an unfinished job for {@code leaseSeconds}, unless another owner holds an
+     * unexpired claim. Lease times are the database's, so the nodes' clocks need not agree.
+     *
+     * @return 1 if the owner now holds the claim, otherwise 0
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "job_checkpoints"))
+    @Query(value = "UPDATE job_checkpoints "
+            + "SET claimed_by = :owner, claimed_until = localtimestamp + make_interval(secs => :leaseSeconds) "
+            + "WHERE job_name = :jobName AND finished_at IS NULL "
+            + "AND (claimed_by IS NULL OR claimed_by = :owner OR claimed_until < localtimestamp)",
+            nativeQuery = true)
+    int claim(String jobName, String owner, long leaseSeconds);
+}
@@ -0,0 +1,17 @@
+package com.example.photo_album.repository;
+
+import com.example.photo_album.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    // Lock a batch of due events; rows locked by other nodes are skipped instead of waited on
+    @Query(value = "SELECT * FROM outbox_events WHERE available_at <= :now AND attempts < :maxAttempts " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockDueEvents(LocalDateTime now, int maxAttempts, int limit);
+}
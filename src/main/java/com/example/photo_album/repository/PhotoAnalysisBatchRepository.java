@@ -0,0 +1,62 @@
+package com.example.photo_album.repository;
+
+import com.example.photo_album.model.AnalysisStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes analysis results for many photos with JDBC batch statements, one round trip per statement
+ * instead of loading and merging every Photo entity and its label collection. Every statement names the
+ * user id too, so it is routed to the user's partition.
+ */
+@Repository
+public class PhotoAnalysisBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public PhotoAnalysisBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record AnalysisUpdate(String photoId, String userId, Map<String, Float> labels, AnalysisStatus status,
+                                 Integer analysisVersion) {
+    }
+
+    /**
+     * Replace the labels of completed analyses and record the status of all of them.
+     * Photos whose analysis did not complete keep the labels they already had.
+     */
+    @Transactional
+    public void saveAll(List<AnalysisUpdate> updates) {
+        List<Object[]> completed = new ArrayList<>();
+        List<Object[]> labels = new ArrayList<>();
+        List<Object[]> statuses = new ArrayList<>();
+        for (AnalysisUpdate update : updates) {
+            if (update.status() == AnalysisStatus.COMPLETED) {
+                completed.add(new Object[]{update.userId(), update.photoId()});
+                update.labels().forEach((name, confidence) ->
+                        labels.add(new Object[]{update.photoId(), update.userId(), name, confidence}));
+            }
+            statuses.add(new Object[]{update.status().name(), update.analysisVersion(), update.userId(), update.photoId()});
+        }
+
+        if (!completed.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM photo_labels WHERE user_id = ? AND photo_id = ?", completed);
+        }
+        if (!labels.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO photo_labels (photo_id, user_id, label_name, confidence) VALUES (?, ?, ?, ?)", labels);
+        }
+        if (!statuses.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE photos SET analysis_status = ?, analysis_version = COALESCE(?, analysis_version) "
+                            + "WHERE user_id = ? AND id = ?", statuses,
+                    new int[]{Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.VARCHAR});
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.photo_album.repository;
+
+import com.example.photo_album.model.AnalysisStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Registers already-stored objects as photos with one JDBC batch insert per import batch, instead of
+ * persisting a Photo entity per object. Rows are routed to the user's partition by their user id.
+ */
+@Repository
+public class PhotoImportRepository {
+    // Arbitrary advisory lock key shared by every node's imports
+    private static final long IMPORT_LOCK = 0x70686f746f496dL;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PhotoImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record ImportedPhoto(String id, String fileName, String contentType, long size, String url,
+                                LocalDateTime uploadDate) {
+    }
+
+    /**
+     * Serialize import batches across nodes until the current transaction ends. photos is partitioned by
+     * user, so no unique index can cover a storage key on its own; holding this lock between the duplicate
+     * check and the insert keeps overlapping imports from registering a key twice.
+     */
+    public void lockImports() {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)::text", String.class, IMPORT_LOCK);
+    }
+
+    /**
+     * Insert the photos for the user, queued for analysis.
+     */
+    public void insertAll(String userId, List<ImportedPhoto> photos) {
+        if (photos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO photos (id, file_name, content_type, size, url, upload_date, user_id, analysis_status) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                photos.stream().map(photo -> new Object[]{photo.id(), photo.fileName(), photo.contentType(),
+                        photo.size(), photo.url(), Timestamp.valueOf(photo.uploadDate()), userId,
+                        AnalysisStatus.PENDING.name()}).toList());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.photo_album.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * Calls the online partitioning functions created by the {@code V3__partition_photos_by_user} migration.
+ */
+@Repository
+public class PhotoPartitioningRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public PhotoPartitioningRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Whether the partitioned tables are still waiting for the existing rows and the cutover.
+     */
+    public boolean isPending() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('photos_partitioned') IS NOT NULL", Boolean.class));
+    }
+
+    /**
+     * @param lastId the last photo id copied, or null when every photo has been copied
+     */
+    public record Chunk(String lastId, int copied) {
+    }
+
+    /**
+     * Copy the next chunk of photos, with their tags and labels, in id order.
+     */
+    public Chunk copyChunk(String afterId, int chunkSize) {
+        return jdbcTemplate.queryForObject("SELECT last_id, copied FROM photo_partitioning_copy_chunk(?, ?)",
+                (rs, rowNum) -> new Chunk(rs.getString("last_id"), rs.getInt("copied")), afterId, chunkSize);
+    }
+
+    /**
+     * Swap the partitioned tables in. Must run in a transaction; gives up with a
+     * {@link org.springframework.dao.CannotAcquireLockException} rather than queueing every other
+     * statement on the tables behind it for longer than {@code lockTimeout}.
+     *
+     * @return false if the cutover had already happened
+     */
+    public boolean cutover(Duration lockTimeout) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeout.toMillis());
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT photo_partitioning_cutover()", Boolean.class));
+    }
+}
@@ -3,33 +3,85 @@ package com.example.photo_album.repository;
 
 import com.example.photo_album.model.Photo;
 import com.example.photo_album.model.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_QUERY_TIMEOUT;
 
 @Repository
 public interface PhotoRepository extends JpaRepository<Photo, String> {
+    // Statement timeouts in milliseconds: searches serve API requests, scans feed background jobs one page at a time
+    String SEARCH_TIMEOUT_MS = "5000";
+    String SCAN_TIMEOUT_MS = "30000";
+
     // Find photos by tag
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
     List<Photo> findByTagsContaining(String tag);
 
     // Find photos by user
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
     Page<Photo> findByUser(User user, Pageable pageable);
 
+    // Find one of a user's photos by id, pruned to the user's partition
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
+    Optional<Photo> findByUserAndId(User user, String id);
+
+    // Find some of a user's photos by id, pruned to the user's partition
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
+    List<Photo> findByUserAndIdIn(User user, Collection<String> ids);
+
     // Find user's photos by tag
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
     List<Photo> findByUserAndTagsContaining(User user, String tag);
 
     // Find photos by label with confidence above threshold
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
     @Query("SELECT p FROM Photo p JOIN p.labels l WHERE KEY(l) = :labelName AND VALUE(l) >= :minConfidence")
     List<Photo> findByLabelAndMinConfidence(String labelName, Float minConfidence);
 
     // Find user's photos by label with confidence above threshold
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
     @Query("SELECT p FROM Photo p JOIN p.labels l WHERE p.user = :user AND KEY(l) = :labelName AND VALUE(l) >= :minConfidence")
     List<Photo> findByUserAndLabelAndMinConfidence(User user, String labelName, Float minConfidence);
 
     // Find photos by content type
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SEARCH_TIMEOUT_MS))
     List<Photo> findByContentType(String contentType);
-}
\ No newline at end of file
+
+    // Keyset scan for the label backfill: photos after the cursor whose analysis is missing, failed or stale
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SCAN_TIMEOUT_MS))
+    @Query("SELECT p.id AS id, p.user.id AS userId, p.fileName AS fileName, p.size AS size FROM Photo p " +
+            "WHERE p.id > :afterId AND (p.analysisStatus IS NULL " +
+            "OR p.analysisStatus <> com.example.photo_album.model.AnalysisStatus.COMPLETED " +
+            "OR p.analysisVersion IS NULL OR p.analysisVersion < :analysisVersion) " +
+            "ORDER BY p.id")
+    List<AnalysisCandidate> findNeedingAnalysis(String afterId, int analysisVersion, Limit limit);
+
+    // Keyset scan of stored object keys in byte order, for the merge-join against a storage listing
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SCAN_TIMEOUT_MS))
+    @Query(value = "SELECT file_name FROM photos WHERE starts_with(file_name, :prefix) " +
+            "AND file_name COLLATE \"C\" > :afterFileName ORDER BY file_name COLLATE \"C\" LIMIT :limit",
+            nativeQuery = true)
+    List<String> findFileNamesAfter(String prefix, String afterFileName, int limit);
+
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = SCAN_TIMEOUT_MS))
+    @Query(value = "SELECT file_name FROM photos WHERE file_name COLLATE \"C\" IN (:fileNames)", nativeQuery = true)
+    List<String> findExistingFileNames(Collection<String> fileNames);
+
+    interface AnalysisCandidate {
+        String getId();
+        String getUserId();
+        String getFileName();
+        long getSize();
+    }
+}
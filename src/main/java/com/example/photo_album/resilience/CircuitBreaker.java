@@ -0,0 +1,137 @@
+package com.example.photo_album.resilience;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. The outcome of the last {@code windowSize} calls is kept in a ring;
+ * once at least {@code minimumCalls} have been recorded and the failure rate reaches the threshold,
+ * the circuit opens and calls are rejected without reaching the dependency. After {@code openDuration}
+ * a single probe call is let through (half-open): success closes the circuit, failure re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private final boolean[] failures;
+    private int recorded;
+    private int next;
+    private int failureCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration) {
+        this(windowSize, minimumCalls, failureRateThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                   LongSupplier clock) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Minimum calls must be between 1 and the window size");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+        this.failures = new boolean[windowSize];
+    }
+
+    /**
+     * Ask for permission to call the dependency. Every permitted call must be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                // Half-open: only the single probe is allowed through
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failureCount / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Give back a permission that was granted but not used for a call.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == windowSize) {
+            if (failures[next]) {
+                failureCount--;
+            }
+        } else {
+            recorded++;
+        }
+        failures[next] = failed;
+        if (failed) {
+            failureCount++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        probeInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        probeInFlight = false;
+        recorded = 0;
+        next = 0;
+        failureCount = 0;
+        Arrays.fill(failures, false);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.outbox.ObjectsDeletedEvent;
+import com.example.photo_album.outbox.OutboxPublisher;
+import com.example.photo_album.repository.AccountDeletionRepository;
+import com.example.photo_album.repository.AccountDeletionRepository.PhotoKey;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Deletes a user account and everything it owns without going through the JPA cascades on
+ * {@code User.photos} and {@code User.albums}, which load every photo with its tags and labels and
+ * delete them row by row.
+ * <p>
+ * Photos are deleted in chunks, each in its own short transaction that removes the tags, labels and
+ * album links with set-based statements, records the chunk's storage keys as an
+ * {@link ObjectsDeletedEvent} for the outbox, and advances the deletion's checkpoint. Albums follow, then
+ * the user row, each evicted from the second-level cache as it goes, together with the checkpoints of the
+ * user's photo imports. Memory and transaction size are bounded by the chunk size. In the checkpoint,
+ * {@code processed} counts deleted photos and {@code succeeded} deleted albums.
+ * <p>
+ * Every chunk transaction first takes or renews the deletion's claim on its checkpoint, a lease held by
+ * one node at a time, and the node stops if another has taken it over. Unfinished deletions are resumed on
+ * startup and every {@code account-deletion.resume-interval}, so a deletion whose node died is picked up by
+ * whichever node claims it once the lease has expired.
+ */
+@Service
+@Slf4j
+public class AccountDeletionService {
+    static final String JOB_PREFIX = "account-deletion:";
+
+    private final AccountDeletionRepository accountDeletionRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final SecondLevelCacheInvalidator cacheInvalidator;
+    private final TransactionOperations transactionOperations;
+    private final int chunkSize;
+    private final long claimLeaseSeconds;
+    // Identifies this node's claims; after a restart its old claims are taken over once they expire
+    private final String owner = UUID.randomUUID().toString();
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("account-deletion").daemon().factory());
+
+    public AccountDeletionService(
+            AccountDeletionRepository accountDeletionRepository,
+            JobCheckpointRepository checkpointRepository,
+            OutboxPublisher outboxPublisher,
+            SecondLevelCacheInvalidator cacheInvalidator,
+            TransactionOperations transactionOperations,
+            @Value("${account-deletion.chunk-size:1000}") int chunkSize,
+            @Value("${account-deletion.claim-lease:2m}") Duration claimLease
+    ) {
+        this.accountDeletionRepository = accountDeletionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.cacheInvalidator = cacheInvalidator;
+        this.transactionOperations = transactionOperations;
+        this.chunkSize = chunkSize;
+        this.claimLeaseSeconds = Math.max(1, claimLease.toSeconds());
+    }
+
+    /**
+     * Queue the deletion of a user's account.
+     *
+     * @return false if the deletion is already running on this node
+     * @throws NoSuchElementException if the user does not exist
+     */
+    public boolean requestDeletion(String userId) {
+        if (!accountDeletionRepository.userExists(userId)) {
+            throw new NoSuchElementException("User not found");
+        }
+        if (!inProgress.add(userId)) {
+            return false;
+        }
+        String jobName = JOB_PREFIX + userId;
+        if (checkpointRepository.findById(jobName).filter(checkpoint -> !checkpoint.isFinished()).isEmpty()) {
+            checkpointRepository.save(JobCheckpoint.builder()
+                    .jobName(jobName)
+                    .cursor("")
+                    .startedAt(LocalDateTime.now())
+                    .build());
+        }
+        executor.execute(() -> {
+            try {
+                deleteAccount(userId);
+            } catch (RuntimeException e) {
+                log.error("Deleting account {} failed, it will be resumed", userId, e);
+            } finally {
+                inProgress.remove(userId);
+            }
+        });
+        return true;
+    }
+
+    public Optional<JobCheckpoint> getProgress(String userId) {
+        return checkpointRepository.findById(JOB_PREFIX + userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${account-deletion.resume-interval:PT1M}",
+            fixedDelayString = "${account-deletion.resume-interval:PT1M}")
+    public void resumeUnfinishedDeletions() {
+        for (JobCheckpoint checkpoint : checkpointRepository.findByJobNameStartingWithAndFinishedAtIsNull(JOB_PREFIX)) {
+            String userId = checkpoint.getJobName().substring(JOB_PREFIX.length());
+            if (inProgress.contains(userId) || isClaimedElsewhere(checkpoint)) {
+                continue;
+            }
+            log.info("Resuming deletion of account {}", userId);
+            try {
+                requestDeletion(userId);
+            } catch (NoSuchElementException e) {
+                // Deleted some other way; nothing is left to delete
+                updateCheckpoint(checkpoint.getJobName(), finished -> finished.setFinishedAt(LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.error("Could not resume deletion of account {}", userId, e);
+            }
+        }
+    }
+
+    // Saves queueing a deletion only to find it claimed; the claim itself decides
+    private boolean isClaimedElsewhere(JobCheckpoint checkpoint) {
+        return checkpoint.getClaimedBy() != null && !owner.equals(checkpoint.getClaimedBy())
+                && checkpoint.getClaimedUntil() != null && checkpoint.getClaimedUntil().isAfter(LocalDateTime.now());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Delete the account synchronously. Photos uploaded while the deletion runs are picked up
+     * before the user row is removed.
+     */
+    void deleteAccount(String userId) {
+        String jobName = JOB_PREFIX + userId;
+        if (!Boolean.TRUE.equals(transactionOperations.execute(status -> claim(jobName)))) {
+            log.info("Deletion of account {} is running on another node", userId);
+            return;
+        }
+        do {
+            while (Boolean.TRUE.equals(transactionOperations.execute(status -> deletePhotoChunk(jobName, userId)))) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+            while (Boolean.TRUE.equals(transactionOperations.execute(status -> deleteAlbumChunk(jobName, userId)))) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } while (!Boolean.TRUE.equals(transactionOperations.execute(status -> deleteUser(jobName, userId))));
+        log.info("Deleted account {}", userId);
+    }
+
+    private boolean deletePhotoChunk(String jobName, String userId) {
+        renewClaim(jobName);
+        List<PhotoKey> photos = accountDeletionRepository.findPhotos(userId, chunkSize);
+        if (photos.isEmpty()) {
+            return false;
+        }
+        accountDeletionRepository.deletePhotos(userId, photos.stream().map(PhotoKey::id).toList());
+        cacheInvalidator.evictPhotoListings(userId);
+        outboxPublisher.publish(ObjectsDeletedEvent.TYPE, userId,
+                new ObjectsDeletedEvent(photos.stream().map(PhotoKey::fileName).toList()));
+        updateCheckpoint(jobName, checkpoint -> {
+            checkpoint.setCursor(photos.get(photos.size() - 1).id());
+            checkpoint.setProcessed(checkpoint.getProcessed() + photos.size());
+        });
+        return true;
+    }
+
+    private boolean deleteAlbumChunk(String jobName, String userId) {
+        renewClaim(jobName);
+        List<String> albumIds = accountDeletionRepository.findAlbumIds(userId, chunkSize);
+        if (albumIds.isEmpty()) {
+            return false;
+        }
+        accountDeletionRepository.deleteAlbums(albumIds);
+        cacheInvalidator.evictAlbums(userId, albumIds);
+        updateCheckpoint(jobName, checkpoint ->
+                checkpoint.setSucceeded(checkpoint.getSucceeded() + albumIds.size()));
+        return true;
+    }
+
+    private boolean deleteUser(String jobName, String userId) {
+        renewClaim(jobName);
+        // Something was added since the last chunk; go round again
+        if (!accountDeletionRepository.findPhotos(userId, 1).isEmpty()
+                || !accountDeletionRepository.findAlbumIds(userId, 1).isEmpty()) {
+            return false;
+        }
+        accountDeletionRepository.deleteUser(userId);
+        // Imports of a deleted user can never resume
+        checkpointRepository.deleteByJobNameStartingWith(PhotoImportService.jobPrefixOf(userId));
+        cacheInvalidator.evictUser(userId);
+        updateCheckpoint(jobName, checkpoint -> checkpoint.setFinishedAt(LocalDateTime.now()));
+        return true;
+    }
+
+    private boolean claim(String jobName) {
+        return checkpointRepository.claim(jobName, owner, claimLeaseSeconds) == 1;
+    }
+
+    /**
+     * Extend the claim for the chunk about to run, or roll its transaction back if another node took over.
+     */
+    private void renewClaim(String jobName) {
+        if (!claim(jobName)) {
+            throw new IllegalStateException("Lost the claim on " + jobName + " to another node");
+        }
+    }
+
+    private void updateCheckpoint(String jobName, Consumer<JobCheckpoint> update) {
+        checkpointRepository.findById(jobName).ifPresent(checkpoint -> {
+            update.accept(checkpoint);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.repository.AlbumRepository.ExportedPhoto;
+import com.example.photo_album.storage.PhotoStorage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams an album's photos as a ZIP archive, in album order, without holding the archive in memory or on disk.
+ * <p>
+ * Photos are read from the database a page at a time, each page a projection in its own short transaction, so
+ * neither a connection nor managed entities are held while the archive streams. Their objects are fetched from storage on a shared pool
+ * ahead of the writer: at most {@code prefetch-window} objects and {@code prefetch-buffer} bytes per export,
+ * so storage latency overlaps with writing and memory stays bounded however large the album is. Entries are
+ * written in album order as their objects arrive.
+ * <p>
+ * Formats that are already compressed are STORED: deflating a JPEG costs CPU and saves nothing. A STORED entry
+ * needs its CRC before its data, which the prefetch computes while reading the object. Objects larger than the
+ * prefetch buffer are streamed through the writer instead, deflated at level 0 if already compressed.
+ */
+@Service
+@Slf4j
+public class AlbumExportService {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/heic", "image/heif", "image/avif");
+
+    private final AlbumService albumService;
+    private final PhotoStorage photoStorage;
+    private final StorageProperties.Export settings;
+    private final Semaphore exports;
+    private final ExecutorService prefetchers;
+
+    @Autowired
+    public AlbumExportService(AlbumService albumService, PhotoStorage photoStorage, StorageProperties storageProperties) {
+        this(albumService, photoStorage, storageProperties.getExport());
+    }
+
+    public AlbumExportService(AlbumService albumService, PhotoStorage photoStorage, StorageProperties.Export settings) {
+        this.albumService = albumService;
+        this.photoStorage = photoStorage;
+        this.settings = settings;
+        this.exports = new Semaphore(settings.getMaxConcurrentExports());
+        this.prefetchers = Executors.newFixedThreadPool(
+                settings.getMaxConcurrentExports() * settings.getPrefetchWindow(),
+                Thread.ofPlatform().name("album-export-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetchers.shutdownNow();
+    }
+
+    /**
+     * Claim one of the export slots; pair with {@link #endExport()}.
+     *
+     * @return false if the node is already running as many exports as it allows
+     */
+    public boolean tryBeginExport() {
+        return exports.tryAcquire();
+    }
+
+    public void endExport() {
+        exports.release();
+    }
+
+    /**
+     * Write the user's album as a ZIP archive to {@code out}. Entries are named after the photos' original
+     * file names, numbered in album order so that names are unique and sort like the album.
+     */
+    public void export(String userId, String albumId, OutputStream out) throws IOException {
+        long budget = settings.getPrefetchBuffer().toBytes();
+        Iterator<ExportedPhoto> photos = new AlbumPhotos(userId, albumId);
+        Deque<PendingEntry> ahead = new ArrayDeque<>();
+        long buffered = 0;
+        int written = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE))) {
+            ExportedPhoto next = photos.hasNext() ? photos.next() : null;
+            while (next != null || !ahead.isEmpty()) {
+                while (next != null && ahead.size() < settings.getPrefetchWindow()) {
+                    long size = bufferedSize(next, budget);
+                    if (!ahead.isEmpty() && buffered + size > budget) {
+                        break;
+                    }
+                    ahead.add(prefetch(next, size > 0));
+                    buffered += size;
+                    next = photos.hasNext() ? photos.next() : null;
+                }
+                PendingEntry entry = ahead.poll();
+                write(zip, entry, ++written);
+                buffered -= bufferedSize(entry.photo(), budget);
+            }
+        } finally {
+            ahead.forEach(entry -> entry.content().cancel(true));
+        }
+        log.info("Exported album {} with {} photos", albumId, written);
+    }
+
+    // Objects larger than the whole buffer are streamed by the writer and take none of it
+    private static long bufferedSize(ExportedPhoto photo, long budget) {
+        return photo.getSize() <= budget ? photo.getSize() : 0;
+    }
+
+    private PendingEntry prefetch(ExportedPhoto photo, boolean buffer) {
+        if (!buffer) {
+            return new PendingEntry(photo, CompletableFuture.completedFuture(null));
+        }
+        return new PendingEntry(photo, CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = photoStorage.open(photo.getFileName())) {
+                byte[] bytes = in.readAllBytes();
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                return new FetchedObject(bytes, crc.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, prefetchers));
+    }
+
+    private void write(ZipOutputStream zip, PendingEntry pending, int number) throws IOException {
+        ExportedPhoto photo = pending.photo();
+        ZipEntry entry = new ZipEntry(entryName(photo, number));
+        if (photo.getUploadDate() != null) {
+            entry.setTimeLocal(photo.getUploadDate());
+        }
+        boolean compressed = photo.getContentType() != null && COMPRESSED_TYPES.contains(photo.getContentType());
+
+        FetchedObject fetched = await(pending);
+        if (fetched != null && compressed) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(fetched.bytes().length);
+            entry.setCompressedSize(fetched.bytes().length);
+            entry.setCrc(fetched.crc());
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+            zip.setLevel(compressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        }
+
+        zip.putNextEntry(entry);
+        if (fetched != null) {
+            zip.write(fetched.bytes());
+        } else {
+            try (InputStream in = photoStorage.open(photo.getFileName())) {
+                in.transferTo(zip);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    private FetchedObject await(PendingEntry pending) throws IOException {
+        try {
+            return pending.content().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + pending.photo().getFileName());
+        } catch (ExecutionException e) {
+            throw new IOException("Could not fetch " + pending.photo().getFileName(), e.getCause());
+        }
+    }
+
+    static String entryName(ExportedPhoto photo, int number) {
+        String name = PhotoService.UPLOAD_KEY_PREFIX.matcher(photo.getFileName()).replaceFirst("");
+        // Keep entries inside the extraction directory
+        name = name.replace('/', '_').replace('\\', '_');
+        return String.format("%04d_%s", number, name);
+    }
+
+    private record FetchedObject(byte[] bytes, long crc) {
+    }
+
+    private record PendingEntry(ExportedPhoto photo, CompletableFuture<FetchedObject> content) {
+    }
+
+    /**
+     * The album's photos in album order, read a page at a time.
+     */
+    private final class AlbumPhotos implements Iterator<ExportedPhoto> {
+        private final String userId;
+        private final String albumId;
+        private Iterator<ExportedPhoto> page = Collections.emptyIterator();
+        private long after = 0;
+        private boolean exhausted;
+
+        AlbumPhotos(String userId, String albumId) {
+            this.userId = userId;
+            this.albumId = albumId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !exhausted) {
+                List<ExportedPhoto> next = albumService.getUserAlbumExportPage(userId, albumId, after, settings.getPageSize());
+                exhausted = next.size() < settings.getPageSize();
+                if (!next.isEmpty()) {
+                    after = next.get(next.size() - 1).getPosition();
+                }
+                page = next.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public ExportedPhoto next() {
+            hasNext();
+            return page.next();
+        }
+    }
+}
@@ -1,6 +1,9 @@
-// src/main/java/com/example/photo_album/service/AlbumService.java
 package com.example.photo_album.service;
 
+import com.example.photo_album.dto.AlbumDetails;
+import com.example.photo_album.dto.AlbumPhotoPage;
+import com.example.photo_album.dto.AlbumSummary;
+import com.example.photo_album.dto.PhotoSummary;
 import com.example.photo_album.model.Album;
 import com.example.photo_album.model.Photo;
 import com.example.photo_album.model.User;
@@ -13,8 +16,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -22,15 +30,18 @@ public class AlbumService {
     private final AlbumRepository albumRepository;
     private final UserRepository userRepository;
     private final PhotoRepository photoRepository;
+    private final PhotoUrlService photoUrlService;
 
     public AlbumService(
             AlbumRepository albumRepository,
             UserRepository userRepository,
-            PhotoRepository photoRepository
+            PhotoRepository photoRepository,
+            PhotoUrlService photoUrlService
     ) {
         this.albumRepository = albumRepository;
         this.userRepository = userRepository;
         this.photoRepository = photoRepository;
+        this.photoUrlService = photoUrlService;
     }
 
     @Transactional
@@ -49,29 +60,30 @@ public class AlbumService {
         return albumRepository.save(album);
     }
 
+    /**
+     * Append one of the user's photos to their album without loading the photos already in it, if the album
+     * belongs to the user
+     */
     @Transactional
-    public Album addPhotoToAlbum(String albumId, String photoId) {
-        Album album = albumRepository.findById(albumId)
-                .orElseThrow(() -> new NoSuchElementException("Album not found"));
-
-        Photo photo = photoRepository.findById(photoId)
-                .orElseThrow(() -> new NoSuchElementException("Photo not found"));
-
-        // Ensure photo belongs to same user as album
-        if (!album.getUser().getId().equals(photo.getUser().getId())) {
-            throw new IllegalArgumentException("Photo does not belong to album owner");
-        }
+    public Optional<AlbumDetails> addPhotoToAlbum(String userId, String albumId, String photoId) {
+        return findUserAlbum(userId, albumId).map(album -> {
+            // Only the album owner's photos are found
+            photoRepository.findByUserAndId(album.getUser(), photoId)
+                    .orElseThrow(() -> new NoSuchElementException("Photo not found"));
 
-        album.getPhotos().add(photo);
-        return albumRepository.save(album);
+            albumRepository.addPhoto(albumId, photoId);
+            return AlbumDetails.from(album, albumRepository.findSummaryById(albumId).orElseThrow());
+        });
     }
 
+    /**
+     * Get the user's album summaries, most recently changed first, without loading any album's photos
+     */
     @Transactional(readOnly = true)
-    public List<Album> getUserAlbums(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NoSuchElementException("User not found"));
-        
-        return albumRepository.findByUser(user);
+    public List<AlbumSummary> getUserAlbums(String userId) {
+        return albumRepository.findSummariesByUserId(userId).stream()
+                .map(AlbumSummary::from)
+                .toList();
     }
 
     @Transactional(readOnly = true)
@@ -79,4 +91,54 @@ public class AlbumService {
         return albumRepository.findById(albumId)
                 .orElseThrow(() -> new NoSuchElementException("Album not found"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Get an album's metadata and summary, if the album belongs to the user
+     */
+    @Transactional(readOnly = true)
+    public Optional<AlbumDetails> getUserAlbum(String userId, String albumId) {
+        return findUserAlbum(userId, albumId)
+                .flatMap(album -> albumRepository.findSummaryById(albumId)
+                        .map(summary -> AlbumDetails.from(album, summary)));
+    }
+
+    /**
+     * Get up to {@code limit} of the album's photos that come after the {@code after} cursor, in album order
+     */
+    @Transactional(readOnly = true)
+    public Optional<AlbumPhotoPage> getUserAlbumPhotos(String userId, String albumId, long after, int limit) {
+        return findUserAlbum(userId, albumId).map(album -> {
+            // One extra row tells whether there is a next page
+            List<AlbumRepository.PhotoPosition> positions = albumRepository.findPhotoPositions(albumId, after, limit + 1);
+            boolean hasNext = positions.size() > limit;
+            if (hasNext) {
+                positions = positions.subList(0, limit);
+            }
+
+            List<String> photoIds = positions.stream().map(AlbumRepository.PhotoPosition::getPhotoId).toList();
+            Map<String, Photo> photosById = photoIds.isEmpty() ? Map.of()
+                    : photoRepository.findByUserAndIdIn(album.getUser(), photoIds).stream()
+                            .collect(Collectors.toMap(Photo::getId, Function.identity()));
+            List<Photo> photos = photoIds.stream().map(photosById::get).filter(Objects::nonNull).toList();
+            photoUrlService.applyUrls(photos);
+
+            Long nextAfter = hasNext ? positions.get(positions.size() - 1).getPosition() : null;
+            return new AlbumPhotoPage(photos.stream().map(PhotoSummary::from).toList(), nextAfter);
+        });
+    }
+
+    /**
+     * Get up to {@code limit} of the user's album photos after the {@code after} position, in album order, with
+     * only what an export needs. Album exports run without open-in-view, so each page is its own short
+     * transaction: the connection is returned and nothing is kept in a persistence context while it is streamed.
+     */
+    @Transactional(readOnly = true)
+    public List<AlbumRepository.ExportedPhoto> getUserAlbumExportPage(String userId, String albumId, long after, int limit) {
+        return albumRepository.findExportedPhotos(userId, albumId, after, limit);
+    }
+
+    private Optional<Album> findUserAlbum(String userId, String albumId) {
+        return albumRepository.findById(albumId)
+                .filter(album -> album.getUser().getId().equals(userId));
+    }
+}
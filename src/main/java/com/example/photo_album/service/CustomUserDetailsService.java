@@ -3,20 +3,29 @@ package com.example.photo_album.service;
 
 import com.example.photo_album.model.User;
 import com.example.photo_album.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final Set<String> adminUsernames;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(
+            UserRepository userRepository,
+            @Value("${admin.usernames:}") Set<String> adminUsernames
+    ) {
         this.userRepository = userRepository;
+        this.adminUsernames = adminUsernames;
     }
 
     @Override
@@ -27,7 +36,9 @@ public class CustomUserDetailsService implements UserDetailsService {
         return new org.springframework.security.core.userdetails.User(
                 user.getId(), // Use ID as the username for Spring Security
                 user.getPassword(),
-                Collections.emptyList() // No specific roles for now
+                adminUsernames.contains(user.getUsername())
+                        ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+                        : Collections.emptyList()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.example.photo_album.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.rekognition.AmazonRekognition;
+import com.amazonaws.services.rekognition.model.*;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.resilience.CircuitBreaker;
+import com.example.photo_album.storage.PhotoStorage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Labels images with Rekognition behind a circuit breaker and a bulkhead. When Rekognition is failing,
+ * slow or saturated, analysis is skipped straight away and the photo is left {@link AnalysisStatus#PENDING}
+ * for a later retry, instead of making the upload wait on the dependency.
+ */
+@Service
+@Slf4j
+public class ImageAnalysisService implements MeterBinder {
+    // Rekognition only accepts images up to 5 MB when they are passed as bytes
+    private static final long MAX_INLINE_IMAGE_BYTES = 5L * 1024 * 1024;
+
+    private final AmazonRekognition rekognition;
+    private final PhotoStorage photoStorage;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWaitNanos;
+    private final long slowCallNanos;
+    private final int maxLabels;
+    private final float minConfidence;
+    private final int analysisVersion;
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    public ImageAnalysisService(
+            AmazonRekognition rekognition,
+            PhotoStorage photoStorage,
+            RekognitionProperties properties
+    ) {
+        RekognitionProperties.CircuitBreaker breaker = properties.getCircuitBreaker();
+        this.rekognition = rekognition;
+        this.photoStorage = photoStorage;
+        this.circuitBreaker = new CircuitBreaker(breaker.getWindowSize(), breaker.getMinimumCalls(),
+                breaker.getFailureRateThreshold(), breaker.getOpenDuration());
+        this.bulkhead = new Semaphore(properties.getBulkhead().getMaxConcurrentCalls());
+        this.bulkheadMaxWaitNanos = properties.getBulkhead().getMaxWait().toNanos();
+        this.slowCallNanos = breaker.getSlowCallThreshold().toNanos();
+        this.maxLabels = properties.getMaxLabels();
+        this.minConfidence = properties.getMinConfidence();
+        this.analysisVersion = properties.getAnalysisVersion();
+    }
+
+    /**
+     * @param analysisVersion the label settings version that produced the labels, null unless completed
+     */
+    public record Result(Map<String, Float> labels, AnalysisStatus status, Integer analysisVersion) {
+        static Result skipped() {
+            return new Result(new HashMap<>(), AnalysisStatus.PENDING, null);
+        }
+
+        static Result failed() {
+            return new Result(new HashMap<>(), AnalysisStatus.FAILED, null);
+        }
+    }
+
+    public Result analyze(String fileName, long size) throws IOException {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            log.debug("Rekognition circuit open, deferring analysis of {}", fileName);
+            skipped.incrementAndGet();
+            return Result.skipped();
+        }
+
+        boolean acquired = false;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadMaxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            circuitBreaker.release();
+            log.debug("Rekognition bulkhead full, deferring analysis of {}", fileName);
+            skipped.incrementAndGet();
+            return Result.skipped();
+        }
+
+        try {
+            Optional<Image> image = toImage(fileName, size);
+            if (image.isEmpty()) {
+                circuitBreaker.release();
+                return Result.failed();
+            }
+            return detectLabels(fileName, image.get());
+        } catch (IOException | RuntimeException e) {
+            circuitBreaker.release();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public int getAnalysisVersion() {
+        return analysisVersion;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("rekognition.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while the Rekognition circuit breaker is open or half-open")
+                .register(registry);
+        Gauge.builder("rekognition.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .register(registry);
+        FunctionCounter.builder("rekognition.analysis.skipped", skipped, AtomicLong::get)
+                .description("Analyses deferred because the circuit was open or the bulkhead was full")
+                .register(registry);
+    }
+
+    private Result detectLabels(String fileName, Image image) {
+        DetectLabelsRequest request = new DetectLabelsRequest()
+                .withImage(image)
+                .withMaxLabels(maxLabels)
+                .withMinConfidence(minConfidence);
+
+        long start = System.nanoTime();
+        try {
+            DetectLabelsResult result = rekognition.detectLabels(request);
+            if (System.nanoTime() - start > slowCallNanos) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+
+            Map<String, Float> labels = result.getLabels().stream()
+                    .collect(Collectors.toMap(
+                            Label::getName,
+                            Label::getConfidence
+                    ));
+            return new Result(labels, AnalysisStatus.COMPLETED, analysisVersion);
+        } catch (AmazonRekognitionException e) {
+            if (isTransient(e)) {
+                circuitBreaker.onFailure();
+                log.warn("Transient Rekognition error for {}, deferring analysis: {}", fileName, e.getMessage());
+                return Result.skipped();
+            }
+            // The image itself was rejected; Rekognition is healthy
+            circuitBreaker.onSuccess();
+            log.error("Error during Rekognition analysis", e);
+            return Result.failed();
+        } catch (SdkClientException e) {
+            // Timeouts and connection failures
+            circuitBreaker.onFailure();
+            log.warn("Rekognition unreachable for {}, deferring analysis: {}", fileName, e.getMessage());
+            return Result.skipped();
+        }
+    }
+
+    private Optional<Image> toImage(String fileName, long size) throws IOException {
+        Optional<String> bucketName = photoStorage.getBucketName();
+        if (bucketName.isPresent()) {
+            return Optional.of(new Image()
+                    .withS3Object(new S3Object()
+                            .withBucket(bucketName.get())
+                            .withName(fileName)));
+        }
+        if (size > MAX_INLINE_IMAGE_BYTES) {
+            log.warn("Skipping analysis of {}: too large to send inline to Rekognition", fileName);
+            return Optional.empty();
+        }
+        try (InputStream content = photoStorage.open(fileName)) {
+            return Optional.of(new Image().withBytes(ByteBuffer.wrap(content.readAllBytes())));
+        }
+    }
+
+    private static boolean isTransient(AmazonServiceException e) {
+        return RetryUtils.isThrottlingException(e)
+                || RetryUtils.isRetryableServiceException(e)
+                || e.getErrorType() == AmazonServiceException.ErrorType.Service;
+    }
+}
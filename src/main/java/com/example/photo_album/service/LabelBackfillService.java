@@ -0,0 +1,249 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.ratelimit.TokenBucket;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoAnalysisBatchRepository;
+import com.example.photo_album.repository.PhotoAnalysisBatchRepository.AnalysisUpdate;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.PhotoRepository.AnalysisCandidate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-runs Rekognition for photos whose labels are missing, failed or produced with older label settings.
+ * <p>
+ * Photos are scanned in id order (keyset pagination) and analyzed in batches on a bounded worker pool,
+ * paced by a token bucket so the job stays within its Rekognition TPS budget. Each batch's labels are
+ * written with JDBC batch statements, then the checkpoint is advanced, so a run interrupted by a restart
+ * resumes after the last completed batch. Analysis is idempotent, so a batch repeated after a crash is harmless.
+ */
+@Service
+@Slf4j
+public class LabelBackfillService {
+    static final String JOB_NAME = "label-backfill";
+
+    private final PhotoRepository photoRepository;
+    private final PhotoAnalysisBatchRepository photoAnalysisBatchRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final ImageAnalysisService imageAnalysisService;
+    private final SecondLevelCacheInvalidator cacheInvalidator;
+    private final RekognitionProperties.Backfill settings;
+    private final TokenBucket requestBudget;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+    private volatile Thread coordinator;
+    private volatile JobCheckpoint progress;
+
+    public LabelBackfillService(
+            PhotoRepository photoRepository,
+            PhotoAnalysisBatchRepository photoAnalysisBatchRepository,
+            JobCheckpointRepository checkpointRepository,
+            ImageAnalysisService imageAnalysisService,
+            SecondLevelCacheInvalidator cacheInvalidator,
+            RekognitionProperties properties
+    ) {
+        this.photoRepository = photoRepository;
+        this.photoAnalysisBatchRepository = photoAnalysisBatchRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.imageAnalysisService = imageAnalysisService;
+        this.cacheInvalidator = cacheInvalidator;
+        this.settings = properties.getBackfill();
+        // A one-second burst keeps the average at the budget without bunching requests up
+        this.requestBudget = new TokenBucket(
+                Math.max(1, (long) settings.getMaxRequestsPerSecond()), settings.getMaxRequestsPerSecond());
+    }
+
+    public enum State { IDLE, RUNNING, STOPPING }
+
+    public record Progress(
+            State state,
+            String cursor,
+            long processed,
+            long completed,
+            long failed,
+            long deferred,
+            LocalDateTime startedAt,
+            LocalDateTime updatedAt,
+            LocalDateTime finishedAt,
+            double photosPerSecond
+    ) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        if (!settings.isResumeOnStartup()) {
+            return;
+        }
+        checkpointRepository.findById(JOB_NAME)
+                .filter(checkpoint -> !checkpoint.isFinished())
+                .ifPresent(checkpoint -> {
+                    log.info("Resuming label backfill after photo {}", checkpoint.getCursor());
+                    start();
+                });
+    }
+
+    /**
+     * Start a run in the background, continuing an unfinished one if there is a checkpoint.
+     *
+     * @return false if a run is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        stopRequested = false;
+        coordinator = Thread.ofPlatform().name(JOB_NAME).daemon().start(this::run);
+        return true;
+    }
+
+    /**
+     * Stop the current run. The checkpoint is kept, so the next {@link #start()} picks up after the last
+     * saved batch; an interrupted in-flight batch is analyzed again.
+     */
+    public void stop() {
+        stopRequested = true;
+        Thread thread = coordinator;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stop();
+        Thread thread = coordinator;
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    public Progress getProgress() {
+        State state = !running.get() ? State.IDLE : stopRequested ? State.STOPPING : State.RUNNING;
+        JobCheckpoint checkpoint = progress != null ? progress : checkpointRepository.findById(JOB_NAME).orElse(null);
+        if (checkpoint == null) {
+            return new Progress(state, null, 0, 0, 0, 0, null, null, null, 0);
+        }
+        LocalDateTime end = checkpoint.isFinished() ? checkpoint.getFinishedAt() : LocalDateTime.now();
+        double seconds = Duration.between(checkpoint.getStartedAt(), end).toMillis() / 1000.0;
+        return new Progress(state, checkpoint.getCursor(), checkpoint.getProcessed(), checkpoint.getSucceeded(),
+                checkpoint.getFailed(), checkpoint.getSkipped(), checkpoint.getStartedAt(),
+                checkpoint.getUpdatedAt(), checkpoint.getFinishedAt(),
+                seconds > 0 ? checkpoint.getProcessed() / seconds : 0);
+    }
+
+    private void run() {
+        ExecutorService workers = Executors.newFixedThreadPool(settings.getParallelism(),
+                Thread.ofPlatform().name(JOB_NAME + "-worker-", 0).daemon().factory());
+        try {
+            JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                    .filter(existing -> !existing.isFinished())
+                    .orElseGet(this::newCheckpoint);
+            progress = checkpoint;
+            int analysisVersion = imageAnalysisService.getAnalysisVersion();
+
+            while (!stopRequested) {
+                List<AnalysisCandidate> batch = photoRepository.findNeedingAnalysis(
+                        checkpoint.getCursor(), analysisVersion, Limit.of(settings.getBatchSize()));
+                if (batch.isEmpty()) {
+                    checkpoint.setFinishedAt(LocalDateTime.now());
+                    checkpointRepository.save(checkpoint);
+                    log.info("Label backfill finished: {} photos processed, {} completed, {} failed, {} deferred",
+                            checkpoint.getProcessed(), checkpoint.getSucceeded(),
+                            checkpoint.getFailed(), checkpoint.getSkipped());
+                    break;
+                }
+
+                List<AnalysisUpdate> updates = analyzeBatch(workers, batch);
+                photoAnalysisBatchRepository.saveAll(updates);
+                updates.stream().map(AnalysisUpdate::userId).distinct()
+                        .forEach(cacheInvalidator::evictPhotoListings);
+
+                long deferred = updates.stream().filter(u -> u.status() == AnalysisStatus.PENDING).count();
+                checkpoint.setCursor(batch.get(batch.size() - 1).getId());
+                checkpoint.setProcessed(checkpoint.getProcessed() + updates.size());
+                checkpoint.setSucceeded(checkpoint.getSucceeded()
+                        + updates.stream().filter(u -> u.status() == AnalysisStatus.COMPLETED).count());
+                checkpoint.setFailed(checkpoint.getFailed()
+                        + updates.stream().filter(u -> u.status() == AnalysisStatus.FAILED).count());
+                checkpoint.setSkipped(checkpoint.getSkipped() + deferred);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpoint = checkpointRepository.save(checkpoint);
+                progress = checkpoint;
+
+                if (deferred > 0) {
+                    // Rekognition is throttling or the circuit is open; give it time before the next batch
+                    log.info("Label backfill deferred {} photos, backing off for {}",
+                            deferred, settings.getDeferralBackoff());
+                    Thread.sleep(settings.getDeferralBackoff().toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            log.info("Label backfill stopped");
+        } catch (RuntimeException e) {
+            log.error("Label backfill failed", e);
+        } finally {
+            workers.shutdownNow();
+            progress = null;
+            coordinator = null;
+            running.set(false);
+        }
+    }
+
+    private List<AnalysisUpdate> analyzeBatch(ExecutorService workers, List<AnalysisCandidate> batch)
+            throws InterruptedException {
+        List<Future<AnalysisUpdate>> futures = new ArrayList<>(batch.size());
+        for (AnalysisCandidate candidate : batch) {
+            futures.add(workers.submit(() -> analyze(candidate)));
+        }
+        List<AnalysisUpdate> updates = new ArrayList<>(batch.size());
+        try {
+            for (Future<AnalysisUpdate> future : futures) {
+                updates.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Label analysis failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return updates;
+    }
+
+    private AnalysisUpdate analyze(AnalysisCandidate candidate) throws InterruptedException {
+        long wait;
+        while ((wait = requestBudget.tryConsume(1)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        try {
+            ImageAnalysisService.Result result = imageAnalysisService.analyze(candidate.getFileName(), candidate.getSize());
+            return new AnalysisUpdate(candidate.getId(), candidate.getUserId(), result.labels(), result.status(), result.analysisVersion());
+        } catch (IOException e) {
+            log.warn("Could not read {} for analysis: {}", candidate.getFileName(), e.getMessage());
+            return new AnalysisUpdate(candidate.getId(), candidate.getUserId(), null, AnalysisStatus.FAILED, null);
+        }
+    }
+
+    private JobCheckpoint newCheckpoint() {
+        return JobCheckpoint.builder()
+                .jobName(JOB_NAME)
+                .cursor("")
+                .startedAt(LocalDateTime.now())
+                .build();
+    }
+}
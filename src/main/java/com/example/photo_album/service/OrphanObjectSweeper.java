@@ -0,0 +1,221 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.storage.PhotoStorage;
+import com.example.photo_album.storage.StoredObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes stored objects that no photo row refers to, e.g. when the insert failed after the object was
+ * stored or rows were removed without their objects.
+ * <p>
+ * For each key prefix the storage listing and the {@code photos.file_name} column are both read page by
+ * page in the same key order and merge-joined, so memory stays bounded by the page size however many
+ * objects the bucket holds. Orphans older than the grace period are deleted with multi-object deletes
+ * after the batch is re-checked against the database. Progress is checkpointed after every page, so an
+ * interrupted sweep resumes where it stopped. Only keys of the {@code <uuid>_<name>} form uploads are
+ * stored under are candidates, and objects under the prefix of a bulk import are never deleted: anything
+ * else belongs to an archive in the bucket whether or not it was registered as photos.
+ */
+@Service
+@Slf4j
+public class OrphanObjectSweeper {
+    static final String JOB_NAME = "orphan-sweep";
+
+    private final PhotoStorage photoStorage;
+    private final PhotoRepository photoRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final StorageProperties.OrphanSweeper settings;
+    private final Clock clock;
+
+    @Autowired
+    public OrphanObjectSweeper(
+            PhotoStorage photoStorage,
+            PhotoRepository photoRepository,
+            JobCheckpointRepository checkpointRepository,
+            StorageProperties storageProperties
+    ) {
+        this(photoStorage, photoRepository, checkpointRepository, storageProperties, Clock.systemUTC());
+    }
+
+    OrphanObjectSweeper(
+            PhotoStorage photoStorage,
+            PhotoRepository photoRepository,
+            JobCheckpointRepository checkpointRepository,
+            StorageProperties storageProperties,
+            Clock clock
+    ) {
+        this.photoStorage = photoStorage;
+        this.photoRepository = photoRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.settings = storageProperties.getOrphanSweeper();
+        this.clock = clock;
+    }
+
+    @Scheduled(cron = "${storage.orphan-sweeper.cron:0 30 3 * * *}")
+    public void scheduledSweep() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (IOException | RuntimeException e) {
+            log.error("Orphan sweep failed", e);
+        }
+    }
+
+    /**
+     * Run a sweep to completion, continuing an interrupted one.
+     *
+     * @return the finished checkpoint: {@code processed} objects scanned, {@code succeeded} orphans
+     * deleted (or found, in dry-run mode), {@code skipped} orphans still within the grace period
+     */
+    public JobCheckpoint sweep() throws IOException {
+        JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .filter(existing -> !existing.isFinished())
+                .orElseGet(() -> JobCheckpoint.builder()
+                        .jobName(JOB_NAME)
+                        .cursor("")
+                        .startedAt(LocalDateTime.now(clock))
+                        .build());
+        Instant cutoff = clock.instant().minus(settings.getGracePeriod());
+
+        List<String> prefixes = new ArrayList<>(settings.getPrefixes());
+        prefixes.sort(PhotoStorage.KEY_ORDER);
+        for (String prefix : prefixes) {
+            String cursor = checkpoint.getCursor();
+            if (cursor.startsWith(prefix)) {
+                checkpoint = sweepPrefix(checkpoint, prefix, cursor, cutoff);
+            } else if (PhotoStorage.KEY_ORDER.compare(prefix, cursor) > 0) {
+                checkpoint = sweepPrefix(checkpoint, prefix, "", cutoff);
+            }
+        }
+
+        checkpoint.setFinishedAt(LocalDateTime.now(clock));
+        checkpoint = checkpointRepository.save(checkpoint);
+        log.info("Orphan sweep finished: {} objects scanned, {} orphans {}, {} within grace period",
+                checkpoint.getProcessed(), checkpoint.getSucceeded(),
+                settings.isDryRun() ? "found" : "deleted", checkpoint.getSkipped());
+        return checkpoint;
+    }
+
+    private JobCheckpoint sweepPrefix(JobCheckpoint checkpoint, String prefix, String startAfter, Instant cutoff)
+            throws IOException {
+        FileNameCursor fileNames = new FileNameCursor(prefix, startAfter);
+        String after = startAfter;
+        while (true) {
+            List<StoredObject> page = photoStorage.list(prefix, after, settings.getPageSize());
+            if (page.isEmpty()) {
+                return checkpoint;
+            }
+
+            List<String> orphans = new ArrayList<>();
+            long recent = 0;
+            for (StoredObject object : page) {
+                if (!PhotoService.UPLOAD_KEY_PREFIX.matcher(object.key()).find()) {
+                    continue;
+                }
+                if (!fileNames.skipTo(object.key())) {
+                    if (object.lastModified().isBefore(cutoff)) {
+                        orphans.add(object.key());
+                    } else {
+                        recent++;
+                    }
+                }
+            }
+            long deleted = delete(orphans);
+
+            after = page.get(page.size() - 1).key();
+            checkpoint.setCursor(after);
+            checkpoint.setProcessed(checkpoint.getProcessed() + page.size());
+            checkpoint.setSucceeded(checkpoint.getSucceeded() + deleted);
+            checkpoint.setSkipped(checkpoint.getSkipped() + recent);
+            checkpoint.setUpdatedAt(LocalDateTime.now(clock));
+            checkpoint = checkpointRepository.save(checkpoint);
+        }
+    }
+
+    private long delete(List<String> orphans) throws IOException {
+        long deleted = 0;
+        for (int from = 0; from < orphans.size(); from += settings.getDeleteBatchSize()) {
+            List<String> batch = new ArrayList<>(
+                    orphans.subList(from, Math.min(from + settings.getDeleteBatchSize(), orphans.size())));
+            // A row may have been inserted for one of these keys since its page was read
+            Set<String> referenced = new HashSet<>(photoRepository.findExistingFileNames(batch));
+            batch.removeIf(referenced::contains);
+            List<String> imported = PhotoImportService.importedPrefixes(
+                    checkpointRepository.findByJobNameStartingWith(PhotoImportService.JOB_PREFIX));
+            batch.removeIf(key -> imported.stream().anyMatch(key::startsWith));
+            if (batch.isEmpty()) {
+                continue;
+            }
+            if (settings.isDryRun()) {
+                log.info("Dry run: {} orphaned objects, first {}", batch.size(), batch.get(0));
+            } else {
+                photoStorage.deleteAll(batch);
+            }
+            deleted += batch.size();
+        }
+        return deleted;
+    }
+
+    /**
+     * Pages through {@code photos.file_name} in key order, one side of the merge-join.
+     */
+    private class FileNameCursor {
+        private final String prefix;
+        private List<String> page = List.of();
+        private int position;
+        private String after;
+        private boolean exhausted;
+
+        FileNameCursor(String prefix, String startAfter) {
+            this.prefix = prefix;
+            this.after = startAfter;
+        }
+
+        /**
+         * Advance past every file name ordered before {@code key}.
+         *
+         * @return whether a photo row refers to {@code key}
+         */
+        boolean skipTo(String key) {
+            String current;
+            while ((current = peek()) != null && PhotoStorage.KEY_ORDER.compare(current, key) < 0) {
+                position++;
+            }
+            return key.equals(current);
+        }
+
+        private String peek() {
+            if (position == page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = photoRepository.findFileNamesAfter(prefix, after, settings.getPageSize());
+                position = 0;
+                if (page.isEmpty()) {
+                    exhausted = true;
+                    return null;
+                }
+                after = page.get(page.size() - 1);
+            }
+            return page.get(position);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.ratelimit.TokenBucket;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoImportRepository;
+import com.example.photo_album.repository.PhotoImportRepository.ImportedPhoto;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.storage.PhotoStorage;
+import com.example.photo_album.storage.StoredObject;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registers objects that are already in storage under a key prefix as a user's photos, for onboarding an
+ * existing archive without uploading it again. With local storage the prefix is a directory under
+ * {@code storage.local.root-dir}.
+ * <p>
+ * The prefix is listed a batch at a time in key order. Image objects that no photo refers to yet are
+ * inserted in place, keyed by their storage key, with content type, size and date taken from the listing
+ * alone, so no object is read. Each batch is checked for registered keys and inserted with one JDBC batch
+ * statement in the same transaction that advances the import's checkpoint, under a lock shared by all
+ * imports, so an interrupted import resumes after its last batch and a repeated or overlapping batch skips
+ * what is already registered. Imports run one at a time, paced by a token bucket.
+ * <p>
+ * Imported photos are left PENDING analysis and the label backfill, started when an import finishes,
+ * analyzes them at its own Rekognition budget. In the checkpoint, {@code processed} counts listed objects,
+ * {@code succeeded} imported photos and {@code skipped} objects that are not images or already registered.
+ */
+@Service
+@Slf4j
+public class PhotoImportService {
+    static final String JOB_PREFIX = "photo-import:";
+    private static final int MAX_PREFIX_LENGTH = 200;
+    // photos.file_name and photos.url
+    private static final int MAX_COLUMN_LENGTH = 255;
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("png", "image/png"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("heic", "image/heic"),
+            Map.entry("heif", "image/heif"),
+            Map.entry("avif", "image/avif"),
+            Map.entry("tif", "image/tiff"),
+            Map.entry("tiff", "image/tiff"),
+            Map.entry("bmp", "image/bmp"));
+
+    private final PhotoStorage photoStorage;
+    private final PhotoRepository photoRepository;
+    private final PhotoImportRepository photoImportRepository;
+    private final UserRepository userRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final LabelBackfillService labelBackfillService;
+    private final SecondLevelCacheInvalidator cacheInvalidator;
+    private final TransactionOperations transactionOperations;
+    private final StorageProperties.BulkImport settings;
+    private final TokenBucket objectBudget;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    // Bumped by stop(), so imports queued before it give up
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("photo-import").daemon().factory());
+
+    @Autowired
+    public PhotoImportService(
+            PhotoStorage photoStorage,
+            PhotoRepository photoRepository,
+            PhotoImportRepository photoImportRepository,
+            UserRepository userRepository,
+            JobCheckpointRepository checkpointRepository,
+            LabelBackfillService labelBackfillService,
+            SecondLevelCacheInvalidator cacheInvalidator,
+            TransactionOperations transactionOperations,
+            StorageProperties storageProperties
+    ) {
+        this.photoStorage = photoStorage;
+        this.photoRepository = photoRepository;
+        this.photoImportRepository = photoImportRepository;
+        this.userRepository = userRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.labelBackfillService = labelBackfillService;
+        this.cacheInvalidator = cacheInvalidator;
+        this.transactionOperations = transactionOperations;
+        this.settings = storageProperties.getBulkImport();
+        // A one-second burst, as for the label backfill's request budget
+        this.objectBudget = new TokenBucket(
+                Math.max(1, (long) settings.getMaxObjectsPerSecond()), settings.getMaxObjectsPerSecond());
+    }
+
+    /**
+     * Queue the import of every object under {@code prefix} as the user's photos, continuing an
+     * unfinished import of the same prefix.
+     *
+     * @return false if that import is already queued or running
+     * @throws IllegalArgumentException if the user does not exist or the prefix is not a valid key prefix
+     */
+    public boolean requestImport(String userId, String prefix) {
+        String normalized = normalizePrefix(prefix);
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("Unknown user " + userId);
+        }
+        String jobName = JOB_PREFIX + userId + ":" + normalized;
+        if (!inProgress.add(jobName)) {
+            return false;
+        }
+        if (checkpointRepository.findById(jobName).filter(checkpoint -> !checkpoint.isFinished()).isEmpty()) {
+            checkpointRepository.save(JobCheckpoint.builder()
+                    .jobName(jobName)
+                    .cursor("")
+                    .startedAt(LocalDateTime.now())
+                    .build());
+        }
+        long queuedIn = generation.get();
+        executor.execute(() -> {
+            try {
+                if (generation.get() == queuedIn) {
+                    importPrefix(userId, normalized);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Importing {} for user {} failed, it will be resumed on the next start", normalized, userId, e);
+            } finally {
+                inProgress.remove(jobName);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stop the running import and drop the queued ones. Their checkpoints are kept, so requesting them
+     * again or restarting the application continues them after their last saved batch.
+     */
+    public void stop() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Checkpoints of all imports, finished ones included.
+     */
+    public List<JobCheckpoint> getImports() {
+        return checkpointRepository.findByJobNameStartingWith(JOB_PREFIX);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedImports() {
+        if (!settings.isResumeOnStartup()) {
+            return;
+        }
+        for (JobCheckpoint checkpoint : checkpointRepository.findByJobNameStartingWithAndFinishedAtIsNull(JOB_PREFIX)) {
+            String[] target = checkpoint.getJobName().substring(JOB_PREFIX.length()).split(":", 2);
+            log.info("Resuming import of {} for user {} after {}", target[1], target[0], checkpoint.getCursor());
+            try {
+                requestImport(target[0], target[1]);
+            } catch (IllegalArgumentException e) {
+                // The user was deleted since; close the import so it is not retried on every start
+                log.warn("Abandoning import of {} for user {}: {}", target[1], target[0], e.getMessage());
+                checkpoint.setFinishedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            } catch (RuntimeException e) {
+                log.error("Could not resume import of {} for user {}, it will be retried on the next start",
+                        target[1], target[0], e);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Prefix of the checkpoint names of the user's imports.
+     */
+    static String jobPrefixOf(String userId) {
+        return JOB_PREFIX + userId + ":";
+    }
+
+    /**
+     * Key prefixes of all imports, finished or not. Objects under them belong to the imported archive even
+     * when no photo refers to them.
+     */
+    public static List<String> importedPrefixes(List<JobCheckpoint> checkpoints) {
+        return checkpoints.stream()
+                .map(checkpoint -> checkpoint.getJobName().substring(JOB_PREFIX.length()).split(":", 2)[1])
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Run the import synchronously, until the prefix is exhausted or {@link #stop()} is called.
+     */
+    void importPrefix(String userId, String prefix) throws IOException {
+        String jobName = JOB_PREFIX + userId + ":" + prefix;
+        long runningIn = generation.get();
+        JobCheckpoint checkpoint = checkpointRepository.findById(jobName).orElseThrow();
+        while (!checkpoint.isFinished()) {
+            if (generation.get() != runningIn) {
+                log.info("Import of {} for user {} stopped after {}", prefix, userId, checkpoint.getCursor());
+                return;
+            }
+            List<StoredObject> page = photoStorage.list(prefix, checkpoint.getCursor(), settings.getBatchSize());
+            if (page.isEmpty()) {
+                checkpoint.setFinishedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+                log.info("Import of {} for user {} finished: {} objects listed, {} photos imported, {} skipped",
+                        prefix, userId, checkpoint.getProcessed(), checkpoint.getSucceeded(), checkpoint.getSkipped());
+                break;
+            }
+            awaitBudget(page.size());
+            checkpoint = importBatch(checkpoint, userId, page);
+        }
+        if (settings.isAnalyzeImportedPhotos() && !labelBackfillService.start()) {
+            log.info("Label backfill already running; photos it has passed are analyzed by its next run");
+        }
+    }
+
+    private JobCheckpoint importBatch(JobCheckpoint checkpoint, String userId, List<StoredObject> page) {
+        Map<String, ImportedPhoto> candidates = new LinkedHashMap<>();
+        for (StoredObject object : page) {
+            Optional<String> contentType = contentTypeOf(object.key());
+            String url = photoStorage.getUrl(object.key());
+            // Other objects stay in storage untouched, counted as skipped
+            if (contentType.isPresent() && object.key().length() <= MAX_COLUMN_LENGTH && url.length() <= MAX_COLUMN_LENGTH) {
+                candidates.put(object.key(), new ImportedPhoto(UUID.randomUUID().toString(), object.key(),
+                        contentType.get(), object.size(), url,
+                        LocalDateTime.ofInstant(object.lastModified(), ZoneId.systemDefault())));
+            }
+        }
+        return transactionOperations.execute(status -> {
+            // Registered by an earlier attempt at this batch, or by another import of an overlapping prefix
+            if (!candidates.isEmpty()) {
+                photoImportRepository.lockImports();
+                photoRepository.findExistingFileNames(candidates.keySet()).forEach(candidates::remove);
+            }
+            List<ImportedPhoto> photos = List.copyOf(candidates.values());
+            photoImportRepository.insertAll(userId, photos);
+            if (!photos.isEmpty()) {
+                cacheInvalidator.evictPhotoListings(userId);
+            }
+            checkpoint.setCursor(page.get(page.size() - 1).key());
+            checkpoint.setProcessed(checkpoint.getProcessed() + page.size());
+            checkpoint.setSucceeded(checkpoint.getSucceeded() + photos.size());
+            checkpoint.setSkipped(checkpoint.getSkipped() + page.size() - photos.size());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            return checkpointRepository.save(checkpoint);
+        });
+    }
+
+    private void awaitBudget(int objects) {
+        long wait;
+        try {
+            while ((wait = objectBudget.tryConsume(objects)) > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pacing the import", e);
+        }
+    }
+
+    static Optional<String> contentTypeOf(String key) {
+        int dot = key.lastIndexOf('.');
+        if (dot < 0 || dot < key.lastIndexOf('/')) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(CONTENT_TYPES.get(key.substring(dot + 1).toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * A relative prefix without parent segments, ending with '/' so it only matches whole directories.
+     */
+    static String normalizePrefix(String prefix) {
+        if (prefix == null || prefix.isBlank() || prefix.startsWith("/") || prefix.contains("\\")
+                || prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new IllegalArgumentException("Invalid import prefix: " + prefix);
+        }
+        String normalized = prefix.endsWith("/") ? prefix : prefix + "/";
+        for (String segment : normalized.substring(0, normalized.length() - 1).split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Invalid import prefix: " + prefix);
+            }
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoPartitioningRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves existing photos, tags and labels into the tables hash-partitioned by user id, online.
+ * <p>
+ * Photos are copied in id-ordered chunks, each in its own short transaction together with the checkpoint,
+ * with a pause between chunks to leave I/O for regular traffic; changes made meanwhile are copied by the
+ * migration's triggers. When the last chunk is done the partitioned tables are swapped in under a short
+ * exclusive lock, retried if it can't be had within the lock timeout. An interrupted run resumes on startup.
+ */
+@Service
+@Slf4j
+public class PhotoPartitioningService {
+    static final String JOB_NAME = "photo-partitioning";
+
+    private final PhotoPartitioningRepository partitioningRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionOperations transactionOperations;
+    private final int chunkSize;
+    private final Duration pause;
+    private final Duration cutoverLockTimeout;
+    private final int cutoverAttempts;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name(JOB_NAME).daemon().factory());
+
+    public PhotoPartitioningService(
+            PhotoPartitioningRepository partitioningRepository,
+            JobCheckpointRepository checkpointRepository,
+            TransactionOperations transactionOperations,
+            @Value("${partitioning.chunk-size:1000}") int chunkSize,
+            @Value("${partitioning.pause:100ms}") Duration pause,
+            @Value("${partitioning.cutover-lock-timeout:2s}") Duration cutoverLockTimeout,
+            @Value("${partitioning.cutover-attempts:30}") int cutoverAttempts
+    ) {
+        this.partitioningRepository = partitioningRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionOperations = transactionOperations;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.cutoverLockTimeout = cutoverLockTimeout;
+        this.cutoverAttempts = cutoverAttempts;
+    }
+
+    /**
+     * Start copying in the background, continuing an unfinished run.
+     *
+     * @return false if a run is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                migrate();
+            } catch (InterruptedException e) {
+                log.info("Photo partitioning stopped");
+            } catch (RuntimeException e) {
+                log.error("Photo partitioning failed, it will be resumed on the next start", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Optional<JobCheckpoint> getProgress() {
+        return checkpointRepository.findById(JOB_NAME);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        checkpointRepository.findById(JOB_NAME)
+                .filter(checkpoint -> !checkpoint.isFinished())
+                .ifPresent(checkpoint -> {
+                    log.info("Resuming photo partitioning after photo {}", checkpoint.getCursor());
+                    start();
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run the copy and the cutover synchronously. In the checkpoint, {@code processed} counts copied photos
+     * and {@code failed} chunk or cutover attempts that lost a lock and were retried.
+     */
+    void migrate() throws InterruptedException {
+        JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .filter(existing -> !existing.isFinished())
+                .orElseGet(() -> JobCheckpoint.builder()
+                        .jobName(JOB_NAME)
+                        .cursor("")
+                        .startedAt(LocalDateTime.now())
+                        .build());
+        if (!partitioningRepository.isPending()) {
+            log.info("Photos are already partitioned");
+            finish(checkpoint);
+            return;
+        }
+
+        while (true) {
+            JobCheckpoint current = checkpoint;
+            try {
+                JobCheckpoint saved = transactionOperations.execute(status -> copyChunk(current));
+                if (saved == null) {
+                    break;
+                }
+                checkpoint = saved;
+            } catch (ConcurrencyFailureException e) {
+                // Deadlocked with a concurrent bulk change of the same photos; the chunk is simply copied again
+                log.warn("Copying photos after {} failed, retrying: {}", current.getCursor(), e.getMessage());
+                current.setFailed(current.getFailed() + 1);
+            }
+            Thread.sleep(pause.toMillis());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionOperations.executeWithoutResult(status -> partitioningRepository.cutover(cutoverLockTimeout));
+                break;
+            } catch (ConcurrencyFailureException e) {
+                checkpoint.setFailed(checkpoint.getFailed() + 1);
+                if (attempt == cutoverAttempts) {
+                    checkpointRepository.save(checkpoint);
+                    throw e;
+                }
+                log.info("Partitioning cutover could not lock the photo tables within {}, retrying", cutoverLockTimeout);
+                Thread.sleep(pause.toMillis());
+            }
+        }
+        finish(checkpoint);
+        log.info("Photos are partitioned by user after copying {} photos; photos_legacy, photo_tags_legacy and "
+                + "photo_labels_legacy can be dropped once verified", checkpoint.getProcessed());
+    }
+
+    /**
+     * @return the updated checkpoint, or null if there was nothing left to copy
+     */
+    private JobCheckpoint copyChunk(JobCheckpoint checkpoint) {
+        PhotoPartitioningRepository.Chunk chunk = partitioningRepository.copyChunk(checkpoint.getCursor(), chunkSize);
+        if (chunk.lastId() == null) {
+            return null;
+        }
+        checkpoint.setCursor(chunk.lastId());
+        checkpoint.setProcessed(checkpoint.getProcessed() + chunk.copied());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private void finish(JobCheckpoint checkpoint) {
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        checkpoint.setUpdatedAt(checkpoint.getFinishedAt());
+        checkpointRepository.save(checkpoint);
+    }
+}
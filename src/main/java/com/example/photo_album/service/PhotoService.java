@@ -1,119 +1,141 @@
 // src/main/java/com/example/photo_album/service/PhotoService.java
 package com.example.photo_album.service;
 
-import com.amazonaws.services.rekognition.AmazonRekognition;
-import com.amazonaws.services.rekognition.model.*;
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
 import com.example.photo_album.model.Photo;
 import com.example.photo_album.model.User;
+import com.example.photo_album.outbox.OutboxPublisher;
+import com.example.photo_album.outbox.PhotoUploadedEvent;
 import com.example.photo_album.repository.PhotoRepository;
 import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.storage.PhotoStorage;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
 public class PhotoService {
-    private final AmazonS3 amazonS3;
-    private final String bucketName;
-    private final AmazonRekognition rekognition;
+    // Uploads are stored under "<uuid>_<original file name>"
+    static final Pattern UPLOAD_KEY_PREFIX = Pattern.compile("^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_");
+
+    private final PhotoStorage photoStorage;
+    private final PhotoUrlService photoUrlService;
+    private final ImageAnalysisService imageAnalysisService;
     private final PhotoRepository photoRepository;
     private final UserRepository userRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final SecondLevelCacheInvalidator cacheInvalidator;
+    private final TransactionOperations transactionOperations;
 
     public PhotoService(
-            AmazonS3 amazonS3,
-            AmazonRekognition rekognition,
+            PhotoStorage photoStorage,
+            PhotoUrlService photoUrlService,
+            ImageAnalysisService imageAnalysisService,
             PhotoRepository photoRepository,
             UserRepository userRepository,
-            @Value("${aws.s3.bucket}") String bucketName
+            OutboxPublisher outboxPublisher,
+            SecondLevelCacheInvalidator cacheInvalidator,
+            TransactionOperations transactionOperations
     ) {
-        this.amazonS3 = amazonS3;
-        this.bucketName = bucketName;
-        this.rekognition = rekognition;
+        this.photoStorage = photoStorage;
+        this.photoUrlService = photoUrlService;
+        this.imageAnalysisService = imageAnalysisService;
         this.photoRepository = photoRepository;
         this.userRepository = userRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.cacheInvalidator = cacheInvalidator;
+        this.transactionOperations = transactionOperations;
     }
 
     /**
      * Upload a photo without user association (for backward compatibility)
      */
-    @Transactional
     public Photo uploadPhoto(MultipartFile file) throws IOException {
-        String fileName = generateUniqueFileName(file.getOriginalFilename());
-
-        // Upload to S3
-        ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentType(file.getContentType());
-        metadata.setContentLength(file.getSize());
-        amazonS3.putObject(bucketName, fileName, file.getInputStream(), metadata);
-
-        // Analyze with Rekognition
-        Map<String, Float> labels = analyzeImage(fileName);
-
-        // Create and save Photo entity
-        Photo photo = Photo.builder()
-                .id(UUID.randomUUID().toString())
-                .fileName(fileName)
-                .contentType(file.getContentType())
-                .size(file.getSize())
-                .url(generateUrl(fileName))
-                .uploadDate(LocalDateTime.now())
-                .labels(labels)
-                .tags(new ArrayList<>()) // Initialize empty tags list
-                .build();
-
-        return photoRepository.save(photo);
+        return upload(file, null);
     }
 
     /**
      * Upload a photo associated with a user
      */
-    @Transactional
     public Photo uploadPhotoForUser(String userId, MultipartFile file) throws IOException {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NoSuchElementException("User not found"));
+        return upload(file, userId);
+    }
 
+    /**
+     * Store and analyze the photo without touching the database, then insert the row in a short
+     * transaction. No pooled connection is held while the slow storage and Rekognition calls run.
+     * If the insert fails the stored object is deleted again; objects left behind by a crash in
+     * between are removed by the orphan sweeper.
+     */
+    private Photo upload(MultipartFile file, String userId) throws IOException {
+        // Before the storage write and the paid analysis; in a read-write transaction so it sees a user
+        // the primary has just created
+        if (userId != null && !Boolean.TRUE.equals(transactionOperations.execute(status -> userRepository.existsById(userId)))) {
+            throw new NoSuchElementException("User not found");
+        }
         String fileName = generateUniqueFileName(file.getOriginalFilename());
 
-        // Upload to S3
-        ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentType(file.getContentType());
-        metadata.setContentLength(file.getSize());
-        amazonS3.putObject(bucketName, fileName, file.getInputStream(), metadata);
-
-        // Analyze with Rekognition
-        Map<String, Float> labels = analyzeImage(fileName);
-
-        // Create and save Photo entity
-        Photo photo = Photo.builder()
-                .id(UUID.randomUUID().toString())
-                .fileName(fileName)
-                .contentType(file.getContentType())
-                .size(file.getSize())
-                .url(generateUrl(fileName))
-                .uploadDate(LocalDateTime.now())
-                .labels(labels)
-                .tags(new ArrayList<>())
-                .user(user)
-                .build();
+        // Upload to storage
+        try (InputStream content = file.getInputStream()) {
+            photoStorage.put(fileName, content, file.getSize(), file.getContentType());
+        }
 
-        return photoRepository.save(photo);
+        Photo saved;
+        try {
+            // Analyze with Rekognition
+            ImageAnalysisService.Result analysis = imageAnalysisService.analyze(fileName, file.getSize());
+
+            // Create and save Photo entity
+            Photo photo = Photo.builder()
+                    .id(UUID.randomUUID().toString())
+                    .fileName(fileName)
+                    .contentType(file.getContentType())
+                    .size(file.getSize())
+                    .url(generateUrl(fileName))
+                    .uploadDate(LocalDateTime.now())
+                    .labels(analysis.labels())
+                    .analysisStatus(analysis.status())
+                    .analysisVersion(analysis.analysisVersion())
+                    .tags(new ArrayList<>()) // Initialize empty tags list
+                    .build();
+
+            saved = transactionOperations.execute(status -> {
+                if (userId != null) {
+                    photo.setUser(userRepository.findById(userId)
+                            .orElseThrow(() -> new NoSuchElementException("User not found")));
+                }
+                Photo inserted = photoRepository.save(photo);
+                publishUploaded(inserted);
+                if (userId != null) {
+                    cacheInvalidator.evictPhotoListings(userId);
+                }
+                return inserted;
+            });
+        } catch (IOException | RuntimeException e) {
+            deleteOrphan(fileName);
+            throw e;
+        }
+
+        photoUrlService.applyUrl(saved);
+        return saved;
     }
 
     @Transactional(readOnly = true)
     public Page<Photo> getAllPhotos(Pageable pageable) {
-        return photoRepository.findAll(pageable);
+        Page<Photo> photos = photoRepository.findAll(pageable);
+        photoUrlService.applyUrls(photos.getContent());
+        return photos;
     }
 
     /**
@@ -124,12 +146,16 @@ public class PhotoService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
-        return photoRepository.findByUser(user, pageable);
+        Page<Photo> photos = photoRepository.findByUser(user, pageable);
+        photoUrlService.applyUrls(photos.getContent());
+        return photos;
     }
 
     @Transactional(readOnly = true)
     public Optional<Photo> getPhotoById(String id) {
-        return photoRepository.findById(id);
+        Optional<Photo> photo = photoRepository.findById(id);
+        photo.ifPresent(photoUrlService::applyUrl);
+        return photo;
     }
 
     /**
@@ -140,15 +166,10 @@ public class PhotoService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
-        Optional<Photo> photoOpt = photoRepository.findById(photoId);
-
-        // Check if photo exists and belongs to the user
-        if (photoOpt.isPresent() && photoOpt.get().getUser() != null
-                && photoOpt.get().getUser().getId().equals(userId)) {
-            return photoOpt;
-        }
-
-        return Optional.empty();
+        // Looked up within the user's partition, so other users' photos are not found
+        Optional<Photo> photo = photoRepository.findByUserAndId(user, photoId);
+        photo.ifPresent(photoUrlService::applyUrl);
+        return photo;
     }
 
     @Transactional
@@ -160,6 +181,9 @@ public class PhotoService {
             photo.setTags(new ArrayList<>());
         }
         photo.getTags().add(tag);
+        if (photo.getUser() != null) {
+            cacheInvalidator.evictPhotoListings(photo.getUser().getId());
+        }
 
         return photoRepository.save(photo);
     }
@@ -177,13 +201,16 @@ public class PhotoService {
             photo.setTags(new ArrayList<>());
         }
         photo.getTags().add(tag);
+        cacheInvalidator.evictPhotoListings(userId);
 
         return photoRepository.save(photo);
     }
 
     @Transactional(readOnly = true)
     public List<Photo> findPhotosByTag(String tag) {
-        return photoRepository.findByTagsContaining(tag);
+        List<Photo> photos = photoRepository.findByTagsContaining(tag);
+        photoUrlService.applyUrls(photos);
+        return photos;
     }
 
     /**
@@ -194,12 +221,16 @@ public class PhotoService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
-        return photoRepository.findByUserAndTagsContaining(user, tag);
+        List<Photo> photos = photoRepository.findByUserAndTagsContaining(user, tag);
+        photoUrlService.applyUrls(photos);
+        return photos;
     }
 
     @Transactional(readOnly = true)
     public List<Photo> findPhotosByLabel(String label, Float minConfidence) {
-        return photoRepository.findByLabelAndMinConfidence(label, minConfidence);
+        List<Photo> photos = photoRepository.findByLabelAndMinConfidence(label, minConfidence);
+        photoUrlService.applyUrls(photos);
+        return photos;
     }
 
     /**
@@ -210,38 +241,33 @@ public class PhotoService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
-        return photoRepository.findByUserAndLabelAndMinConfidence(user, label, minConfidence);
+        List<Photo> photos = photoRepository.findByUserAndLabelAndMinConfidence(user, label, minConfidence);
+        photoUrlService.applyUrls(photos);
+        return photos;
     }
 
-    private Map<String, Float> analyzeImage(String fileName) {
+    private void deleteOrphan(String fileName) {
         try {
-            DetectLabelsRequest request = new DetectLabelsRequest()
-                    .withImage(new Image()
-                            .withS3Object(new S3Object()
-                                    .withBucket(bucketName)
-                                    .withName(fileName)))
-                    .withMaxLabels(10)
-                    .withMinConfidence(75F);
-
-            DetectLabelsResult result = rekognition.detectLabels(request);
-
-            return result.getLabels().stream()
-                    .collect(Collectors.toMap(
-                            Label::getName,
-                            Label::getConfidence
-                    ));
-
-        } catch (AmazonRekognitionException e) {
-            log.error("Error during Rekognition analysis", e);
-            return new HashMap<>();
+            photoStorage.delete(fileName);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete {} after a failed upload, leaving it to the orphan sweeper", fileName, e);
         }
     }
 
+    private void publishUploaded(Photo photo) {
+        outboxPublisher.publish(PhotoUploadedEvent.TYPE, photo.getId(), new PhotoUploadedEvent(
+                photo.getId(),
+                photo.getUser() != null ? photo.getUser().getId() : null,
+                photo.getFileName(),
+                photo.getContentType(),
+                photo.getSize()));
+    }
+
     private String generateUniqueFileName(String originalFileName) {
         return UUID.randomUUID().toString() + "_" + originalFileName;
     }
 
     private String generateUrl(String fileName) {
-        return amazonS3.getUrl(bucketName, fileName).toString();
+        return photoStorage.getUrl(fileName);
     }
 }
\ No newline at end of file
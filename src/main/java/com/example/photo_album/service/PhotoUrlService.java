@@ -0,0 +1,97 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.storage.PhotoStorage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues the URLs clients use to fetch photos. In presigned mode every URL is signed, and signed URLs
+ * are cached per (key, derivative) until shortly before their signature expires, so listing pages only
+ * pay for signing the first time a photo is shown. When the cache is full the least valuable URLs are
+ * evicted one by one rather than all at once.
+ */
+@Service
+public class PhotoUrlService {
+    public static final String ORIGINAL = "original";
+
+    private final PhotoStorage photoStorage;
+    private final StorageProperties.Urls properties;
+    private final Clock clock;
+    private final Cache<UrlKey, String> issuedUrls;
+
+    @Autowired
+    public PhotoUrlService(PhotoStorage photoStorage, StorageProperties storageProperties) {
+        this(photoStorage, storageProperties.getUrls(), Clock.systemUTC());
+    }
+
+    public PhotoUrlService(PhotoStorage photoStorage, StorageProperties.Urls properties, Clock clock) {
+        if (properties.getRefreshMargin().compareTo(properties.getSignatureTtl()) >= 0) {
+            throw new IllegalArgumentException("URL refresh margin must be shorter than the signature TTL");
+        }
+        this.photoStorage = photoStorage;
+        this.properties = properties;
+        this.clock = clock;
+        // Every URL is cached until it is due for re-signing, measured on the same clock that sets its expiry
+        this.issuedUrls = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxCachedUrls())
+                .expireAfterWrite(properties.getSignatureTtl().minus(properties.getRefreshMargin()))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .build();
+    }
+
+    /**
+     * Set the URL to serve on every photo of a page, signing only the ones not already cached.
+     */
+    public void applyUrls(Collection<Photo> photos) {
+        if (properties.getMode() != StorageProperties.UrlMode.PRESIGNED) {
+            return;
+        }
+        Instant now = clock.instant();
+        for (Photo photo : photos) {
+            photo.setSignedUrl(issue(new UrlKey(photo.getFileName(), ORIGINAL), now));
+        }
+    }
+
+    public void applyUrl(Photo photo) {
+        applyUrls(List.of(photo));
+    }
+
+    /**
+     * URL of the object or one of its derivatives (e.g. a thumbnail stored under {@code derivatives/<name>/}).
+     */
+    public String getUrl(String key, String derivative) {
+        if (properties.getMode() != StorageProperties.UrlMode.PRESIGNED) {
+            return photoStorage.getUrl(objectKey(key, derivative));
+        }
+        return issue(new UrlKey(key, derivative), clock.instant());
+    }
+
+    long cachedUrls() {
+        issuedUrls.cleanUp();
+        return issuedUrls.estimatedSize();
+    }
+
+    private String issue(UrlKey urlKey, Instant now) {
+        return issuedUrls.get(urlKey, key -> {
+            Instant expiresAt = now.plus(properties.getSignatureTtl());
+            return photoStorage.getSignedUrl(objectKey(key.key(), key.derivative()), expiresAt);
+        });
+    }
+
+    private static String objectKey(String key, String derivative) {
+        return ORIGINAL.equals(derivative) ? key : "derivatives/" + derivative + "/" + key;
+    }
+
+    private record UrlKey(String key, String derivative) {
+    }
+}
@@ -0,0 +1,504 @@
+package com.example.photo_album.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Node-local, size-bounded read-through disk cache in front of another {@link PhotoStorage}.
+ * <p>
+ * Cache files live in a {@value #SUBDIRECTORY} subdirectory of the configured directory, which the cache
+ * owns. Each is named after the object key and its ETag, next to a metadata file holding the key, so the
+ * index is rebuilt from them on startup and the cache stays warm across restarts. Objects are immutable once
+ * uploaded (every upload gets a fresh key), so a cached copy stays valid until it is overwritten or deleted
+ * through this storage, which drops it. The least recently used objects are evicted once the cache exceeds
+ * its size.
+ * <p>
+ * Concurrent misses for the same key share a single download from the backing storage. A ranged read that
+ * misses fetches only its range and leaves caching the whole object to a background fill. A fill that an
+ * overwrite or delete of its key overtakes is not admitted, since it may have fetched the old object.
+ */
+@Slf4j
+public class CachingPhotoStorage implements PhotoStorage, MeterBinder, AutoCloseable {
+    static final String SUBDIRECTORY = "photo-cache";
+    private static final String TEMP_PREFIX = ".fill-";
+    private static final String METADATA_SUFFIX = ".meta";
+    private static final Pattern DATA_FILE = Pattern.compile("[0-9a-f]{64}-[A-Za-z0-9-]*");
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final int FILL_THREADS = 2;
+    // Background fills waiting for a thread; ranged misses beyond this are served without caching
+    private static final int FILL_QUEUE = 64;
+
+    private final PhotoStorage delegate;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by itself.
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final Map<String, CompletableFuture<Optional<CacheEntry>>> inFlight = new ConcurrentHashMap<>();
+    // Bumped when a key with a fill in flight is invalidated and dropped when the fill finishes. Guarded by entries.
+    private final Map<String, Long> generations = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    private final ExecutorService fills = new ThreadPoolExecutor(FILL_THREADS, FILL_THREADS, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(FILL_QUEUE), Thread.ofPlatform().name("photo-cache-fill-", 0).daemon().factory());
+
+    public CachingPhotoStorage(PhotoStorage delegate, Path cacheDir, long maxBytes, long maxObjectBytes)
+            throws IOException {
+        this.delegate = delegate;
+        this.cacheDir = Files.createDirectories(cacheDir.resolve(SUBDIRECTORY)).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = Math.min(maxObjectBytes, maxBytes);
+        restoreIndex();
+    }
+
+    @Override
+    public void close() {
+        fills.shutdownNow();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        delegate.put(key, content, contentLength, contentType);
+        invalidate(key);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return read(key, 0, -1);
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        return read(key, offset, length);
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        CacheEntry entry = lookup(key);
+        return entry != null ? entry.object() : delegate.stat(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+        invalidate(key);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> keys) throws IOException {
+        delegate.deleteAll(keys);
+        keys.forEach(this::invalidate);
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix, String startAfter, int maxKeys) throws IOException {
+        return delegate.list(prefix, startAfter, maxKeys);
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return delegate.getUrl(key);
+    }
+
+    @Override
+    public String getSignedUrl(String key, Instant expiresAt) {
+        return delegate.getSignedUrl(key, expiresAt);
+    }
+
+    @Override
+    public Optional<String> getBucketName() {
+        return delegate.getBucketName();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("photo.storage.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Object reads served from the local disk cache")
+                .register(registry);
+        FunctionCounter.builder("photo.storage.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Object reads that had to fetch from the backing storage")
+                .register(registry);
+        FunctionCounter.builder("photo.storage.cache.bytes.saved", bytesSaved, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Bytes served from the cache instead of the backing storage")
+                .register(registry);
+        Gauge.builder("photo.storage.cache.hit.ratio", this, CachingPhotoStorage::hitRatio)
+                .register(registry);
+        Gauge.builder("photo.storage.cache.size", this, CachingPhotoStorage::cachedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public long cachedBytes() {
+        synchronized (entries) {
+            return cachedBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Read a range of the object, or all of it when {@code length} is negative.
+     */
+    private InputStream read(String key, long offset, long length) throws IOException {
+        CacheEntry entry = lookup(key);
+        if (entry != null) {
+            InputStream cached = openCached(entry, offset, length);
+            if (cached != null) {
+                hits.incrementAndGet();
+                bytesSaved.addAndGet(length < 0 ? entry.size() : length);
+                return cached;
+            }
+        }
+
+        if (length >= 0) {
+            // Downloading the whole object would delay the range by the rest of it
+            misses.incrementAndGet();
+            fillInBackground(key);
+            return delegate.open(key, offset, length);
+        }
+
+        CompletableFuture<Optional<CacheEntry>> fill = new CompletableFuture<>();
+        CompletableFuture<Optional<CacheEntry>> existing = inFlight.putIfAbsent(key, fill);
+        Optional<CacheEntry> filled;
+        if (existing != null) {
+            // Another request is already downloading this object; wait for it instead of fetching again
+            filled = await(existing);
+            if (filled.isPresent()) {
+                hits.incrementAndGet();
+                bytesSaved.addAndGet(filled.get().size());
+            }
+        } else {
+            misses.incrementAndGet();
+            try {
+                filled = download(key);
+                fill.complete(filled);
+            } catch (IOException | RuntimeException e) {
+                fill.completeExceptionally(e);
+                throw e;
+            } finally {
+                finishFill(key, fill);
+            }
+        }
+
+        if (filled.isPresent()) {
+            InputStream cached = openCached(filled.get(), 0, -1);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Too large to cache, or evicted again before it could be opened
+        return delegate.open(key);
+    }
+
+    private void fillInBackground(String key) {
+        CompletableFuture<Optional<CacheEntry>> fill = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, fill) != null) {
+            return;
+        }
+        try {
+            fills.execute(() -> {
+                try {
+                    fill.complete(download(key));
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Could not cache {}", key, e);
+                    fill.completeExceptionally(e);
+                } finally {
+                    finishFill(key, fill);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finishFill(key, fill);
+            fill.complete(Optional.empty());
+        }
+    }
+
+    private void finishFill(String key, CompletableFuture<Optional<CacheEntry>> fill) {
+        synchronized (entries) {
+            inFlight.remove(key, fill);
+            generations.remove(key);
+        }
+    }
+
+    private Optional<CacheEntry> download(String key) throws IOException {
+        long generation;
+        synchronized (entries) {
+            generation = generations.getOrDefault(key, 0L);
+        }
+        StoredObject object = delegate.stat(key);
+        if (object.size() > maxObjectBytes) {
+            return Optional.empty();
+        }
+
+        Path temp = Files.createTempFile(cacheDir, TEMP_PREFIX, ".tmp");
+        Path metadataTemp = Files.createTempFile(cacheDir, TEMP_PREFIX, ".tmp");
+        try {
+            try (InputStream in = delegate.open(key);
+                 ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                }
+            }
+            Path target = cacheDir.resolve(fileNameFor(key, object.eTag()));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Written last: a data file without its metadata is discarded on startup
+            writeMetadata(metadataTemp, object);
+            Files.move(metadataTemp, metadataPath(target), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            CacheEntry entry = new CacheEntry(object, target, Files.size(target));
+            if (!admit(key, entry, generation)) {
+                deleteFiles(target);
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        } finally {
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(metadataTemp);
+        }
+    }
+
+    /**
+     * Open the cached file, or return null if it has been evicted in the meantime.
+     * An open file stays readable after eviction unlinks it.
+     */
+    private InputStream openCached(CacheEntry entry, long offset, long length) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(entry.path(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            channel.position(offset);
+            InputStream in = Channels.newInputStream(channel);
+            return length < 0 ? in : new BoundedInputStream(in, length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private CacheEntry lookup(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Add a filled entry, evicting the least recently used ones beyond the size limit.
+     *
+     * @return false, admitting nothing, if the key was invalidated since its fill read {@code generation}
+     */
+    private boolean admit(String key, CacheEntry entry, long generation) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (entries) {
+            if (generations.getOrDefault(key, 0L) != generation) {
+                return false;
+            }
+            CacheEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                cachedBytes -= previous.size();
+                if (!previous.path().equals(entry.path())) {
+                    evicted.add(previous.path());
+                }
+            }
+            cachedBytes += entry.size();
+
+            Iterator<Map.Entry<String, CacheEntry>> eldest = entries.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, CacheEntry> candidate = eldest.next();
+                if (candidate.getKey().equals(key)) {
+                    continue;
+                }
+                eldest.remove();
+                cachedBytes -= candidate.getValue().size();
+                evicted.add(candidate.getValue().path());
+            }
+        }
+        evicted.forEach(this::deleteFiles);
+        return true;
+    }
+
+    private void invalidate(String key) {
+        CacheEntry removed;
+        synchronized (entries) {
+            if (inFlight.containsKey(key)) {
+                generations.merge(key, 1L, Long::sum);
+            }
+            removed = entries.remove(key);
+            if (removed != null) {
+                cachedBytes -= removed.size();
+            }
+        }
+        if (removed != null) {
+            deleteFiles(removed.path());
+        }
+    }
+
+    private Optional<CacheEntry> await(CompletableFuture<Optional<CacheEntry>> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Rebuild the index from the files a previous run left, least recently filled first, and remove
+     * interrupted fills and files missing their other half.
+     */
+    private void restoreIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(cacheDir)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        List<CacheEntry> restored = new ArrayList<>();
+        Set<Path> restoredPaths = new HashSet<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.startsWith(TEMP_PREFIX)) {
+                deleteQuietly(file);
+            } else if (name.endsWith(METADATA_SUFFIX)) {
+                Path data = file.resolveSibling(name.substring(0, name.length() - METADATA_SUFFIX.length()));
+                Optional<CacheEntry> entry = readEntry(file, data);
+                if (entry.isPresent()) {
+                    restored.add(entry.get());
+                    restoredPaths.add(data);
+                } else {
+                    deleteFiles(data);
+                }
+            }
+        }
+        for (Path file : files) {
+            if (DATA_FILE.matcher(file.getFileName().toString()).matches() && !restoredPaths.contains(file)) {
+                deleteQuietly(file);
+            }
+        }
+
+        Map<Path, Long> filledAt = new HashMap<>();
+        for (CacheEntry entry : restored) {
+            filledAt.put(entry.path(), Files.getLastModifiedTime(entry.path()).toMillis());
+        }
+        restored.sort(Comparator.comparing(entry -> filledAt.get(entry.path())));
+        restored.forEach(entry -> admit(entry.object().key(), entry, 0));
+        if (!restored.isEmpty()) {
+            log.info("Restored {} cached objects ({} bytes) from {}", entries.size(), cachedBytes(), cacheDir);
+        }
+    }
+
+    private Optional<CacheEntry> readEntry(Path metadata, Path data) {
+        try (Reader reader = Files.newBufferedReader(metadata, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            StoredObject object = new StoredObject(
+                    properties.getProperty("key"),
+                    Long.parseLong(properties.getProperty("size")),
+                    Instant.ofEpochMilli(Long.parseLong(properties.getProperty("lastModified"))),
+                    properties.getProperty("eTag"));
+            if (object.key() == null || !Files.isRegularFile(data) || Files.size(data) != object.size()
+                    || !data.getFileName().toString().equals(fileNameFor(object.key(), object.eTag()))) {
+                return Optional.empty();
+            }
+            return Optional.of(new CacheEntry(object, data, object.size()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding unreadable cache entry {}", metadata, e);
+            return Optional.empty();
+        }
+    }
+
+    private static void writeMetadata(Path target, StoredObject object) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("key", object.key());
+        properties.setProperty("size", Long.toString(object.size()));
+        properties.setProperty("lastModified", Long.toString(object.lastModified().toEpochMilli()));
+        if (object.eTag() != null) {
+            properties.setProperty("eTag", object.eTag());
+        }
+        try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+    }
+
+    private static Path metadataPath(Path data) {
+        return data.resolveSibling(data.getFileName() + METADATA_SUFFIX);
+    }
+
+    private void deleteFiles(Path data) {
+        deleteQuietly(metadataPath(data));
+        deleteQuietly(data);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete cache file {}", path, e);
+        }
+    }
+
+    private static String fileNameFor(String key, String eTag) {
+        String tag = eTag == null ? "" : eTag.replaceAll("[^A-Za-z0-9-]", "");
+        return sha256(key) + "-" + tag;
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CacheEntry(StoredObject object, Path path, long size) {
+    }
+}
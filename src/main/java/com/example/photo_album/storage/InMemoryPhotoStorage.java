@@ -0,0 +1,78 @@
+package com.example.photo_album.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps objects on the heap. Intended for tests and benchmarks of the upload path.
+ */
+public class InMemoryPhotoStorage implements PhotoStorage {
+    private final Map<String, StoredBytes> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        objects.put(key, new StoredBytes(content.readAllBytes(), Instant.now()));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return new ByteArrayInputStream(get(key).bytes());
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        byte[] bytes = get(key).bytes();
+        return new ByteArrayInputStream(bytes, (int) offset, (int) Math.min(length, bytes.length - offset));
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        StoredBytes stored = get(key);
+        return new StoredObject(key, stored.bytes().length, stored.lastModified(),
+                Integer.toHexString(Arrays.hashCode(stored.bytes())));
+    }
+
+    @Override
+    public void delete(String key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix, String startAfter, int maxKeys) {
+        return objects.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .filter(entry -> startAfter == null || KEY_ORDER.compare(entry.getKey(), startAfter) > 0)
+                .sorted(Map.Entry.comparingByKey(KEY_ORDER))
+                .limit(maxKeys)
+                .map(entry -> new StoredObject(entry.getKey(), entry.getValue().bytes().length,
+                        entry.getValue().lastModified(), Integer.toHexString(Arrays.hashCode(entry.getValue().bytes()))))
+                .toList();
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return "memory://" + key;
+    }
+
+    public boolean contains(String key) {
+        return objects.containsKey(key);
+    }
+
+    private StoredBytes get(String key) throws FileNotFoundException {
+        StoredBytes stored = objects.get(key);
+        if (stored == null) {
+            throw new FileNotFoundException("No object with key " + key);
+        }
+        return stored;
+    }
+
+    private record StoredBytes(byte[] bytes, Instant lastModified) {
+    }
+}
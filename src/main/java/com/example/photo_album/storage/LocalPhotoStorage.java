@@ -0,0 +1,141 @@
+package com.example.photo_album.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores objects as files under a root directory. Uploads are written to a temporary file in the
+ * same directory and renamed into place atomically, so readers never see a partially written object.
+ */
+public class LocalPhotoStorage implements PhotoStorage {
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path rootDir;
+    private final String baseUrl;
+
+    public LocalPhotoStorage(Path rootDir, String baseUrl) throws IOException {
+        this.rootDir = Files.createDirectories(rootDir).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            try (ReadableByteChannel source = Channels.newChannel(content);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                }
+                out.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        String eTag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(modified);
+        return new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toInstant(), eTag);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /**
+     * Walks the whole directory tree for every page, which is fine for the development-sized
+     * trees this backend is meant for.
+     */
+    @Override
+    public List<StoredObject> list(String prefix, String startAfter, int maxKeys) throws IOException {
+        try (Stream<Path> files = Files.walk(rootDir)) {
+            List<String> keys = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith(".upload-"))
+                    .map(file -> rootDir.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .filter(key -> key.startsWith(prefix))
+                    .filter(key -> startAfter == null || KEY_ORDER.compare(key, startAfter) > 0)
+                    .sorted(KEY_ORDER)
+                    .limit(maxKeys)
+                    .toList();
+            List<StoredObject> page = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                try {
+                    page.add(stat(key));
+                } catch (NoSuchFileException e) {
+                    // Deleted since the walk
+                }
+            }
+            return page;
+        }
+    }
+
+    @Override
+    public String getUrl(String key) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            return resolve(key).toUri().toString();
+        }
+        return baseUrl.endsWith("/") ? baseUrl + key : baseUrl + "/" + key;
+    }
+
+    @Override
+    public Optional<Path> getLocalPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    /**
+     * Path of the file holding the object. Keys that would escape the root directory are rejected.
+     */
+    public Path resolve(String key) {
+        Path path = rootDir.resolve(key).normalize();
+        if (!path.startsWith(rootDir) || path.equals(rootDir)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    public Path getRootDir() {
+        return rootDir;
+    }
+}
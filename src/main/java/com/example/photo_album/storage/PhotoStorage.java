@@ -0,0 +1,91 @@
+package com.example.photo_album.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Object store holding the photo bytes, addressed by key (the photo's {@code fileName}).
+ * The backend is chosen with {@code storage.type}: {@code s3}, {@code local} or {@code memory}.
+ */
+public interface PhotoStorage {
+
+    /**
+     * Order in which {@link #list} returns keys: by Unicode code point, which is the UTF-8 byte order
+     * S3 lists in and the order of PostgreSQL's {@code "C"} collation.
+     */
+    Comparator<String> KEY_ORDER = (a, b) -> Arrays.compare(a.codePoints().toArray(), b.codePoints().toArray());
+
+    /**
+     * Store an object, replacing any existing object with the same key.
+     */
+    void put(String key, InputStream content, long contentLength, String contentType) throws IOException;
+
+    /**
+     * Open the object for reading. The caller must close the stream.
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Open {@code length} bytes of the object starting at {@code offset}. The caller must close the stream.
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /**
+     * Size, modification time and ETag of the object.
+     */
+    StoredObject stat(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Delete several objects, in as few requests as the backend allows.
+     */
+    default void deleteAll(Collection<String> keys) throws IOException {
+        for (String key : keys) {
+            delete(key);
+        }
+    }
+
+    /**
+     * One page of objects whose key starts with {@code prefix} and sorts after {@code startAfter},
+     * in {@link #KEY_ORDER}. Fewer than {@code maxKeys} objects may be returned even when more exist;
+     * an empty page means the listing is complete.
+     */
+    List<StoredObject> list(String prefix, String startAfter, int maxKeys) throws IOException;
+
+    /**
+     * URL clients can use to fetch the object.
+     */
+    String getUrl(String key);
+
+    /**
+     * Time-limited URL that grants read access to the object until {@code expiresAt}.
+     * Backends without access control return the plain URL.
+     */
+    default String getSignedUrl(String key, Instant expiresAt) {
+        return getUrl(key);
+    }
+
+    /**
+     * The S3 bucket holding the objects, for services such as Rekognition that can read
+     * straight from S3. Empty for backends that are not S3.
+     */
+    default Optional<String> getBucketName() {
+        return Optional.empty();
+    }
+
+    /**
+     * The file holding the object, for backends that keep objects on the local filesystem.
+     * Lets callers hand the file to the OS for zero-copy transfers.
+     */
+    default Optional<Path> getLocalPath(String key) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.photo_album.storage;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public class S3PhotoStorage implements PhotoStorage {
+    // Limit of both ListObjectsV2 pages and multi-object deletes
+    private static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    private final AmazonS3 amazonS3;
+    private final String bucketName;
+
+    public S3PhotoStorage(AmazonS3 amazonS3, String bucketName) {
+        this.amazonS3 = amazonS3;
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setContentLength(contentLength);
+        amazonS3.putObject(bucketName, key, content, metadata);
+    }
+
+    @Override
+    public InputStream open(String key) {
+        return amazonS3.getObject(bucketName, key).getObjectContent();
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) {
+        GetObjectRequest request = new GetObjectRequest(bucketName, key)
+                .withRange(offset, offset + length - 1);
+        return amazonS3.getObject(request).getObjectContent();
+    }
+
+    @Override
+    public StoredObject stat(String key) {
+        ObjectMetadata metadata = amazonS3.getObjectMetadata(bucketName, key);
+        return new StoredObject(key, metadata.getContentLength(),
+                metadata.getLastModified().toInstant(), metadata.getETag());
+    }
+
+    @Override
+    public void delete(String key) {
+        amazonS3.deleteObject(bucketName, key);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> keys) {
+        List<String> remaining = new ArrayList<>(keys);
+        for (int from = 0; from < remaining.size(); from += MAX_KEYS_PER_REQUEST) {
+            List<DeleteObjectsRequest.KeyVersion> batch = remaining
+                    .subList(from, Math.min(from + MAX_KEYS_PER_REQUEST, remaining.size()))
+                    .stream()
+                    .map(DeleteObjectsRequest.KeyVersion::new)
+                    .toList();
+            amazonS3.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(batch).withQuiet(true));
+        }
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix, String startAfter, int maxKeys) {
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(prefix)
+                .withStartAfter(startAfter)
+                .withMaxKeys(Math.min(maxKeys, MAX_KEYS_PER_REQUEST));
+        return amazonS3.listObjectsV2(request).getObjectSummaries().stream()
+                .map(summary -> new StoredObject(summary.getKey(), summary.getSize(),
+                        summary.getLastModified().toInstant(), summary.getETag()))
+                .toList();
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return amazonS3.getUrl(bucketName, key).toString();
+    }
+
+    @Override
+    public String getSignedUrl(String key, Instant expiresAt) {
+        // Presigning is computed locally, no request is sent to S3
+        return amazonS3.generatePresignedUrl(bucketName, key, Date.from(expiresAt), HttpMethod.GET).toString();
+    }
+
+    @Override
+    public Optional<String> getBucketName() {
+        return Optional.of(bucketName);
+    }
+}
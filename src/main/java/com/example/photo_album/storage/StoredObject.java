@@ -0,0 +1,9 @@
+package com.example.photo_album.storage;
+
+import java.time.Instant;
+
+/**
+ * Metadata of an object held in {@link PhotoStorage}.
+ */
+public record StoredObject(String key, long size, Instant lastModified, String eTag) {
+}
@@ -0,0 +1,77 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE users (
+    id         VARCHAR(255) NOT NULL PRIMARY KEY,
+    version    BIGINT,
+    username   VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE photos (
+    id               VARCHAR(255) NOT NULL PRIMARY KEY,
+    file_name        VARCHAR(255) NOT NULL,
+    content_type     VARCHAR(255) NOT NULL,
+    size             BIGINT       NOT NULL,
+    url              VARCHAR(255) NOT NULL,
+    upload_date      TIMESTAMP(6) NOT NULL,
+    analysis_status  VARCHAR(255) CHECK (analysis_status IN ('COMPLETED', 'PENDING', 'FAILED')),
+    analysis_version INTEGER,
+    user_id          VARCHAR(255) NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE photo_tags (
+    photo_id VARCHAR(255) NOT NULL REFERENCES photos (id),
+    tag      VARCHAR(255)
+);
+
+CREATE TABLE photo_labels (
+    photo_id   VARCHAR(255) NOT NULL REFERENCES photos (id),
+    label_name VARCHAR(255) NOT NULL,
+    confidence REAL,
+    PRIMARY KEY (photo_id, label_name)
+);
+
+CREATE TABLE albums (
+    id          VARCHAR(255) NOT NULL PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP(6) NOT NULL,
+    user_id     VARCHAR(255) NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE album_photos (
+    album_id VARCHAR(255) NOT NULL REFERENCES albums (id),
+    photo_id VARCHAR(255) NOT NULL REFERENCES photos (id)
+);
+
+CREATE TABLE job_checkpoints (
+    job_name    VARCHAR(255) NOT NULL PRIMARY KEY,
+    cursor      VARCHAR(255),
+    processed   BIGINT       NOT NULL,
+    succeeded   BIGINT       NOT NULL,
+    failed      BIGINT       NOT NULL,
+    skipped     BIGINT       NOT NULL,
+    started_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6),
+    finished_at TIMESTAMP(6)
+);
+
+CREATE SEQUENCE outbox_events_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE outbox_events (
+    id           BIGINT       NOT NULL PRIMARY KEY,
+    event_type   VARCHAR(255) NOT NULL,
+    aggregate_id VARCHAR(255) NOT NULL,
+    payload      TEXT         NOT NULL,
+    created_at   TIMESTAMP(6) NOT NULL,
+    available_at TIMESTAMP(6) NOT NULL,
+    attempts     INTEGER      NOT NULL,
+    last_error   TEXT
+);
+
+CREATE INDEX idx_outbox_events_available_at ON outbox_events (available_at);
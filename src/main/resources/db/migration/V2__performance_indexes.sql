@@ -0,0 +1,34 @@
+-- flyway:executeInTransaction=false
+-- Secondary indexes for the repository queries; ddl-auto only ever created primary keys and
+-- unique constraints, so every lookup below was a sequential scan.
+-- Built concurrently, outside a transaction, so the live tables keep taking writes while they build.
+-- A build that fails leaves an INVALID index behind; drop it before running the migration again.
+
+-- PhotoRepository.findByUser: a user's photos, paged and sorted by upload date (either direction);
+-- also serves the other per-user lookups and account deletion
+CREATE INDEX CONCURRENTLY idx_photos_user_upload_date ON photos (user_id, upload_date);
+
+-- PhotoRepository.findByContentType
+CREATE INDEX CONCURRENTLY idx_photos_content_type ON photos (content_type);
+
+-- PhotoRepository.findFileNamesAfter/findExistingFileNames: keyset scan in byte order for the orphan sweeper
+CREATE INDEX CONCURRENTLY idx_photos_file_name_c ON photos (file_name COLLATE "C");
+
+-- PhotoRepository.findByTagsContaining/findByUserAndTagsContaining: photo ids by tag, index-only
+CREATE INDEX CONCURRENTLY idx_photo_tags_tag_photo ON photo_tags (tag, photo_id);
+
+-- Loading, replacing and deleting a photo's tags
+CREATE INDEX CONCURRENTLY idx_photo_tags_photo_id ON photo_tags (photo_id);
+
+-- PhotoRepository.findByLabelAndMinConfidence/findByUserAndLabelAndMinConfidence:
+-- equality on the label, range on the confidence, photo id covered
+CREATE INDEX CONCURRENTLY idx_photo_labels_label_confidence ON photo_labels (label_name, confidence, photo_id);
+
+-- AlbumRepository.findByUser/findByUserAndNameContainingIgnoreCase
+CREATE INDEX CONCURRENTLY idx_albums_user_id ON albums (user_id);
+
+-- Loading an album's photos, index-only
+CREATE INDEX CONCURRENTLY idx_album_photos_album_photo ON album_photos (album_id, photo_id);
+
+-- Removing a photo's album links (photo and account deletion)
+CREATE INDEX CONCURRENTLY idx_album_photos_photo_id ON album_photos (photo_id);
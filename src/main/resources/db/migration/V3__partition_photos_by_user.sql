@@ -0,0 +1,262 @@
+-- Hash-partitions photos, photo_tags and photo_labels by user_id, so every per-user query touches one
+-- partition of each table and vacuum and index maintenance work on partition-sized pieces.
+--
+-- The partitioned tables are created alongside the existing ones and filled online:
+--   1. photo_tags and photo_labels are renamed to *_legacy and replaced by views that add user_id from
+--      photos, so the application's (photo_id, user_id) collection keys work before the data is moved.
+--   2. Statement-level triggers on the legacy tables copy every change to the partitioned tables.
+--   3. PhotoPartitioningService copies the existing photos in id-ordered chunks with
+--      photo_partitioning_copy_chunk() and finally calls photo_partitioning_cutover(), which swaps the
+--      partitioned tables in under the original names and keeps the old ones as *_legacy.
+-- An empty database is switched over at the end of this migration.
+
+-- The partitioned tables take over the index names
+ALTER INDEX idx_photos_user_upload_date RENAME TO idx_photos_legacy_user_upload_date;
+ALTER INDEX idx_photos_content_type RENAME TO idx_photos_legacy_content_type;
+ALTER INDEX idx_photos_file_name_c RENAME TO idx_photos_legacy_file_name_c;
+ALTER INDEX idx_photo_tags_tag_photo RENAME TO idx_photo_tags_legacy_tag_photo;
+ALTER INDEX idx_photo_tags_photo_id RENAME TO idx_photo_tags_legacy_photo_id;
+ALTER INDEX idx_photo_labels_label_confidence RENAME TO idx_photo_labels_legacy_label_confidence;
+
+CREATE TABLE photos_partitioned (
+    id               VARCHAR(255) NOT NULL,
+    file_name        VARCHAR(255) NOT NULL,
+    content_type     VARCHAR(255) NOT NULL,
+    size             BIGINT       NOT NULL,
+    url              VARCHAR(255) NOT NULL,
+    upload_date      TIMESTAMP(6) NOT NULL,
+    analysis_status  VARCHAR(255) CHECK (analysis_status IN ('COMPLETED', 'PENDING', 'FAILED')),
+    analysis_version INTEGER,
+    user_id          VARCHAR(255) NOT NULL REFERENCES users (id),
+    CONSTRAINT pk_photos PRIMARY KEY (user_id, id)
+) PARTITION BY HASH (user_id);
+
+CREATE TABLE photo_tags_partitioned (
+    photo_id VARCHAR(255) NOT NULL,
+    user_id  VARCHAR(255) NOT NULL,
+    tag      VARCHAR(255),
+    CONSTRAINT fk_photo_tags_photo FOREIGN KEY (user_id, photo_id) REFERENCES photos_partitioned (user_id, id)
+) PARTITION BY HASH (user_id);
+
+CREATE TABLE photo_labels_partitioned (
+    photo_id   VARCHAR(255) NOT NULL,
+    user_id    VARCHAR(255) NOT NULL,
+    label_name VARCHAR(255) NOT NULL,
+    confidence REAL,
+    CONSTRAINT pk_photo_labels PRIMARY KEY (user_id, photo_id, label_name),
+    CONSTRAINT fk_photo_labels_photo FOREIGN KEY (user_id, photo_id) REFERENCES photos_partitioned (user_id, id)
+) PARTITION BY HASH (user_id);
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE photos_p%s PARTITION OF photos_partitioned '
+                       'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', lpad(i::text, 2, '0'), i);
+        EXECUTE format('CREATE TABLE photo_tags_p%s PARTITION OF photo_tags_partitioned '
+                       'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', lpad(i::text, 2, '0'), i);
+        EXECUTE format('CREATE TABLE photo_labels_p%s PARTITION OF photo_labels_partitioned '
+                       'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', lpad(i::text, 2, '0'), i);
+    END LOOP;
+END $$;
+
+-- Entity lookups by id alone (findById, Hibernate updates) can't prune; this keeps them to one probe per partition
+CREATE INDEX idx_photos_id ON photos_partitioned (id);
+CREATE INDEX idx_photos_user_upload_date ON photos_partitioned (user_id, upload_date);
+CREATE INDEX idx_photos_content_type ON photos_partitioned (content_type);
+CREATE INDEX idx_photos_file_name_c ON photos_partitioned (file_name COLLATE "C");
+-- Collection loads and deletes by (photo_id, user_id)
+CREATE INDEX idx_photo_tags_user_photo ON photo_tags_partitioned (user_id, photo_id);
+-- Tag searches, across all users or within one
+CREATE INDEX idx_photo_tags_tag_user ON photo_tags_partitioned (tag, user_id, photo_id);
+-- Label searches, across all users or within one; equality on label and user, range on confidence
+CREATE INDEX idx_photo_labels_label_user_confidence ON photo_labels_partitioned (label_name, user_id, confidence);
+
+-- Step 1: the collection tables as the application sees them until the cutover
+ALTER TABLE photo_tags RENAME TO photo_tags_legacy;
+ALTER TABLE photo_labels RENAME TO photo_labels_legacy;
+
+CREATE VIEW photo_tags AS
+SELECT t.photo_id, p.user_id, t.tag
+FROM photo_tags_legacy t
+         JOIN photos p ON p.id = t.photo_id;
+
+CREATE VIEW photo_labels AS
+SELECT l.photo_id, p.user_id, l.label_name, l.confidence
+FROM photo_labels_legacy l
+         JOIN photos p ON p.id = l.photo_id;
+
+CREATE FUNCTION photo_tags_view_write() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO photo_tags_legacy (photo_id, tag) VALUES (NEW.photo_id, NEW.tag);
+        RETURN NEW;
+    END IF;
+    -- Tags are a bag; remove one matching row per deleted view row
+    DELETE FROM photo_tags_legacy
+    WHERE ctid = (SELECT ctid FROM photo_tags_legacy
+                  WHERE photo_id = OLD.photo_id AND tag IS NOT DISTINCT FROM OLD.tag LIMIT 1);
+    RETURN OLD;
+END $$;
+
+CREATE FUNCTION photo_labels_view_write() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO photo_labels_legacy (photo_id, label_name, confidence)
+        VALUES (NEW.photo_id, NEW.label_name, NEW.confidence);
+        RETURN NEW;
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE photo_labels_legacy SET label_name = NEW.label_name, confidence = NEW.confidence
+        WHERE photo_id = OLD.photo_id AND label_name = OLD.label_name;
+        RETURN NEW;
+    END IF;
+    DELETE FROM photo_labels_legacy WHERE photo_id = OLD.photo_id AND label_name = OLD.label_name;
+    RETURN OLD;
+END $$;
+
+CREATE TRIGGER photo_tags_view_write INSTEAD OF INSERT OR DELETE ON photo_tags
+    FOR EACH ROW EXECUTE FUNCTION photo_tags_view_write();
+CREATE TRIGGER photo_labels_view_write INSTEAD OF INSERT OR UPDATE OR DELETE ON photo_labels
+    FOR EACH ROW EXECUTE FUNCTION photo_labels_view_write();
+
+-- Copy the given photos with their tags and labels, replacing whatever was copied before. The legacy photo
+-- rows are locked first, so a chunk copy and a concurrent change to the same photo are applied in turn and
+-- the later one always reads the other's committed rows.
+CREATE FUNCTION photo_partitioning_copy(ids VARCHAR[]) RETURNS void LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM 1 FROM photos WHERE id = ANY (ids) ORDER BY id FOR NO KEY UPDATE;
+
+    DELETE FROM photo_tags_partitioned t USING photos p
+    WHERE p.id = ANY (ids) AND t.user_id = p.user_id AND t.photo_id = p.id;
+    DELETE FROM photo_labels_partitioned l USING photos p
+    WHERE p.id = ANY (ids) AND l.user_id = p.user_id AND l.photo_id = p.id;
+
+    INSERT INTO photos_partitioned (id, file_name, content_type, size, url, upload_date,
+                                    analysis_status, analysis_version, user_id)
+    SELECT id, file_name, content_type, size, url, upload_date, analysis_status, analysis_version, user_id
+    FROM photos
+    WHERE id = ANY (ids)
+    ON CONFLICT (user_id, id) DO UPDATE SET file_name        = EXCLUDED.file_name,
+                                            content_type     = EXCLUDED.content_type,
+                                            size             = EXCLUDED.size,
+                                            url              = EXCLUDED.url,
+                                            upload_date      = EXCLUDED.upload_date,
+                                            analysis_status  = EXCLUDED.analysis_status,
+                                            analysis_version = EXCLUDED.analysis_version;
+
+    INSERT INTO photo_tags_partitioned (photo_id, user_id, tag)
+    SELECT t.photo_id, p.user_id, t.tag
+    FROM photo_tags_legacy t
+             JOIN photos p ON p.id = t.photo_id
+    WHERE t.photo_id = ANY (ids);
+
+    INSERT INTO photo_labels_partitioned (photo_id, user_id, label_name, confidence)
+    SELECT l.photo_id, p.user_id, l.label_name, l.confidence
+    FROM photo_labels_legacy l
+             JOIN photos p ON p.id = l.photo_id
+    WHERE l.photo_id = ANY (ids);
+END $$;
+
+-- Step 3: copy the next chunk of photos in id order; last_id is NULL when every photo has been copied
+CREATE FUNCTION photo_partitioning_copy_chunk(after_id VARCHAR, chunk_size INTEGER,
+                                              OUT last_id VARCHAR, OUT copied INTEGER)
+    LANGUAGE plpgsql AS $$
+DECLARE
+    ids VARCHAR[];
+BEGIN
+    SELECT array_agg(id ORDER BY id) INTO ids
+    FROM (SELECT id FROM photos WHERE id > after_id ORDER BY id LIMIT chunk_size) chunk;
+    copied := coalesce(array_length(ids, 1), 0);
+    IF copied > 0 THEN
+        PERFORM photo_partitioning_copy(ids);
+        last_id := ids[copied];
+    END IF;
+END $$;
+
+-- Step 2: keep already copied photos in sync while the copy runs
+CREATE FUNCTION photo_partitioning_sync_photos() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM photo_tags_partitioned t USING changed c WHERE t.user_id = c.user_id AND t.photo_id = c.id;
+        DELETE FROM photo_labels_partitioned l USING changed c WHERE l.user_id = c.user_id AND l.photo_id = c.id;
+        DELETE FROM photos_partitioned p USING changed c WHERE p.user_id = c.user_id AND p.id = c.id;
+    ELSE
+        PERFORM photo_partitioning_copy(ARRAY(SELECT id FROM changed));
+    END IF;
+    RETURN NULL;
+END $$;
+
+CREATE FUNCTION photo_partitioning_sync_collection() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    -- Photos already deleted from the legacy table are skipped by the copy
+    PERFORM photo_partitioning_copy(ARRAY(SELECT DISTINCT photo_id FROM changed));
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER photo_partitioning_sync_insert AFTER INSERT ON photos
+    REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_photos();
+CREATE TRIGGER photo_partitioning_sync_update AFTER UPDATE ON photos
+    REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_photos();
+CREATE TRIGGER photo_partitioning_sync_delete AFTER DELETE ON photos
+    REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_photos();
+
+CREATE TRIGGER photo_partitioning_sync_insert AFTER INSERT ON photo_tags_legacy
+    REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_collection();
+CREATE TRIGGER photo_partitioning_sync_delete AFTER DELETE ON photo_tags_legacy
+    REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_collection();
+
+CREATE TRIGGER photo_partitioning_sync_insert AFTER INSERT ON photo_labels_legacy
+    REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_collection();
+CREATE TRIGGER photo_partitioning_sync_update AFTER UPDATE ON photo_labels_legacy
+    REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_collection();
+CREATE TRIGGER photo_partitioning_sync_delete AFTER DELETE ON photo_labels_legacy
+    REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION photo_partitioning_sync_collection();
+
+-- Step 3, last: swap the partitioned tables in. Every photo has been copied by then, either by a chunk or by
+-- the sync triggers, so this only takes the locks and renames. Returns false if it already happened.
+CREATE FUNCTION photo_partitioning_cutover() RETURNS BOOLEAN LANGUAGE plpgsql AS $$
+DECLARE
+    fk RECORD;
+BEGIN
+    IF to_regclass('photos_partitioned') IS NULL THEN
+        RETURN FALSE;
+    END IF;
+    LOCK TABLE photos, photo_tags_legacy, photo_labels_legacy, album_photos IN ACCESS EXCLUSIVE MODE;
+
+    DROP VIEW photo_tags;
+    DROP VIEW photo_labels;
+    DROP FUNCTION photo_tags_view_write();
+    DROP FUNCTION photo_labels_view_write();
+    DROP TRIGGER photo_partitioning_sync_insert ON photos;
+    DROP TRIGGER photo_partitioning_sync_update ON photos;
+    DROP TRIGGER photo_partitioning_sync_delete ON photos;
+    DROP TRIGGER photo_partitioning_sync_insert ON photo_tags_legacy;
+    DROP TRIGGER photo_partitioning_sync_delete ON photo_tags_legacy;
+    DROP TRIGGER photo_partitioning_sync_insert ON photo_labels_legacy;
+    DROP TRIGGER photo_partitioning_sync_update ON photo_labels_legacy;
+    DROP TRIGGER photo_partitioning_sync_delete ON photo_labels_legacy;
+    DROP FUNCTION photo_partitioning_sync_photos();
+    DROP FUNCTION photo_partitioning_sync_collection();
+    DROP FUNCTION photo_partitioning_copy_chunk(VARCHAR, INTEGER);
+    DROP FUNCTION photo_partitioning_copy(VARCHAR[]);
+
+    -- album_photos can't reference the partitioned photos(id), which is unique only together with user_id,
+    -- and the frozen legacy rows must not block deleting users
+    FOR fk IN SELECT conrelid::regclass AS tbl, conname FROM pg_constraint
+              WHERE contype = 'f' AND (confrelid = 'photos'::regclass AND conrelid = 'album_photos'::regclass
+                                       OR conrelid = 'photos'::regclass) LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.tbl, fk.conname);
+    END LOOP;
+
+    ALTER TABLE photos RENAME TO photos_legacy;
+    ALTER TABLE photos_partitioned RENAME TO photos;
+    ALTER TABLE photo_tags_partitioned RENAME TO photo_tags;
+    ALTER TABLE photo_labels_partitioned RENAME TO photo_labels;
+    RETURN TRUE;
+END $$;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM photos) THEN
+        PERFORM photo_partitioning_cutover();
+    END IF;
+END $$;
@@ -0,0 +1,40 @@
+-- Orders each album's photos by when they were added, so an album is paged with a keyset on
+-- (album_id, position) instead of loading its whole photo collection. Positions come from one sequence:
+-- they increase within an album but are not contiguous, and a photo keeps its position while it stays.
+-- Only album_photos is touched, so this works before and after the photo partitioning cutover.
+
+CREATE SEQUENCE album_photo_position_seq AS BIGINT;
+
+ALTER TABLE album_photos ADD COLUMN position BIGINT;
+
+-- A photo was only ever meant to be in an album once
+DELETE FROM album_photos a
+USING album_photos b
+WHERE a.album_id = b.album_id AND a.photo_id = b.photo_id AND a.ctid > b.ctid;
+
+-- Existing links had no order; number them by the photos' upload dates
+WITH numbered AS (
+    SELECT ap.ctid AS row_id,
+           row_number() OVER (ORDER BY ap.album_id, p.upload_date NULLS LAST, ap.photo_id) AS position
+    FROM album_photos ap
+    LEFT JOIN photos p ON p.id = ap.photo_id
+)
+UPDATE album_photos ap
+SET position = numbered.position
+FROM numbered
+WHERE ap.ctid = numbered.row_id;
+
+SELECT setval('album_photo_position_seq', coalesce((SELECT max(position) FROM album_photos), 0) + 1, false);
+
+ALTER TABLE album_photos
+    ALTER COLUMN position SET DEFAULT nextval('album_photo_position_seq'),
+    ALTER COLUMN position SET NOT NULL;
+ALTER SEQUENCE album_photo_position_seq OWNED BY album_photos.position;
+
+-- AlbumRepository.findPhotoPositions: one page of an album's photo ids in order, index-only
+CREATE UNIQUE INDEX idx_album_photos_album_position ON album_photos (album_id, position) INCLUDE (photo_id);
+
+-- Loading an album's photos and AlbumRepository.addPhoto's conflict target, now unique
+CREATE UNIQUE INDEX idx_album_photos_album_photo_unique ON album_photos (album_id, photo_id);
+DROP INDEX idx_album_photos_album_photo;
+ALTER INDEX idx_album_photos_album_photo_unique RENAME TO idx_album_photos_album_photo;
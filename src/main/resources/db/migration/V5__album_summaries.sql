@@ -0,0 +1,66 @@
+-- Keeps each album's photo count, cover photo and last change on the album row, so the album list is one
+-- index-only scan instead of loading every album's photos. Statement-level triggers on album_photos
+-- maintain the columns for every way links are written: AlbumRepository.addPhoto, the JPA collection and
+-- account deletion's bulk deletes. The cover is the photo added first that is still in the album.
+-- The Album entity does not map these columns, so neither its writes nor its cached copies touch them.
+
+ALTER TABLE albums
+    ADD COLUMN photo_count    INTEGER      NOT NULL DEFAULT 0,
+    ADD COLUMN cover_photo_id VARCHAR(255),
+    ADD COLUMN last_modified  TIMESTAMP(6) NOT NULL DEFAULT localtimestamp;
+
+UPDATE albums a
+SET photo_count = linked.photos,
+    cover_photo_id = linked.first_photo_id
+FROM (
+    SELECT album_id, count(*) AS photos, (array_agg(photo_id ORDER BY position))[1] AS first_photo_id
+    FROM album_photos
+    GROUP BY album_id
+) linked
+WHERE a.id = linked.album_id;
+
+UPDATE albums SET last_modified = created_at;
+
+CREATE FUNCTION album_summaries_photos_added() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE albums a
+    SET photo_count = a.photo_count + added.photos,
+        cover_photo_id = coalesce(a.cover_photo_id, added.first_photo_id),
+        last_modified = localtimestamp
+    FROM (
+        SELECT album_id, count(*) AS photos, (array_agg(photo_id ORDER BY position))[1] AS first_photo_id
+        FROM changed
+        GROUP BY album_id
+    ) added
+    WHERE a.id = added.album_id;
+    RETURN NULL;
+END $$;
+
+CREATE FUNCTION album_summaries_photos_removed() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    -- A removed cover is replaced by the next photo in album order, found on idx_album_photos_album_position
+    UPDATE albums a
+    SET photo_count = a.photo_count - removed.photos,
+        cover_photo_id = CASE WHEN a.cover_photo_id = ANY (removed.photo_ids)
+            THEN (SELECT ap.photo_id FROM album_photos ap WHERE ap.album_id = a.id ORDER BY ap.position LIMIT 1)
+            ELSE a.cover_photo_id END,
+        last_modified = localtimestamp
+    FROM (
+        SELECT album_id, count(*) AS photos, array_agg(photo_id) AS photo_ids
+        FROM changed
+        GROUP BY album_id
+    ) removed
+    WHERE a.id = removed.album_id;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER album_summaries_insert AFTER INSERT ON album_photos
+    REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION album_summaries_photos_added();
+CREATE TRIGGER album_summaries_delete AFTER DELETE ON album_photos
+    REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION album_summaries_photos_removed();
+
+-- AlbumRepository.findSummariesByUserId: a user's albums, most recently changed first, index-only.
+-- Also serves the other per-user lookups, which idx_albums_user_id did.
+CREATE INDEX idx_albums_user_last_modified ON albums (user_id, last_modified DESC, id)
+    INCLUDE (name, photo_count, cover_photo_id);
+DROP INDEX idx_albums_user_id;
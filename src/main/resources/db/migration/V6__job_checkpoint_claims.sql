@@ -0,0 +1,7 @@
+-- A node works on a resumable job only while it holds the job's claim, so nodes that start together or
+-- resume the same checkpoints do not run the same job twice. The claim is a lease renewed with every
+-- chunk; a node that dies leaves it to expire for another node to take over. Nullable columns without a
+-- default, so adding them does not rewrite the table.
+ALTER TABLE job_checkpoints
+    ADD COLUMN claimed_by    VARCHAR(255),
+    ADD COLUMN claimed_until TIMESTAMP(6);
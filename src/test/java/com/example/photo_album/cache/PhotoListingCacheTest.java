@@ -0,0 +1,130 @@
+package com.example.photo_album.cache;
+
+import com.example.photo_album.config.ListingCacheProperties;
+import com.example.photo_album.config.StorageProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhotoListingCacheTest {
+
+    private PhotoListingCache cache;
+    private final AtomicInteger serializations = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ListingCacheProperties properties = new ListingCacheProperties();
+        properties.setMaxPages(2);
+        cache = new PhotoListingCache(properties, new StorageProperties.Urls());
+    }
+
+    @Test
+    void get_ServesFirstPagesFromCache() {
+        PhotoListingCache.Listing first = cache.get(key("alice", 0), serializer("page 0"));
+        PhotoListingCache.Listing second = cache.get(key("alice", 0), serializer("page 0"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(serializations).hasValue(1);
+        assertThat(first.eTag()).startsWith("\"").endsWith("\"");
+    }
+
+    @Test
+    void get_KeysBySortPageParametersAndFormat() {
+        cache.get(key("alice", 0), serializer("page 0"));
+        cache.get(new PhotoListingCache.Key("alice", 0, 10, "fileName", "ASC", "application/json"),
+                serializer("by name"));
+        cache.get(new PhotoListingCache.Key("alice", 0, 50, "uploadDate", "DESC", "application/json"),
+                serializer("50 per page"));
+        cache.get(new PhotoListingCache.Key("alice", 0, 10, "uploadDate", "DESC", "application/cbor"),
+                serializer("cbor"));
+
+        assertThat(serializations).hasValue(4);
+    }
+
+    @Test
+    void get_DoesNotCacheLaterPages() {
+        cache.get(key("alice", 2), serializer("page 2"));
+        cache.get(key("alice", 2), serializer("page 2"));
+
+        assertThat(serializations).hasValue(2);
+    }
+
+    @Test
+    void invalidate_DropsOnlyThatUsersPages() {
+        cache.get(key("alice", 0), serializer("alice"));
+        cache.get(key("bob", 0), serializer("bob"));
+
+        cache.invalidate("alice");
+        PhotoListingCache.Listing alice = cache.get(key("alice", 0), serializer("alice, new photo"));
+        cache.get(key("bob", 0), serializer("bob"));
+
+        assertThat(serializations).hasValue(3);
+        assertThat(new String(alice.body(), StandardCharsets.UTF_8)).isEqualTo("alice, new photo");
+    }
+
+    @Test
+    void eTag_DependsOnlyOnContent() {
+        PhotoListingCache.Listing before = cache.get(key("alice", 0), serializer("same"));
+        cache.invalidate("alice");
+        PhotoListingCache.Listing unchanged = cache.get(key("alice", 0), serializer("same"));
+        cache.invalidate("alice");
+        PhotoListingCache.Listing changed = cache.get(key("alice", 0), serializer("different"));
+
+        assertThat(unchanged.eTag()).isEqualTo(before.eTag());
+        assertThat(changed.eTag()).isNotEqualTo(before.eTag());
+    }
+
+    @Test
+    void get_BuildsCachedPagesInThePrimaryTransaction() {
+        AtomicInteger transactions = new AtomicInteger();
+        ListingCacheProperties properties = new ListingCacheProperties();
+        properties.setMaxPages(2);
+        cache = new PhotoListingCache(properties, new StorageProperties.Urls(), new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                transactions.incrementAndGet();
+                return action.doInTransaction(null);
+            }
+        });
+
+        cache.get(key("alice", 0), serializer("page 0"));
+        cache.get(key("alice", 0), serializer("page 0"));
+        // Not cached, so it may come from a replica
+        cache.get(key("alice", 2), serializer("page 2"));
+
+        assertThat(serializations).hasValue(2);
+        assertThat(transactions).hasValue(1);
+    }
+
+    @Test
+    void constructor_RejectsTtlOutlivingSignedUrls() {
+        StorageProperties.Urls urls = new StorageProperties.Urls();
+        urls.setMode(StorageProperties.UrlMode.PRESIGNED);
+        urls.setRefreshMargin(Duration.ofMinutes(15));
+        ListingCacheProperties properties = new ListingCacheProperties();
+        properties.setTtl(Duration.ofMinutes(30));
+
+        assertThatThrownBy(() -> new PhotoListingCache(properties, urls))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PhotoListingCache.Key key(String userId, int page) {
+        return new PhotoListingCache.Key(userId, page, 10, "uploadDate", "DESC", "application/json");
+    }
+
+    private Supplier<byte[]> serializer(String body) {
+        return () -> {
+            serializations.incrementAndGet();
+            return body.getBytes(StandardCharsets.UTF_8);
+        };
+    }
+}
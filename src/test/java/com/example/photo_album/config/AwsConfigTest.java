@@ -0,0 +1,39 @@
+package com.example.photo_album.config;
+
+import com.amazonaws.ClientConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AwsConfigTest {
+
+    @Test
+    void clientConfiguration_AppliesPoolTimeoutAndRetrySettings() {
+        AwsClientProperties.Client client = new AwsClientProperties().getRekognition();
+        client.setMaxConnections(12);
+        client.setConnectionTtl(Duration.ofSeconds(45));
+        client.setSocketTimeout(Duration.ofSeconds(3));
+        client.getRetry().setMaxErrorRetry(1);
+
+        ClientConfiguration configuration = AwsConfig.clientConfiguration(client);
+
+        assertThat(configuration.getMaxConnections()).isEqualTo(12);
+        assertThat(configuration.useTcpKeepAlive()).isTrue();
+        assertThat(configuration.getConnectionTTL()).isEqualTo(45_000);
+        assertThat(configuration.getSocketTimeout()).isEqualTo(3_000);
+        assertThat(configuration.getRequestTimeout()).isEqualTo(10_000);
+        assertThat(configuration.getClientExecutionTimeout()).isEqualTo(20_000);
+        assertThat(configuration.getRetryPolicy().getMaxErrorRetry()).isEqualTo(1);
+    }
+
+    @Test
+    void clientConfiguration_ZeroTtlMeansNoExpiry() {
+        AwsClientProperties.Client client = new AwsClientProperties().getS3();
+        client.setConnectionTtl(Duration.ZERO);
+
+        assertThat(AwsConfig.clientConfiguration(client).getConnectionTTL()).isEqualTo(-1);
+        assertThat(AwsConfig.clientConfiguration(client).getMaxConnections()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.photo_album.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolConfigTest {
+
+    @Test
+    void computePoolSize_TwoPerCorePlusSpindlesSharedByInstances() {
+        PoolSizingProperties sizing = new PoolSizingProperties();
+        sizing.setDatabaseCores(8);
+        sizing.setEffectiveSpindleCount(1);
+
+        assertThat(ConnectionPoolConfig.computePoolSize(sizing)).isEqualTo(17);
+        sizing.setInstances(4);
+        assertThat(ConnectionPoolConfig.computePoolSize(sizing)).isEqualTo(5);
+    }
+
+    @Test
+    void computePoolSize_CappedAtRequestConcurrency() {
+        PoolSizingProperties sizing = new PoolSizingProperties();
+        sizing.setDatabaseCores(32);
+        sizing.setRequestConcurrency(10);
+
+        assertThat(ConnectionPoolConfig.computePoolSize(sizing)).isEqualTo(10);
+    }
+
+    @Test
+    void hikariPoolSizer_OnlyResizesInComputedMode() {
+        HikariDataSource fixed = new HikariDataSource();
+        fixed.setMaximumPoolSize(5);
+        ConnectionPoolConfig.hikariPoolSizer(new MockEnvironment()).postProcessAfterInitialization(fixed, "dataSource");
+        assertThat(fixed.getMaximumPoolSize()).isEqualTo(5);
+
+        BeanPostProcessor computed = ConnectionPoolConfig.hikariPoolSizer(new MockEnvironment()
+                .withProperty("datasource.pool-sizing.mode", "computed")
+                .withProperty("datasource.pool-sizing.database-cores", "4")
+                .withProperty("datasource.pool-sizing.request-concurrency", "200"));
+        HikariDataSource hikari = new HikariDataSource();
+        hikari.setMaximumPoolSize(50);
+        hikari.setMinimumIdle(20);
+        computed.postProcessAfterInitialization(hikari, "dataSource");
+
+        assertThat(hikari.getMaximumPoolSize()).isEqualTo(9);
+        assertThat(hikari.getMinimumIdle()).isEqualTo(9);
+    }
+
+    @Test
+    void applySizing_SizesPoolsBuiltOutsideTheBeanFactory() {
+        PoolSizingProperties sizing = ConnectionPoolConfig.bindSizing(new MockEnvironment()
+                .withProperty("datasource.pool-sizing.mode", "computed")
+                .withProperty("datasource.pool-sizing.database-cores", "4")
+                .withProperty("datasource.pool-sizing.instances", "3"));
+        HikariConfig replica = new HikariConfig();
+        replica.setMaximumPoolSize(5);
+        replica.setMinimumIdle(1);
+
+        ConnectionPoolConfig.applySizing(replica, "replica-0", sizing);
+
+        assertThat(replica.getMaximumPoolSize()).isEqualTo(3);
+        assertThat(replica.getMinimumIdle()).isEqualTo(1);
+    }
+}
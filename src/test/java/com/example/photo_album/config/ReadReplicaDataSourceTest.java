@@ -0,0 +1,110 @@
+package com.example.photo_album.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadReplicaDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private final DataSource replica2 = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replica1Connection = mock(Connection.class);
+    private final Connection replica2Connection = mock(Connection.class);
+
+    private final Map<DataSource, Object> lags = new HashMap<>();
+    private ReadReplicaDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica1.getConnection()).thenReturn(replica1Connection);
+        when(replica2.getConnection()).thenReturn(replica2Connection);
+        lags.put(replica1, Duration.ZERO);
+        lags.put(replica2, Duration.ZERO);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica1);
+        replicas.put("replica-1", replica2);
+        dataSource = new ReadReplicaDataSource(replicas, primary, Duration.ofSeconds(10), Duration.ofSeconds(5),
+                replica -> {
+                    Object lag = lags.get(replica);
+                    if (lag instanceof SQLException e) {
+                        throw e;
+                    }
+                    return (Duration) lag;
+                });
+    }
+
+    @Test
+    void getConnection_ReplicasUnusableUntilChecked() throws SQLException {
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void getConnection_RoundRobinOverHealthyReplicas() throws SQLException {
+        dataSource.checkHealth();
+
+        List<Connection> connections = List.of(dataSource.getConnection(), dataSource.getConnection(),
+                dataSource.getConnection(), dataSource.getConnection());
+
+        assertThat(connections).containsExactly(replica1Connection, replica2Connection,
+                replica1Connection, replica2Connection);
+    }
+
+    @Test
+    void getConnection_SkipsLaggingAndFailedReplicas() throws SQLException {
+        lags.put(replica1, Duration.ofMinutes(1));
+        dataSource.checkHealth();
+        assertThat(dataSource.getUsableReplicas()).containsExactly("replica-1");
+        assertThat(dataSource.getConnection()).isSameAs(replica2Connection);
+        assertThat(dataSource.getConnection()).isSameAs(replica2Connection);
+
+        lags.put(replica2, new SQLException("connection refused"));
+        dataSource.checkHealth();
+        assertThat(dataSource.getUsableReplicas()).isEmpty();
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+
+        // Caught up again
+        lags.put(replica1, Duration.ofSeconds(1));
+        dataSource.checkHealth();
+        assertThat(dataSource.getConnection()).isSameAs(replica1Connection);
+    }
+
+    @Test
+    void getConnection_FallsThroughWhenReplicaPoolFails() throws SQLException {
+        dataSource.checkHealth();
+        when(replica1.getConnection()).thenThrow(new SQLException("timeout"));
+        when(replica2.getConnection()).thenThrow(new SQLException("timeout"));
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(dataSource.getUsableReplicas()).isEmpty();
+    }
+
+    @Test
+    void getConnectionWithCredentials_IsRoutedLikeGetConnection() throws SQLException {
+        Connection replicaUserConnection = mock(Connection.class);
+        Connection primaryUserConnection = mock(Connection.class);
+        when(replica1.getConnection("reporting", "secret")).thenReturn(replicaUserConnection);
+        when(primary.getConnection("reporting", "secret")).thenReturn(primaryUserConnection);
+
+        assertThat(dataSource.getConnection("reporting", "secret")).isSameAs(primaryUserConnection);
+
+        lags.put(replica2, Duration.ofMinutes(1));
+        dataSource.checkHealth();
+        assertThat(dataSource.getConnection("reporting", "secret")).isSameAs(replicaUserConnection);
+    }
+}
@@ -1,6 +1,7 @@
 // src/test/java/com/example/photo_album/config/TestConfig.java
 package com.example.photo_album.config;
 
+import com.example.photo_album.cache.PhotoListingCache;
 import com.example.photo_album.service.PhotoService;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -15,4 +16,9 @@ public class TestConfig {
     public PhotoService photoService() {
         return Mockito.mock(PhotoService.class);
     }
+
+    @Bean
+    public PhotoListingCache photoListingCache() {
+        return new PhotoListingCache(new ListingCacheProperties(), new StorageProperties().getUrls());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.example.photo_album.controller;
+
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.service.PhotoService;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoContentControllerTest {
+
+    private static final String TEST_USER_ID = "user123";
+    private static final String PHOTO_ID = "123";
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    @Mock
+    private PhotoService photoService;
+
+    private MockMvc mockMvc;
+    private final Principal principal = () -> TEST_USER_ID;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        InMemoryPhotoStorage storage = new InMemoryPhotoStorage();
+        storage.put("photo.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        Photo photo = Photo.builder()
+                .id(PHOTO_ID)
+                .fileName("photo.jpg")
+                .contentType("image/jpeg")
+                .size(CONTENT.length)
+                .url("memory://photo.jpg")
+                .uploadDate(LocalDateTime.now())
+                .build();
+        lenient().when(photoService.getUserPhotoById(TEST_USER_ID, PHOTO_ID)).thenReturn(Optional.of(photo));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new PhotoContentController(photoService, storage)).build();
+    }
+
+    @Test
+    void getPhotoContent_ReturnsWholeObject() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/photos/{id}/content", PHOTO_ID).principal(principal))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + PHOTO_ID + "\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, private, immutable"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void getPhotoContent_ServesSingleRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/photos/{id}/content", PHOTO_ID)
+                        .principal(principal)
+                        .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void getPhotoContent_RejectsUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/api/photos/{id}/content", PHOTO_ID)
+                        .principal(principal)
+                        .header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void getPhotoContent_ReturnsNotModifiedForMatchingETag() throws Exception {
+        mockMvc.perform(get("/api/photos/{id}/content", PHOTO_ID)
+                        .principal(principal)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + PHOTO_ID + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getPhotoContent_NotFoundForOtherUsersPhoto() throws Exception {
+        when(photoService.getUserPhotoById(TEST_USER_ID, "999")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/photos/{id}/content", "999").principal(principal))
+                .andExpect(status().isNotFound());
+    }
+}
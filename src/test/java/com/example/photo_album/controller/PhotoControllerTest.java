@@ -1,6 +1,7 @@
 // src/test/java/com/example/photo_album/controller/PhotoControllerTest.java
 package com.example.photo_album.controller;
 
+import com.example.photo_album.cache.PhotoListingCache;
 import com.example.photo_album.config.SecurityConfig;
 import com.example.photo_album.config.TestConfig;
 import com.example.photo_album.model.Photo;
@@ -18,11 +19,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.security.Principal;
@@ -36,6 +39,7 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -54,6 +58,15 @@ class PhotoControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PhotoListingCache photoListingCache;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private ContentNegotiationManager contentNegotiationManager;
+
     private User testUser;
     private final String TEST_USER_ID = "user123";
     private final String TEST_USERNAME = "testuser";
@@ -62,7 +75,8 @@ class PhotoControllerTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
 
-        PhotoController photoController = new PhotoController(photoService);
+        PhotoController photoController = new PhotoController(photoService, photoListingCache, objectMapper,
+                cborConverter, contentNegotiationManager);
 
         mockMvc = MockMvcBuilders
                 .webAppContextSetup(context)
@@ -162,6 +176,36 @@ class PhotoControllerTest {
                 .andExpect(jsonPath("$.content[1].id").value("456"));
     }
 
+    @Test
+    @WithMockUser(username = "user123")
+    void getAllPhotos_NotModifiedWhenETagMatches() throws Exception {
+        // Arrange
+        Photo photo = Photo.builder()
+                .id("789")
+                .fileName("test.jpg")
+                .contentType("image/jpeg")
+                .size(1024L)
+                .url("https://test-bucket.s3.amazonaws.com/test.jpg")
+                .uploadDate(LocalDateTime.now())
+                .user(testUser)
+                .build();
+        when(photoService.getUserPhotos(eq(TEST_USER_ID), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(photo)));
+        photoListingCache.invalidate(TEST_USER_ID);
+
+        String eTag = mockMvc.perform(get("/api/photos")
+                        .with(user(TEST_USER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/photos")
+                        .with(user(TEST_USER_ID))
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     @WithMockUser(username = "user123")
     void getPhotoById_Success() throws Exception {
@@ -0,0 +1,152 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.AlbumService;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/albums/{id}/export.zip streams the album without holding a pooled connection while objects are
+ * fetched and written, however many pages the album has.
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "storage.export.page-size=2",
+        // Every object is streamed by the request thread, so no page query runs alongside the open
+        "storage.export.prefetch-buffer=0B"
+})
+public class AlbumExportIntegrationTest extends AbstractPostgresqlTest {
+    private static final int PHOTOS = 5;
+
+    // Active pool connections seen each time an object is opened
+    private static final List<Integer> activeConnectionsOnOpen = new CopyOnWriteArrayList<>();
+    private static HikariDataSource hikari;
+
+    @TestConfiguration
+    static class CountingStorageConfig {
+        @Bean
+        @Primary
+        PhotoStorage countingPhotoStorage() {
+            return new InMemoryPhotoStorage() {
+                @Override
+                public InputStream open(String key) throws IOException {
+                    activeConnectionsOnOpen.add(hikari.getHikariPoolMXBean().getActiveConnections());
+                    return super.open(key);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private AlbumService albumService;
+
+    @Autowired
+    private PhotoStorage photoStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private String albumId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hikari = dataSource.unwrap(HikariDataSource.class);
+        activeConnectionsOnOpen.clear();
+        owner = userRepository.save(User.builder()
+                .username("export-owner")
+                .email("export-owner@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+        albumId = albumService.createAlbum(owner.getId(), "Trip", null).getId();
+        for (int i = 0; i < PHOTOS; i++) {
+            String key = UUID.randomUUID() + "_photo" + i + ".jpg";
+            photoStorage.put(key, new ByteArrayInputStream(new byte[]{(byte) i}), 1, "image/jpeg");
+            Photo photo = photoRepository.save(Photo.builder()
+                    .id(UUID.randomUUID().toString())
+                    .fileName(key)
+                    .contentType("image/jpeg")
+                    .size(1)
+                    .url(photoStorage.getUrl(key))
+                    .uploadDate(LocalDateTime.now())
+                    .tags(new ArrayList<>())
+                    .labels(new HashMap<>())
+                    .analysisStatus(AnalysisStatus.COMPLETED)
+                    .user(owner)
+                    .build());
+            albumService.addPhotoToAlbum(owner.getId(), albumId, photo.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM album_photos");
+        jdbcTemplate.update("DELETE FROM albums");
+        jdbcTemplate.update("DELETE FROM photos");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void exportStreamsWithoutHoldingAConnection() throws Exception {
+        byte[] archive = mockMvc.perform(get("/api/albums/{albumId}/export.zip", albumId).with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        assertThat(names).containsExactly(
+                "0001_photo0.jpg", "0002_photo1.jpg", "0003_photo2.jpg", "0004_photo3.jpg", "0005_photo4.jpg");
+        assertThat(activeConnectionsOnOpen).hasSize(PHOTOS).containsOnly(0);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.AlbumRepository;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.AlbumService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * GET /api/albums lists album summaries, GET /api/albums/{id} returns an album's metadata and summary, and
+ * GET /api/albums/{id}/photos pages through its photos in the order they were added. Only the owner can see an
+ * album or add photos to it.
+ */
+@AutoConfigureMockMvc
+public class AlbumPhotosIntegrationTest extends AbstractPostgresqlTest {
+    private static final int PHOTOS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private AlbumService albumService;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User owner;
+    private User stranger;
+    private String albumId;
+    private final List<String> addedPhotoIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        owner = saveUser("album-owner");
+        stranger = saveUser("album-stranger");
+        albumId = albumService.createAlbum(owner.getId(), "Holiday", "Summer").getId();
+
+        // Added newest first, so album order is not upload order
+        for (int i = 0; i < PHOTOS; i++) {
+            Photo photo = photoRepository.save(Photo.builder()
+                    .id(UUID.randomUUID().toString())
+                    .fileName("photo" + i + ".jpg")
+                    .contentType("image/jpeg")
+                    .size(1024)
+                    .url("https://test-bucket.s3.amazonaws.com/photo" + i + ".jpg")
+                    .uploadDate(LocalDateTime.now().minusDays(i))
+                    .tags(new ArrayList<>())
+                    .labels(new HashMap<>())
+                    .analysisStatus(AnalysisStatus.COMPLETED)
+                    .user(owner)
+                    .build());
+            mockMvc.perform(post("/api/albums/{albumId}/photos/{photoId}", albumId, photo.getId()).with(user(owner.getId())))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.photoCount").value(i + 1));
+            addedPhotoIds.add(photo.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM album_photos");
+        jdbcTemplate.update("DELETE FROM albums");
+        jdbcTemplate.update("DELETE FROM photo_tags");
+        jdbcTemplate.update("DELETE FROM photo_labels");
+        jdbcTemplate.update("DELETE FROM photos");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void albumReturnsMetadataAndCountWithoutPhotos() throws Exception {
+        mockMvc.perform(get("/api/albums/{albumId}", albumId).with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Holiday"))
+                .andExpect(jsonPath("$.photoCount").value(PHOTOS))
+                .andExpect(jsonPath("$.photos").doesNotExist())
+                .andExpect(jsonPath("$.user").doesNotExist());
+    }
+
+    @Test
+    void photosArePagedInAlbumOrder() throws Exception {
+        List<String> pagedIds = new ArrayList<>();
+        String after = "0";
+        int pages = 0;
+        while (after != null) {
+            JsonNode page = objectMapper.readTree(mockMvc.perform(get("/api/albums/{albumId}/photos", albumId)
+                            .param("after", after).param("limit", "2").with(user(owner.getId())))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("photos").forEach(photo -> pagedIds.add(photo.get("id").asText()));
+            after = page.hasNonNull("nextAfter") ? page.get("nextAfter").asText() : null;
+            pages++;
+        }
+
+        assertThat(pagedIds).containsExactlyElementsOf(addedPhotoIds);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void addingAPhotoAgainKeepsItsPlace() throws Exception {
+        mockMvc.perform(post("/api/albums/{albumId}/photos/{photoId}", albumId, addedPhotoIds.get(0)).with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photoCount").value(PHOTOS));
+
+        mockMvc.perform(get("/api/albums/{albumId}/photos", albumId).with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photos.length()").value(PHOTOS))
+                .andExpect(jsonPath("$.photos[0].id").value(addedPhotoIds.get(0)))
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+    }
+
+    @Test
+    void albumListServesSummaries() throws Exception {
+        albumService.createAlbum(owner.getId(), "Empty", null);
+
+        mockMvc.perform(get("/api/albums").with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(albumId))
+                .andExpect(jsonPath("$[1].photoCount").value(PHOTOS))
+                .andExpect(jsonPath("$[1].coverPhotoId").value(addedPhotoIds.get(0)))
+                .andExpect(jsonPath("$[1].photos").doesNotExist())
+                .andExpect(jsonPath("$[0].name").value("Empty"))
+                .andExpect(jsonPath("$[0].photoCount").value(0));
+    }
+
+    @Test
+    void summaryFollowsRemovedPhotos() throws Exception {
+        // As account deletion removes photos from albums
+        jdbcTemplate.update("DELETE FROM album_photos WHERE photo_id = ANY (?)",
+                (Object) new String[]{addedPhotoIds.get(0), addedPhotoIds.get(1)});
+        mockMvc.perform(get("/api/albums/{albumId}", albumId).with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photoCount").value(PHOTOS - 2))
+                .andExpect(jsonPath("$.coverPhotoId").value(addedPhotoIds.get(2)));
+
+        // Through the JPA collection, which rewrites all of the album's links in album order
+        transactionTemplate.executeWithoutResult(status -> albumRepository.findById(albumId).orElseThrow()
+                .getPhotos().removeIf(photo -> photo.getId().equals(addedPhotoIds.get(3))));
+        mockMvc.perform(get("/api/albums/{albumId}", albumId).with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photoCount").value(PHOTOS - 3))
+                .andExpect(jsonPath("$.coverPhotoId").value(addedPhotoIds.get(2)));
+        mockMvc.perform(get("/api/albums/{albumId}/photos", albumId).with(user(owner.getId())))
+                .andExpect(jsonPath("$.photos[*].id").value(contains(addedPhotoIds.get(2), addedPhotoIds.get(4))));
+    }
+
+    @Test
+    void otherUsersAlbumIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/albums/{albumId}", albumId).with(user(stranger.getId())))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/albums/{albumId}/photos", albumId).with(user(stranger.getId())))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void otherUserCannotAddToAlbum() throws Exception {
+        jdbcTemplate.update("DELETE FROM album_photos WHERE photo_id = ?", addedPhotoIds.get(0));
+
+        mockMvc.perform(post("/api/albums/{albumId}/photos/{photoId}", albumId, addedPhotoIds.get(0))
+                        .with(user(stranger.getId())))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(""));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM album_photos WHERE album_id = ?", Long.class, albumId))
+                .isEqualTo(PHOTOS - 1);
+    }
+
+    private User saveUser(String username) {
+        return userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -5,22 +5,36 @@ import com.amazonaws.services.rekognition.model.*;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectResult;
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.config.StorageProperties;
 import com.example.photo_album.model.Photo;
 import com.example.photo_album.model.User;
+import com.example.photo_album.outbox.OutboxPublisher;
 import com.example.photo_album.repository.PhotoRepository;
 import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.ImageAnalysisService;
 import com.example.photo_album.service.PhotoService;
+import com.example.photo_album.service.PhotoUrlService;
+import com.example.photo_album.storage.LocalPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import com.example.photo_album.storage.S3PhotoStorage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Optional;
@@ -46,6 +60,15 @@ class AwsIntegrationTest {
     @Mock
     private PhotoRepository photoRepository;
 
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
+    @TempDir
+    private Path storageDir;
+
     private PhotoService photoService;
     private User testUser;
     private MultipartFile testFile;
@@ -54,7 +77,12 @@ class AwsIntegrationTest {
     @BeforeEach
     void setUp() {
         // Initialize PhotoService with mocks
-        photoService = new PhotoService(amazonS3, rekognition, photoRepository, userRepository, BUCKET_NAME);
+        PhotoStorage storage = new S3PhotoStorage(amazonS3, BUCKET_NAME);
+        photoService = new PhotoService(storage,
+                new PhotoUrlService(storage, new StorageProperties.Urls(), Clock.systemUTC()),
+                new ImageAnalysisService(rekognition, storage, new RekognitionProperties()),
+                photoRepository, userRepository, outboxPublisher, cacheInvalidator,
+                TransactionOperations.withoutTransaction());
 
         // Create test user
         testUser = User.builder()
@@ -74,6 +102,7 @@ class AwsIntegrationTest {
         );
 
         // Mock user repository
+        when(userRepository.existsById(testUser.getId())).thenReturn(true);
         when(userRepository.findById(eq(testUser.getId())))
                 .thenReturn(Optional.of(testUser));
 
@@ -154,4 +183,38 @@ class AwsIntegrationTest {
         assertThat(capturedRequest.getMinConfidence()).isEqualTo(75F);
         assertThat(capturedRequest.getMaxLabels()).isEqualTo(10);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLocalStorageUploadRunsOffline() throws IOException {
+        // Arrange - local filesystem backend, no S3 involved
+        PhotoStorage localStorage = new LocalPhotoStorage(storageDir, "");
+        PhotoService localPhotoService = new PhotoService(localStorage,
+                new PhotoUrlService(localStorage, new StorageProperties.Urls(), Clock.systemUTC()),
+                new ImageAnalysisService(rekognition, localStorage, new RekognitionProperties()),
+                photoRepository, userRepository, outboxPublisher, cacheInvalidator,
+                TransactionOperations.withoutTransaction());
+
+        DetectLabelsResult labelsResult = new DetectLabelsResult()
+                .withLabels(Arrays.asList(new Label().withName("Person").withConfidence(99.8f)));
+        when(rekognition.detectLabels(any(DetectLabelsRequest.class)))
+                .thenReturn(labelsResult);
+
+        // Act
+        Photo result = localPhotoService.uploadPhotoForUser(testUser.getId(), testFile);
+
+        // Assert
+        Path stored = storageDir.resolve(result.getFileName());
+        assertThat(stored).exists();
+        assertThat(Files.readAllBytes(stored)).isEqualTo(testFile.getBytes());
+        assertThat(result.getUrl()).isEqualTo(stored.toUri().toString());
+        assertThat(result.getLabels()).containsEntry("Person", 99.8f);
+
+        // Without S3 the image bytes are sent to Rekognition inline
+        ArgumentCaptor<DetectLabelsRequest> rekognitionCaptor = ArgumentCaptor.forClass(DetectLabelsRequest.class);
+        verify(rekognition).detectLabels(rekognitionCaptor.capture());
+        assertThat(rekognitionCaptor.getValue().getImage().getS3Object()).isNull();
+        assertThat(rekognitionCaptor.getValue().getImage().getBytes().remaining())
+                .isEqualTo((int) testFile.getSize());
+        verifyNoInteractions(amazonS3);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.repository.PhotoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pool metrics, leak detection and the statement timeouts of the repository methods.
+ */
+public class ConnectionPoolTest extends AbstractPostgresqlTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void poolIsInstrumented() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        assertThat(hikari.getLeakDetectionThreshold()).isEqualTo(30_000);
+
+        photoRepository.count();
+
+        String pool = hikari.getPoolName();
+        assertThat(meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.pending").tag("pool", pool).gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.active").tag("pool", pool).gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.idle").tag("pool", pool).gauge()).isNotNull();
+    }
+
+    @Test
+    void labelSearchGivesUpAfterItsStatementTimeout() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Hold a lock that blocks every read of the labels, as a runaway statement would
+        CompletableFuture<Void> lockHolder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE photo_labels IN ACCESS EXCLUSIVE MODE");
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+            long start = System.nanoTime();
+
+            assertThatThrownBy(() -> photoRepository.findByLabelAndMinConfidence("Dog", 90F))
+                    .isInstanceOf(QueryTimeoutException.class);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .isLessThan(Long.parseLong(PhotoRepository.SEARCH_TIMEOUT_MS) + 5_000);
+        } finally {
+            release.countDown();
+            lockHolder.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One owner at a time holds the claim on an unfinished job, until its lease expires.
+ */
+public class JobCheckpointClaimTest extends AbstractPostgresqlTest {
+    private static final String JOB = "account-deletion:claim-test";
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        checkpointRepository.save(JobCheckpoint.builder()
+                .jobName(JOB)
+                .cursor("")
+                .startedAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkpointRepository.deleteById(JOB);
+    }
+
+    @Test
+    void claimIsExclusiveUntilItExpires() {
+        assertThat(claim("node-a")).isTrue();
+        assertThat(claim("node-b")).isFalse();
+        // Renewing
+        assertThat(claim("node-a")).isTrue();
+
+        jdbcTemplate.update("UPDATE job_checkpoints SET claimed_until = localtimestamp - interval '1 second' WHERE job_name = ?", JOB);
+        assertThat(claim("node-b")).isTrue();
+        assertThat(claim("node-a")).isFalse();
+        assertThat(checkpointRepository.findById(JOB).orElseThrow().getClaimedBy()).isEqualTo("node-b");
+
+        jdbcTemplate.update("UPDATE job_checkpoints SET finished_at = localtimestamp WHERE job_name = ?", JOB);
+        assertThat(claim("node-b")).isFalse();
+    }
+
+    private boolean claim(String owner) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> checkpointRepository.claim(JOB, owner, 60) == 1));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.PhotoImportService;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Objects already in storage are registered as a user's photos in place, queued for analysis, and
+ * importing the same prefix again adds nothing.
+ */
+@TestPropertySource(properties = {
+        "storage.bulk-import.batch-size=3",
+        "storage.bulk-import.analyze-imported-photos=false"
+})
+public class PhotoImportIntegrationTest extends AbstractPostgresqlTest {
+    private static final String PREFIX = "customer-archive/";
+
+    @TestConfiguration
+    static class ImportStorageConfig {
+        @Bean
+        @Primary
+        PhotoStorage importPhotoStorage() {
+            return new InMemoryPhotoStorage();
+        }
+    }
+
+    @Autowired
+    private PhotoImportService photoImportService;
+
+    @Autowired
+    private PhotoStorage photoStorage;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        owner = userRepository.save(User.builder()
+                .username("import-owner")
+                .email("import-owner@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+        for (int i = 0; i < 7; i++) {
+            put(PREFIX + "2019/IMG_" + i + ".jpg");
+        }
+        put(PREFIX + "2019/index.html");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM photos");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM job_checkpoints WHERE job_name LIKE 'photo-import:%'");
+    }
+
+    @Test
+    void importRegistersObjectsInPlaceOnce() throws InterruptedException {
+        assertThat(photoImportService.requestImport(owner.getId(), "customer-archive")).isTrue();
+        JobCheckpoint first = awaitFinished();
+
+        assertThat(first.getProcessed()).isEqualTo(8);
+        assertThat(first.getSucceeded()).isEqualTo(7);
+        assertThat(first.getSkipped()).isEqualTo(1);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT file_name, content_type, size, url, analysis_status FROM photos WHERE user_id = ? ORDER BY file_name",
+                owner.getId());
+        assertThat(rows).hasSize(7);
+        assertThat(rows.get(0)).containsEntry("file_name", PREFIX + "2019/IMG_0.jpg")
+                .containsEntry("content_type", "image/jpeg")
+                .containsEntry("size", 16L)
+                .containsEntry("url", photoStorage.getUrl(PREFIX + "2019/IMG_0.jpg"))
+                .containsEntry("analysis_status", "PENDING");
+
+        // The first run releases the import just after saving its finished checkpoint
+        while (!photoImportService.requestImport(owner.getId(), PREFIX)) {
+            Thread.sleep(10);
+        }
+        JobCheckpoint second = awaitFinished();
+
+        assertThat(second.getSucceeded()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM photos WHERE user_id = ?", Long.class, owner.getId()))
+                .isEqualTo(7);
+    }
+
+    private JobCheckpoint awaitFinished() throws InterruptedException {
+        String jobName = "photo-import:" + owner.getId() + ":" + PREFIX;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            JobCheckpoint checkpoint = checkpointRepository.findById(jobName).orElseThrow();
+            if (checkpoint.isFinished()) {
+                return checkpoint;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Import did not finish");
+    }
+
+    private void put(String key) throws IOException {
+        photoStorage.put(key, new ByteArrayInputStream(new byte[16]), 16, "application/octet-stream");
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.PhotoService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The first pages of GET /api/photos come from the listing cache until the user's photos change.
+ */
+@AutoConfigureMockMvc
+public class PhotoListingCacheIntegrationTest extends AbstractPostgresqlTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoService photoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private Photo photo;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder()
+                .username("lister")
+                .email("lister@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+        photo = photoRepository.save(Photo.builder()
+                .id(UUID.randomUUID().toString())
+                .fileName("beach.jpg")
+                .contentType("image/jpeg")
+                .size(1024)
+                .url("https://test-bucket.s3.amazonaws.com/beach.jpg")
+                .uploadDate(LocalDateTime.now())
+                .tags(new ArrayList<>())
+                .labels(new HashMap<>(Map.of("Beach", 80F, "Sea", 95F)))
+                .analysisStatus(AnalysisStatus.COMPLETED)
+                .user(owner)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM photo_tags");
+        jdbcTemplate.update("DELETE FROM photo_labels");
+        jdbcTemplate.update("DELETE FROM photos");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void firstPageIsServedFromCacheUntilPhotosChange() throws Exception {
+        String eTag = mockMvc.perform(get("/api/photos").with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].fileName").value("beach.jpg"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(eTag).isNotNull();
+
+        // Not seen by the cache: the cached page is still served, and still matches the client's copy
+        jdbcTemplate.update("UPDATE photos SET file_name = 'renamed.jpg' WHERE id = ?", photo.getId());
+        mockMvc.perform(get("/api/photos").with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].fileName").value("beach.jpg"));
+        mockMvc.perform(get("/api/photos").with(user(owner.getId())).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        photoService.addTagToUserPhoto(owner.getId(), photo.getId(), "holiday");
+
+        mockMvc.perform(get("/api/photos").with(user(owner.getId())).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(jsonPath("$.content[0].fileName").value("renamed.jpg"))
+                .andExpect(jsonPath("$.content[0].tags[0]").value("holiday"));
+    }
+
+    @Test
+    void listingIsCompactAndAvailableAsCbor() throws Exception {
+        mockMvc.perform(get("/api/photos").with(user(owner.getId())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[0].labels").value(contains("Sea", "Beach")))
+                .andExpect(jsonPath("$.content[0].user").doesNotExist())
+                .andExpect(jsonPath("$.page.totalElements").value(1));
+
+        byte[] cbor = mockMvc.perform(get("/api/photos").with(user(owner.getId())).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode listing = new CBORMapper().readTree(cbor);
+        assertThat(listing.at("/content/0/id").asText()).isEqualTo(photo.getId());
+        assertThat(listing.at("/content/0/fileName").asText()).isEqualTo("beach.jpg");
+    }
+}
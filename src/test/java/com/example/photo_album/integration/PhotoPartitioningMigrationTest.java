@@ -0,0 +1,146 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.repository.PhotoPartitioningRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the partitioning migration against a database that already holds photos, in a schema of its own:
+ * V1 and V2 first, some data, then V3, changes made while the copy runs, the chunked copy and the cutover.
+ */
+public class PhotoPartitioningMigrationTest extends AbstractPostgresqlTest {
+    private static final String SCHEMA = "partitioning_migration";
+
+    @Autowired
+    private DataSource applicationDataSource;
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        HikariDataSource hikari = applicationDataSource.unwrap(HikariDataSource.class);
+        String url = hikari.getJdbcUrl();
+        dataSource = new DriverManagerDataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA,
+                hikari.getUsername(), hikari.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        flyway("2").clean();
+        flyway("2").migrate();
+    }
+
+    @Test
+    void existingPhotosAreCopiedOnlineAndSwappedIn() {
+        insertUser("u1");
+        insertUser("u2");
+        for (int i = 0; i < 5; i++) {
+            insertPhoto("u1-" + i, "u1");
+            insertPhoto("u2-" + i, "u2");
+        }
+        jdbcTemplate.update("INSERT INTO photo_tags (photo_id, tag) VALUES ('u1-0', 'beach'), ('u1-0', 'beach'), ('u2-3', 'city')");
+        jdbcTemplate.update("INSERT INTO photo_labels (photo_id, label_name, confidence) VALUES ('u1-1', 'Dog', 91), ('u2-4', 'Cat', 80)");
+
+        flyway("3").migrate();
+        assertThat(partitioned("photos")).isFalse();
+        // The application's collection keys work straight away
+        assertThat(jdbcTemplate.queryForList("SELECT tag FROM photo_tags WHERE photo_id = 'u1-0' AND user_id = 'u1'", String.class))
+                .containsExactly("beach", "beach");
+
+        PhotoPartitioningRepository repository = new PhotoPartitioningRepository(jdbcTemplate);
+        assertThat(repository.isPending()).isTrue();
+        PhotoPartitioningRepository.Chunk first = transactionTemplate.execute(status -> repository.copyChunk("", 4));
+        assertThat(first.copied()).isEqualTo(4);
+
+        // Changes while the copy runs, to photos both before and after the cursor
+        jdbcTemplate.update("DELETE FROM photo_tags WHERE photo_id = 'u1-0' AND user_id = 'u1' AND tag = 'beach'");
+        jdbcTemplate.update("INSERT INTO photo_tags (photo_id, user_id, tag) VALUES ('u1-1', 'u1', 'park')");
+        jdbcTemplate.update("UPDATE photo_labels SET confidence = 99 WHERE photo_id = 'u1-1' AND user_id = 'u1' AND label_name = 'Dog'");
+        jdbcTemplate.update("UPDATE photos SET analysis_status = 'COMPLETED' WHERE id = 'u2-4'");
+        jdbcTemplate.update("DELETE FROM photo_labels WHERE photo_id = 'u2-4' AND user_id = 'u2'");
+        jdbcTemplate.update("DELETE FROM photos WHERE id = 'u1-2'");
+        insertPhoto("u2-5", "u2");
+        jdbcTemplate.update("INSERT INTO photo_labels (photo_id, user_id, label_name, confidence) VALUES ('u2-5', 'u2', 'Tree', 77)");
+
+        PhotoPartitioningRepository.Chunk chunk = first;
+        while (chunk.lastId() != null) {
+            String cursor = chunk.lastId();
+            chunk = transactionTemplate.execute(status -> repository.copyChunk(cursor, 4));
+        }
+        assertThat(cutover(repository)).isTrue();
+
+        assertThat(partitioned("photos")).isTrue();
+        assertThat(partitioned("photo_tags")).isTrue();
+        assertThat(partitioned("photo_labels")).isTrue();
+        assertThat(repository.isPending()).isFalse();
+        assertThat(cutover(repository)).isFalse();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM photos ORDER BY id", String.class))
+                .containsExactly("u1-0", "u1-1", "u1-3", "u1-4", "u2-0", "u2-1", "u2-2", "u2-3", "u2-4", "u2-5");
+        assertThat(jdbcTemplate.queryForObject("SELECT analysis_status FROM photos WHERE id = 'u2-4'", String.class))
+                .isEqualTo("COMPLETED");
+        assertThat(rows("SELECT photo_id || ':' || user_id || ':' || tag FROM photo_tags"))
+                .containsExactlyInAnyOrder("u1-1:u1:park", "u2-3:u2:city");
+        assertThat(rows("SELECT photo_id || ':' || user_id || ':' || label_name || ':' || confidence FROM photo_labels"))
+                .containsExactlyInAnyOrder("u1-1:u1:Dog:99", "u2-5:u2:Tree:77");
+
+        // The frozen legacy rows don't block deleting a user
+        jdbcTemplate.update("DELETE FROM photo_tags WHERE user_id = 'u2'");
+        jdbcTemplate.update("DELETE FROM photo_labels WHERE user_id = 'u2'");
+        jdbcTemplate.update("DELETE FROM photos WHERE user_id = 'u2'");
+        assertThat(jdbcTemplate.update("DELETE FROM users WHERE id = 'u2'")).isEqualTo(1);
+    }
+
+    private boolean cutover(PhotoPartitioningRepository repository) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> repository.cutover(Duration.ofSeconds(5))));
+    }
+
+    private Flyway flyway(String target) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .locations("classpath:db/migration")
+                .target(target)
+                .cleanDisabled(false)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load();
+    }
+
+    private void insertUser(String id) {
+        jdbcTemplate.update("INSERT INTO users (id, version, username, password, email, created_at) " +
+                "VALUES (?, 0, ?, 'password', ?, ?)", id, id, id + "@example.com", Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private void insertPhoto(String id, String userId) {
+        jdbcTemplate.update("INSERT INTO photos (id, file_name, content_type, size, url, upload_date, user_id) " +
+                        "VALUES (?, ?, 'image/jpeg', 1024, ?, ?, ?)",
+                id, id + ".jpg", "memory://" + id, Timestamp.valueOf(LocalDateTime.now()), userId);
+    }
+
+    private boolean partitioned(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, table));
+    }
+
+    private List<String> rows(String sql) {
+        return jdbcTemplate.queryForList(sql, String.class);
+    }
+}
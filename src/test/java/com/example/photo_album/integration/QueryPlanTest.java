@@ -0,0 +1,269 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the repository queries are served by the indexes from the Flyway migrations, and that
+ * per-user queries on the user-partitioned tables are pruned to a single partition. Sequential scans are
+ * disabled for each EXPLAIN, so the planner falls back to one only when no index applies. Where a repository
+ * method is checked, the SQL Hibernate generates for it is captured and explained.
+ */
+public class QueryPlanTest extends AbstractPostgresqlTest {
+    private static final int USERS = 10;
+    private static final int PHOTOS_PER_USER = 200;
+
+    // SQL of every statement Hibernate prepares
+    private static final List<String> generatedSql = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+        @Bean
+        HibernatePropertiesCustomizer statementCapture() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                generatedSql.add(sql);
+                return sql;
+            });
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int u = 0; u < USERS; u++) {
+            String userId = "user-" + u;
+            jdbcTemplate.update("INSERT INTO users (id, version, username, password, email, created_at) " +
+                    "VALUES (?, 0, ?, 'password', ?, ?)", userId, userId, userId + "@example.com", Timestamp.valueOf(now));
+            jdbcTemplate.update("INSERT INTO albums (id, name, created_at, user_id) VALUES (?, 'Album', ?, ?)",
+                    "album-" + u, Timestamp.valueOf(now), userId);
+
+            List<Object[]> photos = new ArrayList<>();
+            List<Object[]> tags = new ArrayList<>();
+            List<Object[]> labels = new ArrayList<>();
+            List<Object[]> albumPhotos = new ArrayList<>();
+            for (int p = 0; p < PHOTOS_PER_USER; p++) {
+                String photoId = userId + "-photo-" + p;
+                photos.add(new Object[]{photoId, photoId + ".jpg", p % 2 == 0 ? "image/jpeg" : "image/png",
+                        "memory://" + photoId, Timestamp.valueOf(now.minusMinutes(p)), userId});
+                tags.add(new Object[]{photoId, userId, "tag" + (p % 20)});
+                labels.add(new Object[]{photoId, userId, "Label" + (p % 20), 50F + p % 50});
+                albumPhotos.add(new Object[]{"album-" + u, photoId});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO photos (id, file_name, content_type, size, url, upload_date, user_id) " +
+                    "VALUES (?, ?, ?, 1024, ?, ?, ?)", photos);
+            jdbcTemplate.batchUpdate("INSERT INTO photo_tags (photo_id, user_id, tag) VALUES (?, ?, ?)", tags);
+            jdbcTemplate.batchUpdate("INSERT INTO photo_labels (photo_id, user_id, label_name, confidence) VALUES (?, ?, ?, ?)", labels);
+            jdbcTemplate.batchUpdate("INSERT INTO album_photos (album_id, photo_id) VALUES (?, ?)", albumPhotos);
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM album_photos");
+        jdbcTemplate.update("DELETE FROM photo_labels");
+        jdbcTemplate.update("DELETE FROM photo_tags");
+        jdbcTemplate.update("DELETE FROM albums");
+        jdbcTemplate.update("DELETE FROM photos");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void photosByUserPagedByUploadDate() {
+        String plan = explain("SELECT * FROM photos WHERE user_id = 'user-3' ORDER BY upload_date DESC LIMIT 20");
+        assertThat(plan).containsPattern("photos_p\\d\\d_user_id_upload_date_idx");
+        assertThat(partitionsScanned(plan, "photos")).isEqualTo(1);
+        assertNoSort(plan);
+    }
+
+    @Test
+    void photosByContentType() {
+        assertThat(explain("SELECT * FROM photos WHERE content_type = 'image/png'"))
+                .containsPattern("photos_p\\d\\d_content_type_idx");
+    }
+
+    @Test
+    void photosByTag() {
+        assertThat(explain("SELECT p.* FROM photos p JOIN photo_tags t ON t.photo_id = p.id AND t.user_id = p.user_id " +
+                "WHERE t.tag = 'tag7'"))
+                .containsPattern("photo_tags_p\\d\\d_tag_user_id_photo_id_idx");
+    }
+
+    @Test
+    void photosByUserAndTag_PruneToOnePartition() {
+        String plan = explain("SELECT p.* FROM photos p JOIN photo_tags t ON t.photo_id = p.id AND t.user_id = p.user_id " +
+                "WHERE p.user_id = 'user-3' AND t.tag = 'tag7'");
+        assertThat(partitionsScanned(plan, "photos")).isEqualTo(1);
+        assertThat(partitionsScanned(plan, "photo_tags")).isEqualTo(1);
+    }
+
+    @Test
+    void photosByLabelAndMinConfidence() {
+        assertThat(explain("SELECT p.* FROM photos p JOIN photo_labels l ON l.photo_id = p.id AND l.user_id = p.user_id " +
+                "WHERE l.label_name = 'Label4' AND l.confidence >= 90"))
+                .containsPattern("photo_labels_p\\d\\d_label_name_user_id_confidence_idx");
+    }
+
+    @Test
+    void photosByUserAndLabel_PruneToOnePartition() {
+        String plan = explain("SELECT p.* FROM photos p JOIN photo_labels l ON l.photo_id = p.id AND l.user_id = p.user_id " +
+                "WHERE p.user_id = 'user-3' AND l.label_name = 'Label4' AND l.confidence >= 90");
+        assertThat(partitionsScanned(plan, "photos")).isEqualTo(1);
+        assertThat(partitionsScanned(plan, "photo_labels")).isEqualTo(1);
+    }
+
+    @Test
+    void fileNamesInKeyOrder() {
+        String plan = explain("SELECT file_name FROM photos WHERE starts_with(file_name, 'user-1') " +
+                "AND file_name COLLATE \"C\" > '' ORDER BY file_name COLLATE \"C\" LIMIT 20");
+        assertThat(plan).contains("Merge Append").containsPattern("Index (Only )?Scan using photos_p\\d\\d_");
+        assertNoSort(plan);
+        assertThat(explain("SELECT file_name FROM photos WHERE file_name COLLATE \"C\" IN ('user-1-photo-1.jpg', 'x.jpg')"))
+                .containsPattern("Index (Only )?Scan using photos_p\\d\\d_");
+    }
+
+    @Test
+    void albumsByUser() {
+        assertThat(explain("SELECT * FROM albums WHERE user_id = 'user-2'"))
+                .contains("idx_albums_user_last_modified");
+    }
+
+    @Test
+    void albumSummariesByUser() {
+        List<Object[]> albums = new ArrayList<>();
+        for (int a = 0; a < 2000; a++) {
+            albums.add(new Object[]{"album-2-" + a, Timestamp.valueOf(LocalDateTime.now().minusHours(a))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO albums (id, name, created_at, last_modified, user_id) " +
+                "VALUES (?, 'Album', now(), ?, 'user-2')", albums);
+        jdbcTemplate.execute("VACUUM ANALYZE albums");
+
+        String plan = explain("SELECT id, name, photo_count, cover_photo_id, last_modified FROM albums " +
+                "WHERE user_id = 'user-2' ORDER BY last_modified DESC, id");
+        assertThat(plan).contains("Index Only Scan using idx_albums_user_last_modified");
+        assertNoSort(plan);
+    }
+
+    @Test
+    void albumPhotos() {
+        assertThat(explain("SELECT p.* FROM photos p JOIN album_photos ap ON ap.photo_id = p.id WHERE ap.album_id = 'album-2'"))
+                .contains("idx_album_photos_album_photo");
+        assertThat(explain("DELETE FROM album_photos WHERE photo_id = 'user-2-photo-1'"))
+                .contains("idx_album_photos_photo_id");
+    }
+
+    @Test
+    void albumPhotoPageByPosition() {
+        String page = explain("SELECT photo_id, position FROM album_photos WHERE album_id = 'album-2' AND position > 100 " +
+                "ORDER BY position LIMIT 51");
+        assertThat(page).contains("Index Only Scan using idx_album_photos_album_position");
+        assertNoSort(page);
+        String photos = explain("SELECT * FROM photos WHERE user_id = 'user-2' AND id IN ('user-2-photo-1', 'user-2-photo-2')");
+        assertThat(partitionsScanned(photos, "photos")).isEqualTo(1);
+    }
+
+    @Test
+    void userPhotoById_PrunesToOnePartition() {
+        generatedSql.clear();
+        transactionTemplate.executeWithoutResult(status -> assertThat(
+                photoRepository.findByUserAndId(userRepository.getReferenceById("user-2"), "user-2-photo-1")).isPresent());
+        String sql = generatedSql.stream()
+                .filter(statement -> statement.contains(" from photos "))
+                .findFirst()
+                .orElseThrow();
+
+        String plan = explainPrepared(sql, "user-2", "user-2-photo-1");
+        assertThat(plan).containsPattern("Index Scan using photos_p\\d\\d_");
+        assertThat(partitionsScanned(plan, "photos")).isEqualTo(1);
+    }
+
+    @Test
+    void photoCollectionsByPhoto_PruneToOnePartition() {
+        String tags = explain("SELECT tag FROM photo_tags WHERE photo_id = 'user-2-photo-1' AND user_id = 'user-2'");
+        assertThat(tags).containsPattern("photo_tags_p\\d\\d_user_id_photo_id_idx");
+        assertThat(partitionsScanned(tags, "photo_tags")).isEqualTo(1);
+        String labels = explain("SELECT label_name, confidence FROM photo_labels " +
+                "WHERE photo_id = 'user-2-photo-1' AND user_id = 'user-2'");
+        assertThat(labels).containsPattern("photo_labels_p\\d\\d_pkey");
+        assertThat(partitionsScanned(labels, "photo_labels")).isEqualTo(1);
+    }
+
+    private static long partitionsScanned(String plan, String table) {
+        return Pattern.compile("\\b" + table + "_p\\d\\d\\b").matcher(plan).results()
+                .map(MatchResult::group)
+                .distinct()
+                .count();
+    }
+
+    private static void assertNoSort(String plan) {
+        assertThat(plan).doesNotContainPattern("(^|->)\\s*Sort\\s+\\(");
+    }
+
+    /**
+     * Plan of a statement with JDBC placeholders, run with the given string parameters in order.
+     */
+    private String explainPrepared(String sql, String... parameters) {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        assertThat(parameter).isEqualTo(parameters.length);
+        String arguments = String.join(", ", Arrays.stream(parameters).map(p -> "'" + p + "'").toList());
+
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            jdbcTemplate.execute("PREPARE generated AS " + numbered);
+            try {
+                return String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE generated(" + arguments + ")", String.class));
+            } finally {
+                jdbcTemplate.execute("DEALLOCATE generated");
+            }
+        });
+    }
+
+    private String explain(String sql) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+        });
+    }
+}
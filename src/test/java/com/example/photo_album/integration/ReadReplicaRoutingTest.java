@@ -0,0 +1,106 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.config.ReadReplicaDataSource;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.UserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes read-only transactions to a second Postgres container standing in for a replica. The two
+ * databases are not replicating, so which one served a read shows in its result.
+ */
+public class ReadReplicaRoutingTest extends AbstractPostgresqlTest {
+
+    private static final PostgreSQLContainer<?> REPLICA_CONTAINER =
+            new PostgreSQLContainer<>("postgres:15-alpine")
+                    .withDatabaseName("photo_album_replica")
+                    .withUsername("postgres")
+                    .withPassword("789456123");
+
+    static {
+        REPLICA_CONTAINER.start();
+        Flyway.configure()
+                .dataSource(REPLICA_CONTAINER.getJdbcUrl(), REPLICA_CONTAINER.getUsername(), REPLICA_CONTAINER.getPassword())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("datasource.read-replicas.enabled", () -> "true");
+        registry.add("datasource.read-replicas.nodes[0].url", REPLICA_CONTAINER::getJdbcUrl);
+        registry.add("datasource.read-replicas.nodes[0].username", REPLICA_CONTAINER::getUsername);
+        registry.add("datasource.read-replicas.nodes[0].password", REPLICA_CONTAINER::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadReplicaDataSource readReplicaDataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertThat(readReplicaDataSource.getUsableReplicas()).containsExactly("replica-0");
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        String readOnlyDatabase = readOnly.execute(status -> currentDatabase());
+        String readWriteDatabase = readWrite.execute(status -> currentDatabase());
+        assertThat(readOnlyDatabase).isEqualTo("photo_album_replica");
+        assertThat(readWriteDatabase).isNotEqualTo("photo_album_replica");
+        assertThat(currentDatabase()).isNotEqualTo("photo_album_replica");
+    }
+
+    @Test
+    void readOnlyServiceMethodsReadFromTheReplica() {
+        User user = userRepository.save(User.builder()
+                .username("replicated")
+                .email("replicated@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        // Written to the primary, which the replica here never receives
+        assertThat(userService.getUserByUsername("replicated")).isEmpty();
+        Boolean onPrimary = new TransactionTemplate(transactionManager).execute(status ->
+                userRepository.existsByUsername(user.getUsername()));
+        assertThat(onPrimary).isTrue();
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.model.Album;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.AlbumRepository;
+import com.example.photo_album.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The second-level cache serves users, albums and username lookups, and is invalidated by SQL deletions
+ * and, in notify mode, by changes on other nodes.
+ */
+@TestPropertySource(properties = "hibernate-cache.invalidation=notify")
+public class SecondLevelCacheTest extends AbstractPostgresqlTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private User user;
+    private Album album;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepository.save(User.builder()
+                .username("cached")
+                .email("cached@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+        album = albumRepository.save(Album.builder()
+                .id(UUID.randomUUID().toString())
+                .name("Holidays")
+                .createdAt(LocalDateTime.now())
+                .user(user)
+                .build());
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM albums");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void usersAlbumsAndUsernameLookupsAreCached() {
+        for (int i = 0; i < 2; i++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                assertThat(userRepository.findById(user.getId())).isPresent();
+                assertThat(albumRepository.findById(album.getId())).isPresent();
+                assertThat(userRepository.findByUsername("cached")).isPresent();
+            });
+        }
+
+        assertThat(statistics.getDomainDataRegionStatistics("users").getHitCount()).isGreaterThanOrEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("albums").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests").tag("region", "users").meters())
+                .isNotEmpty();
+    }
+
+    @Test
+    void sqlDeletionsAreEvictedOnCommit() {
+        transactionTemplate.executeWithoutResult(status -> albumRepository.findById(album.getId()));
+        assertThat(entityManagerFactory.getCache().contains(Album.class, album.getId())).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM albums WHERE id = ?", album.getId());
+            cacheInvalidator.evictAlbums(user.getId(), List.of(album.getId()));
+        });
+
+        assertThat(entityManagerFactory.getCache().contains(Album.class, album.getId())).isFalse();
+        assertThat(albumRepository.findById(album.getId())).isEmpty();
+    }
+
+    @Test
+    void invalidationsFromOtherNodesAreApplied() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> userRepository.findById(user.getId()));
+        assertThat(entityManagerFactory.getCache().contains(User.class, user.getId())).isTrue();
+
+        // Another node changed the user
+        jdbcTemplate.update("UPDATE users SET email = 'changed@example.com' WHERE id = ?", user.getId());
+        jdbcTemplate.queryForList("SELECT pg_notify('photo_album_cache', ?)", "user:" + user.getId());
+
+        await(() -> !entityManagerFactory.getCache().contains(User.class, user.getId()));
+        assertThat(userRepository.findById(user.getId())).get()
+                .extracting(User::getEmail).isEqualTo("changed@example.com");
+    }
+
+    @Test
+    void jpaChangesAreBroadcastOnCommit() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN photo_album_cache");
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    albumRepository.findById(album.getId()).orElseThrow().setName("Renamed"));
+
+            List<String> messages = new ArrayList<>();
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (messages.isEmpty() && System.currentTimeMillis() < deadline) {
+                PGNotification[] notifications = pgConnection.getNotifications(500);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        messages.add(notification.getParameter());
+                    }
+                }
+            }
+            assertThat(messages).containsExactly("album:" + user.getId() + ":" + album.getId());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
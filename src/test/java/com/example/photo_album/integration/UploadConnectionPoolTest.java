@@ -0,0 +1,138 @@
+package com.example.photo_album.integration;
+
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uploads must not hold a pooled connection while the object is being stored. With the old
+ * {@code @Transactional} upload, more slow uploads than {@code maximum-pool-size} starved every other
+ * request of connections; the Hikari acquire timer shows the wait. Uploads go through the web layer, where
+ * open-in-view would otherwise hold the connection of the upload's first query.
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=4",
+        // More concurrent uploads than the admission control lets through
+        "rate-limit.enabled=false"
+})
+public class UploadConnectionPoolTest extends AbstractPostgresqlTest {
+    private static final int UPLOADS = 8;
+
+    private static final CountDownLatch uploadsStarted = new CountDownLatch(UPLOADS);
+    private static final CountDownLatch releaseUploads = new CountDownLatch(1);
+
+    @TestConfiguration
+    static class SlowStorageConfig {
+        @Bean
+        @Primary
+        PhotoStorage slowPhotoStorage() {
+            return new InMemoryPhotoStorage() {
+                @Override
+                public void put(String key, InputStream content, long contentLength, String contentType)
+                        throws IOException {
+                    uploadsStarted.countDown();
+                    try {
+                        releaseUploads.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.put(key, content, contentLength, contentType);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        photoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void slowUploadsDoNotHoldConnections() throws Exception {
+        User user = userRepository.save(User.builder()
+                .username("uploader")
+                .email("uploader@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        assertThat(hikari.getMaximumPoolSize()).isLessThan(UPLOADS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(UPLOADS);
+        List<Future<?>> uploads = new ArrayList<>();
+        for (int i = 0; i < UPLOADS; i++) {
+            MockMultipartFile file = new MockMultipartFile("file", "photo" + i + ".jpg", "image/jpeg", new byte[1024]);
+            uploads.add(executor.submit(() -> mockMvc.perform(multipart("/api/photos").file(file).with(user(user.getId())))
+                    .andExpect(status().isOk())));
+        }
+
+        try {
+            assertThat(uploadsStarted.await(30, TimeUnit.SECONDS)).isTrue();
+
+            // Every upload is blocked in storage, yet no connection is checked out and queries still run
+            assertThat(hikari.getHikariPoolMXBean().getActiveConnections()).isZero();
+            assertThat(hikari.getHikariPoolMXBean().getThreadsAwaitingConnection()).isZero();
+            assertThat(userRepository.findById(user.getId())).isPresent();
+        } finally {
+            releaseUploads.countDown();
+        }
+
+        for (Future<?> upload : uploads) {
+            upload.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertThat(photoRepository.findByUser(user, Pageable.unpaged()).getTotalElements()).isEqualTo(UPLOADS);
+
+        // No upload ever queued for a connection behind the ones blocked in storage
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        assertThat(acquire).isNotNull();
+        assertThat(acquire.count()).isPositive();
+        assertThat(acquire.max(TimeUnit.MILLISECONDS)).isLessThan(1000);
+    }
+}
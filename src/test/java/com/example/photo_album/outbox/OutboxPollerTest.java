@@ -0,0 +1,109 @@
+package com.example.photo_album.outbox;
+
+import com.example.photo_album.config.OutboxProperties;
+import com.example.photo_album.model.OutboxEvent;
+import com.example.photo_album.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxPollerTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final OutboxProperties properties = new OutboxProperties();
+    private final List<String> handled = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchSize(2);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void poll_DrainsFullBatchesAndDeletesDeliveredEvents() {
+        OutboxEvent first = event(1L, "a");
+        OutboxEvent second = event(2L, "b");
+        OutboxEvent third = event(3L, "c");
+        when(outboxEventRepository.lockDueEvents(any(), eq(10), eq(2)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+
+        int delivered = poller(event -> handled.add(event.getAggregateId())).poll();
+
+        assertThat(delivered).isEqualTo(3);
+        assertThat(handled).containsExactly("a", "b", "c");
+        verify(outboxEventRepository).deleteAllInBatch(List.of(first, second));
+        verify(outboxEventRepository).deleteAllInBatch(List.of(third));
+    }
+
+    @Test
+    void poll_FailedEventIsRescheduledWithBackoff() {
+        OutboxEvent failing = event(1L, "bad");
+        OutboxEvent ok = event(2L, "good");
+        failing.setAttempts(2);
+        when(outboxEventRepository.lockDueEvents(any(), anyInt(), anyInt()))
+                .thenReturn(List.of(failing, ok))
+                .thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+
+        int delivered = poller(event -> {
+            if (event.getAggregateId().equals("bad")) {
+                throw new IllegalStateException("boom");
+            }
+        }).poll();
+
+        assertThat(delivered).isEqualTo(1);
+        verify(outboxEventRepository).deleteAllInBatch(List.of(ok));
+        assertThat(failing.getAttempts()).isEqualTo(3);
+        assertThat(failing.getLastError()).contains("boom");
+        // Third failure waits 4x the base backoff
+        assertThat(failing.getAvailableAt()).isAfterOrEqualTo(before.plus(properties.getRetryBackoff().multipliedBy(4)));
+    }
+
+    private OutboxPoller poller(Consumer<OutboxEvent> handler) {
+        OutboxEventHandler eventHandler = new OutboxEventHandler() {
+            @Override
+            public String eventType() {
+                return PhotoUploadedEvent.TYPE;
+            }
+
+            @Override
+            public void handle(OutboxEvent event) {
+                handler.accept(event);
+            }
+        };
+        return new OutboxPoller(outboxEventRepository, transactionTemplate, properties, List.of(eventHandler));
+    }
+
+    private static OutboxEvent event(Long id, String aggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        return OutboxEvent.builder()
+                .id(id)
+                .eventType(PhotoUploadedEvent.TYPE)
+                .aggregateId(aggregateId)
+                .payload("{}")
+                .createdAt(now)
+                .availableAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.photo_album.performance;
+
+import com.example.photo_album.integration.AbstractPostgresqlTest;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the batch upload and tagging write paths with JDBC batching switched off for the
+ * session (one statement per photo, tag and label row) and with the configured batch size.
+ * Timing depends on the machine, so it only runs on demand: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class JdbcBatchingBenchmarkTest extends AbstractPostgresqlTest {
+    private static final Logger log = LoggerFactory.getLogger(JdbcBatchingBenchmarkTest.class);
+    private static final int PHOTOS = 500;
+    private static final int LABELS_PER_PHOTO = 10;
+    private static final int TAGS_PER_PHOTO = 3;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .username("bench")
+                .email("bench@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        photoRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void batchingSpeedsUpUploadsAndTagging() {
+        // Warm up connections and statement caches
+        run(1);
+        run(50);
+
+        long unbatched = run(1);
+        long batched = run(50);
+
+        log.info("{} photos with {} labels and {} tags: unbatched {} ms, batched {} ms ({}x)",
+                PHOTOS, LABELS_PER_PHOTO, TAGS_PER_PHOTO, unbatched / 1_000_000, batched / 1_000_000,
+                String.format("%.1f", (double) unbatched / batched));
+        assertThat(batched).isLessThan(unbatched);
+    }
+
+    /**
+     * Insert the photos, then tag each of them, with the given JDBC batch size.
+     *
+     * @return elapsed nanoseconds
+     */
+    private long run(int batchSize) {
+        List<String> ids = new ArrayList<>();
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (int i = 0; i < PHOTOS; i++) {
+                Photo photo = newPhoto();
+                entityManager.persist(photo);
+                ids.add(photo.getId());
+            }
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (Photo photo : photoRepository.findAllById(ids)) {
+                for (int t = 0; t < TAGS_PER_PHOTO; t++) {
+                    photo.getTags().add("tag" + t);
+                }
+            }
+        });
+        long elapsed = System.nanoTime() - start;
+        transactionTemplate.executeWithoutResult(status -> photoRepository.deleteAllById(ids));
+        return elapsed;
+    }
+
+    private Photo newPhoto() {
+        Map<String, Float> labels = new HashMap<>();
+        for (int l = 0; l < LABELS_PER_PHOTO; l++) {
+            labels.put("Label" + l, 80F + l);
+        }
+        String id = UUID.randomUUID().toString();
+        return Photo.builder()
+                .id(id)
+                .fileName(id + "_bench.jpg")
+                .contentType("image/jpeg")
+                .size(1024)
+                .url("memory://" + id)
+                .uploadDate(LocalDateTime.now())
+                .labels(labels)
+                .tags(new ArrayList<>())
+                .user(user)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.photo_album.performance;
+
+import com.example.photo_album.dto.PhotoSummary;
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.model.Photo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payload size and serialization CPU of a 50-photo listing page: the full Photo entities the listing
+ * returned before, against the compact summaries as JSON and CBOR, each also gzipped as the server sends them.
+ */
+class ListingPayloadBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(ListingPayloadBenchmarkTest.class);
+
+    private static final int PAGE_SIZE = 50;
+    private static final int LABELS_PER_PHOTO = 25;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+    @Test
+    void compactListing_IsSmallerAndCheaperToSerialize() throws Exception {
+        Page<Photo> page = new PageImpl<>(photos(), PageRequest.of(0, PAGE_SIZE, Sort.by("uploadDate")), 5000);
+
+        Result full = measure("full entities, JSON", jsonMapper, page);
+        Result compactJson = measure("summaries, JSON", jsonMapper, new PagedModel<>(page.map(PhotoSummary::from)));
+        Result compactCbor = measure("summaries, CBOR", cborMapper, new PagedModel<>(page.map(PhotoSummary::from)));
+
+        assertThat(compactJson.bytes()).isLessThan(full.bytes());
+        assertThat(compactCbor.bytes()).isLessThan(compactJson.bytes());
+        assertThat(compactJson.gzippedBytes()).isLessThan(compactJson.bytes() / 2);
+    }
+
+    private Result measure(String name, ObjectMapper mapper, Object body) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        byte[] serialized = null;
+        for (int i = 0; i < WARMUP; i++) {
+            serialized = mapper.writeValueAsBytes(body);
+        }
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serialized = mapper.writeValueAsBytes(body);
+        }
+        double cpuMicros = (threads.getCurrentThreadCpuTime() - start) / 1000.0 / ITERATIONS;
+
+        Result result = new Result(serialized.length, gzip(serialized).length, cpuMicros);
+        log.info("Listing page ({}): {} bytes, {} gzipped, {} us CPU to serialize",
+                name, result.bytes(), result.gzippedBytes(), Math.round(result.cpuMicros()));
+        return result;
+    }
+
+    private record Result(int bytes, int gzippedBytes, double cpuMicros) {
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Photo> photos() {
+        List<Photo> photos = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Map<String, Float> labels = new HashMap<>();
+            for (int l = 0; l < LABELS_PER_PHOTO; l++) {
+                labels.put("Label " + l, 99F - l * 0.73F);
+            }
+            String fileName = UUID.randomUUID() + "_IMG_" + (1000 + i) + ".jpg";
+            photos.add(Photo.builder()
+                    .id(UUID.randomUUID().toString())
+                    .fileName(fileName)
+                    .contentType("image/jpeg")
+                    .size(3_500_000L + i)
+                    .url("https://photo-album-dev-eu-north-1.s3.eu-north-1.amazonaws.com/" + fileName)
+                    .uploadDate(LocalDateTime.now().minusDays(i))
+                    .tags(new ArrayList<>(List.of("holiday", "family")))
+                    .labels(labels)
+                    .analysisStatus(AnalysisStatus.COMPLETED)
+                    .analysisVersion(2)
+                    .albums(new ArrayList<>())
+                    .build());
+        }
+        return photos;
+    }
+}
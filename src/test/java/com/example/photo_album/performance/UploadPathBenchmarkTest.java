@@ -0,0 +1,92 @@
+package com.example.photo_album.performance;
+
+import com.amazonaws.services.rekognition.AmazonRekognition;
+import com.amazonaws.services.rekognition.model.DetectLabelsRequest;
+import com.amazonaws.services.rekognition.model.DetectLabelsResult;
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.model.User;
+import com.example.photo_album.outbox.OutboxPublisher;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.service.ImageAnalysisService;
+import com.example.photo_album.service.PhotoService;
+import com.example.photo_album.service.PhotoUrlService;
+import com.example.photo_album.storage.LocalPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Offline benchmark of the upload path against the local storage backend.
+ */
+class UploadPathBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(UploadPathBenchmarkTest.class);
+
+    private static final int UPLOADS = 200;
+    private static final int PHOTO_BYTES = 256 * 1024;
+
+    @TempDir
+    private Path storageDir;
+
+    @Test
+    void uploadPath_RunsOfflineAgainstLocalStorage() throws Exception {
+        User user = User.builder()
+                .id("bench-user")
+                .username("bench")
+                .email("bench@example.com")
+                .password("password")
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        UserRepository userRepository = mock(UserRepository.class);
+        PhotoRepository photoRepository = mock(PhotoRepository.class);
+        OutboxPublisher outboxPublisher = mock(OutboxPublisher.class);
+        SecondLevelCacheInvalidator cacheInvalidator = mock(SecondLevelCacheInvalidator.class);
+        AmazonRekognition rekognition = mock(AmazonRekognition.class);
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(photoRepository.save(any(Photo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(rekognition.detectLabels(any(DetectLabelsRequest.class))).thenReturn(new DetectLabelsResult().withLabels(List.of()));
+
+        PhotoStorage storage = new LocalPhotoStorage(storageDir, "");
+        PhotoService photoService = new PhotoService(storage,
+                new PhotoUrlService(storage, new StorageProperties.Urls(), Clock.systemUTC()),
+                new ImageAnalysisService(rekognition, storage, new RekognitionProperties()),
+                photoRepository, userRepository, outboxPublisher, cacheInvalidator,
+                TransactionOperations.withoutTransaction());
+        MockMultipartFile file = new MockMultipartFile("file", "bench.jpg", "image/jpeg", new byte[PHOTO_BYTES]);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < UPLOADS; i++) {
+            photoService.uploadPhotoForUser(user.getId(), file);
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        log.info("Local storage upload path: {} uploads/s, {} MB/s", Math.round(UPLOADS / seconds),
+                String.format("%.1f", UPLOADS * (double) PHOTO_BYTES / (1024 * 1024) / seconds));
+
+        try (var files = Files.list(storageDir)) {
+            assertThat(files).hasSize(UPLOADS);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.photo_album.performance;
+
+import com.amazonaws.services.rekognition.AmazonRekognition;
+import com.amazonaws.services.rekognition.model.DetectLabelsRequest;
+import com.amazonaws.services.rekognition.model.DetectLabelsResult;
+import com.example.photo_album.integration.AbstractPostgresqlTest;
+import com.example.photo_album.model.User;
+import com.example.photo_album.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test of the application in its two execution modes: Tomcat's 200-thread platform pool and
+ * {@code spring.threads.virtual.enabled=true}. Each mode boots the app on a random port with in-memory storage
+ * and a Rekognition stub that blocks like the remote call, then concurrent clients upload photos and list them
+ * over HTTP. Timing depends on the machine, so it only runs on demand: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class VirtualThreadThroughputTest {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadThroughputTest.class);
+
+    private static final int USERS = 20;
+    private static final int CLIENTS = 1_000;
+    // Each client uploads a photo and then lists its user's photos this many times
+    private static final int ROUNDS = 2;
+    private static final int WARMUP_CLIENTS = 100;
+    private static final long REKOGNITION_MILLIS = 500;
+    private static final String PASSWORD = "password";
+    private static final String BOUNDARY = "photo-album-load-test";
+
+    private static final Map<String, Double> throughputByMode = new ConcurrentHashMap<>();
+
+    @TestConfiguration
+    static class SlowRekognitionConfig {
+        @Bean
+        @Primary
+        AmazonRekognition slowRekognition() {
+            AmazonRekognition rekognition = mock(AmazonRekognition.class);
+            when(rekognition.detectLabels(any(DetectLabelsRequest.class))).thenAnswer(invocation -> {
+                Thread.sleep(REKOGNITION_MILLIS);
+                return new DetectLabelsResult().withLabels(List.of());
+            });
+            return rekognition;
+        }
+    }
+
+    @AfterAll
+    static void compareModes() {
+        Double platform = throughputByMode.get("platform");
+        Double virtual = throughputByMode.get("virtual");
+        // Only when both modes were run
+        if (platform == null || virtual == null) {
+            return;
+        }
+        log.info("Platform threads: {} req/s, virtual threads: {} req/s ({}x)", Math.round(platform),
+                Math.round(virtual), String.format("%.1f", virtual / platform));
+
+        // Uploads wait on Rekognition while holding a request thread; the platform pool runs at most 200 at once
+        assertThat(virtual).isGreaterThan(platform);
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.threads.virtual.enabled=false",
+            "server.tomcat.threads.max=200"
+    })
+    class PlatformThreads extends ModeLoad {
+        PlatformThreads() {
+            super("platform");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.threads.virtual.enabled=true",
+            "server.tomcat.threads.max=200"
+    })
+    class VirtualThreads extends ModeLoad {
+        VirtualThreads() {
+            super("virtual");
+        }
+    }
+
+    /**
+     * The load run against one application context; the mode comes from the subclass's properties.
+     */
+    @Import(SlowRekognitionConfig.class)
+    @TestPropertySource(properties = {
+            "storage.type=memory",
+            "rate-limit.enabled=false",
+            // Every upload gets its (stubbed) analysis rather than skipping it when the slots are taken
+            "rekognition.bulkhead.max-concurrent-calls=100000",
+            "rekognition.bulkhead.max-wait=30s",
+            "rekognition.circuit-breaker.slow-call-threshold=30s",
+            "spring.jpa.show-sql=false"
+    })
+    abstract class ModeLoad extends AbstractPostgresqlTest {
+        private final String mode;
+        private final List<String> usernames = new ArrayList<>();
+
+        @LocalServerPort
+        private int port;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        ModeLoad(String mode) {
+            this.mode = mode;
+        }
+
+        @BeforeEach
+        void setUp() {
+            // Basic authentication runs on every request; a low BCrypt cost keeps it from dominating the load
+            String password = new BCryptPasswordEncoder(4).encode(PASSWORD);
+            for (int u = 0; u < USERS; u++) {
+                String username = mode + "-load-" + u;
+                userRepository.save(User.builder()
+                        .username(username)
+                        .email(username + "@example.com")
+                        .password(password)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                usernames.add(username);
+            }
+        }
+
+        @AfterEach
+        void tearDown() {
+            jdbcTemplate.update("DELETE FROM outbox_events");
+            jdbcTemplate.update("DELETE FROM photo_labels");
+            jdbcTemplate.update("DELETE FROM photo_tags");
+            jdbcTemplate.update("DELETE FROM photos");
+            jdbcTemplate.update("DELETE FROM users");
+        }
+
+        @Test
+        void uploadsAndListingsUnderLoad() throws Exception {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            runLoad(client, WARMUP_CLIENTS);
+
+            long start = System.nanoTime();
+            int requests = runLoad(client, CLIENTS);
+            double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            double throughput = requests / seconds;
+            throughputByMode.put(mode, throughput);
+            log.info("{} threads: {} requests from {} clients in {} s, {} req/s", mode, requests, CLIENTS,
+                    String.format("%.2f", seconds), Math.round(throughput));
+        }
+
+        /**
+         * Run the given number of concurrent clients to completion.
+         *
+         * @return the number of requests made, all of which succeeded
+         */
+        private int runLoad(HttpClient client, int clients) throws Exception {
+            AtomicInteger failures = new AtomicInteger();
+            List<Future<?>> running = new ArrayList<>(clients);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < clients; c++) {
+                    String username = usernames.get(c % usernames.size());
+                    running.add(executor.submit(() -> {
+                        for (int round = 0; round < ROUNDS; round++) {
+                            if (client.send(upload(username), HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                failures.incrementAndGet();
+                            }
+                            if (client.send(listing(username), HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : running) {
+                    future.get();
+                }
+            }
+            assertThat(failures).hasValue(0);
+            return clients * ROUNDS * 2;
+        }
+
+        private HttpRequest upload(String username) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.writeBytes(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"load.jpg\"\r\n"
+                    + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(new byte[16 * 1024]);
+            body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            return request(username, "/api/photos")
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                    .build();
+        }
+
+        private HttpRequest listing(String username) {
+            return request(username, "/api/photos?page=0&size=20").GET().build();
+        }
+
+        private HttpRequest.Builder request(String username, String path) {
+            String credentials = Base64.getEncoder()
+                    .encodeToString((username + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                    .header("Authorization", "Basic " + credentials);
+        }
+    }
+}
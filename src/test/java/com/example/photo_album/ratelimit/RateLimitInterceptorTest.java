@@ -0,0 +1,91 @@
+package com.example.photo_album.ratelimit;
+
+import com.example.photo_album.config.RateLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitInterceptorTest {
+
+    private final RateLimitProperties properties = new RateLimitProperties();
+    private RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        properties.setUploadRequestBurst(2);
+        properties.setUploadRequestsPerSecond(2);
+        properties.setUploadBytesBurst(100);
+        properties.setUploadBytesPerSecond(100);
+        properties.setReadRequestBurst(1);
+        properties.setReadRequestsPerSecond(1);
+        interceptor = new RateLimitInterceptor(new UserRateLimiter(properties),
+                new UploadAdmissionControl(1, Duration.ofMillis(10)));
+    }
+
+    @Test
+    void preHandle_RejectsExhaustedReadsWithRetryAfter() throws Exception {
+        assertThat(handle(read()).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = handle(read());
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    void preHandle_UploadRejectedForBytesKeepsRequestQuota() throws Exception {
+        MockHttpServletRequest first = upload(100);
+        assertThat(handle(first).getStatus()).isEqualTo(200);
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+
+        MockHttpServletResponse tooLarge = handle(upload(50));
+        assertThat(tooLarge.getStatus()).isEqualTo(429);
+        assertThat(tooLarge.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        // The second request token is still there for an upload that fits
+        assertThat(handle(upload(0)).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void preHandle_RejectsUploadsBeyondConcurrencyCapWith503() throws Exception {
+        assertThat(handle(upload(10)).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse queuedOut = handle(upload(10));
+
+        assertThat(queuedOut.getStatus()).isEqualTo(503);
+        assertThat(queuedOut.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    void preHandle_RequiresContentLengthForUploads() throws Exception {
+        MockHttpServletRequest chunked = upload(0);
+        chunked.setContent(null);
+
+        assertThat(handle(chunked).getStatus()).isEqualTo(411);
+    }
+
+    private MockHttpServletResponse handle(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        return response;
+    }
+
+    private static MockHttpServletRequest read() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/photos");
+        request.setUserPrincipal(() -> "alice");
+        return request;
+    }
+
+    private static MockHttpServletRequest upload(int bytes) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/photos");
+        request.setUserPrincipal(() -> "alice");
+        request.setContent(new byte[bytes]);
+        return request;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.photo_album.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void tryConsume_AllowsBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(3, 1, now::get);
+
+        assertThat(bucket.tryConsume(1)).isZero();
+        assertThat(bucket.tryConsume(1)).isZero();
+        assertThat(bucket.tryConsume(1)).isZero();
+
+        // Empty bucket refills one token per second
+        assertThat(bucket.tryConsume(1)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void tryConsume_RefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(2, 2, now::get);
+        bucket.tryConsume(2);
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertThat(bucket.tryConsume(1)).isZero();
+        assertThat(bucket.tryConsume(1)).isPositive();
+    }
+
+    @Test
+    void tryConsume_OversizedRequestGoesIntoDebt() {
+        TokenBucket bucket = new TokenBucket(100, 100, now::get);
+
+        // Larger than the bucket: allowed once when full, then the debt must be repaid
+        assertThat(bucket.tryConsume(300)).isZero();
+        assertThat(bucket.tryConsume(1)).isEqualTo(TimeUnit.SECONDS.toNanos(2) + TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(bucket.isFull()).isFalse();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertThat(bucket.isFull()).isTrue();
+    }
+
+    @Test
+    void refund_ReturnsTokensUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 1, now::get);
+        bucket.tryConsume(2);
+
+        bucket.refund(1);
+        assertThat(bucket.tryConsume(1)).isZero();
+
+        bucket.refund(5);
+        assertThat(bucket.isFull()).isTrue();
+        assertThat(bucket.tryConsume(3)).isZero();
+        assertThat(bucket.tryConsume(1)).isPositive();
+    }
+}
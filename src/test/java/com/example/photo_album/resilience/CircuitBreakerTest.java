@@ -0,0 +1,84 @@
+package com.example.photo_album.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), now::get);
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        recordSuccess();
+        recordSuccess();
+        recordFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void halfOpenAllowsSingleProbeAndClosesOnSuccess() {
+        tripOpen();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        // Only one probe at a time
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void failedProbeReopensCircuit() {
+        tripOpen();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void releasedProbeCanBeRetried() {
+        tripOpen();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.release();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            recordFailure();
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void recordSuccess() {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onSuccess();
+    }
+
+    private void recordFailure() {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.outbox.ObjectsDeletedEvent;
+import com.example.photo_album.outbox.OutboxPublisher;
+import com.example.photo_album.repository.AccountDeletionRepository;
+import com.example.photo_album.repository.AccountDeletionRepository.PhotoKey;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountDeletionServiceTest {
+    private static final String USER_ID = "user-1";
+
+    @Mock
+    private AccountDeletionRepository accountDeletionRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
+    private AccountDeletionService accountDeletionService;
+    private JobCheckpoint checkpoint;
+
+    @BeforeEach
+    void setUp() {
+        accountDeletionService = new AccountDeletionService(accountDeletionRepository, checkpointRepository,
+                outboxPublisher, cacheInvalidator, TransactionOperations.withoutTransaction(), 2, Duration.ofMinutes(2));
+        checkpoint = JobCheckpoint.builder()
+                .jobName(AccountDeletionService.JOB_PREFIX + USER_ID)
+                .cursor("")
+                .startedAt(LocalDateTime.now())
+                .build();
+        lenient().when(checkpointRepository.findById(checkpoint.getJobName())).thenReturn(Optional.of(checkpoint));
+        lenient().when(checkpointRepository.claim(eq(checkpoint.getJobName()), anyString(), eq(120L))).thenReturn(1);
+    }
+
+    @Test
+    void deleteAccount_DeletesPhotosAndAlbumsInChunksThenUser() {
+        when(accountDeletionRepository.findPhotos(USER_ID, 2))
+                .thenReturn(List.of(new PhotoKey("p1", "a.jpg"), new PhotoKey("p2", "b.jpg")))
+                .thenReturn(List.of(new PhotoKey("p3", "c.jpg")))
+                .thenReturn(List.of());
+        when(accountDeletionRepository.findAlbumIds(USER_ID, 2))
+                .thenReturn(List.of("album-1"))
+                .thenReturn(List.of());
+        when(accountDeletionRepository.findPhotos(USER_ID, 1)).thenReturn(List.of());
+        when(accountDeletionRepository.findAlbumIds(USER_ID, 1)).thenReturn(List.of());
+
+        accountDeletionService.deleteAccount(USER_ID);
+
+        InOrder inOrder = inOrder(accountDeletionRepository);
+        inOrder.verify(accountDeletionRepository).deletePhotos(USER_ID, List.of("p1", "p2"));
+        inOrder.verify(accountDeletionRepository).deletePhotos(USER_ID, List.of("p3"));
+        inOrder.verify(accountDeletionRepository).deleteAlbums(List.of("album-1"));
+        inOrder.verify(accountDeletionRepository).deleteUser(USER_ID);
+        verify(checkpointRepository).deleteByJobNameStartingWith("photo-import:" + USER_ID + ":");
+        verify(cacheInvalidator).evictAlbums(USER_ID, List.of("album-1"));
+        verify(cacheInvalidator).evictUser(USER_ID);
+        verify(cacheInvalidator, times(2)).evictPhotoListings(USER_ID);
+
+        // Stored objects are queued for deletion chunk by chunk
+        ArgumentCaptor<ObjectsDeletedEvent> events = ArgumentCaptor.forClass(ObjectsDeletedEvent.class);
+        verify(outboxPublisher, times(2)).publish(eq(ObjectsDeletedEvent.TYPE), eq(USER_ID), events.capture());
+        assertThat(events.getAllValues()).extracting(ObjectsDeletedEvent::keys)
+                .containsExactly(List.of("a.jpg", "b.jpg"), List.of("c.jpg"));
+
+        assertThat(checkpoint.getProcessed()).isEqualTo(3);
+        assertThat(checkpoint.getSucceeded()).isEqualTo(1);
+        assertThat(checkpoint.isFinished()).isTrue();
+    }
+
+    @Test
+    void deleteAccount_PicksUpPhotosAddedDuringDeletion() {
+        when(accountDeletionRepository.findPhotos(USER_ID, 2))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new PhotoKey("late", "late.jpg")))
+                .thenReturn(List.of());
+        when(accountDeletionRepository.findAlbumIds(USER_ID, 2)).thenReturn(List.of());
+        when(accountDeletionRepository.findPhotos(USER_ID, 1))
+                .thenReturn(List.of(new PhotoKey("late", "late.jpg")))
+                .thenReturn(List.of());
+        when(accountDeletionRepository.findAlbumIds(USER_ID, 1)).thenReturn(List.of());
+
+        accountDeletionService.deleteAccount(USER_ID);
+
+        verify(accountDeletionRepository).deletePhotos(USER_ID, List.of("late"));
+        verify(accountDeletionRepository).deleteUser(USER_ID);
+    }
+
+    @Test
+    void deleteAccount_LeavesDeletionClaimedByAnotherNode() {
+        when(checkpointRepository.claim(eq(checkpoint.getJobName()), anyString(), eq(120L))).thenReturn(0);
+
+        accountDeletionService.deleteAccount(USER_ID);
+
+        verify(accountDeletionRepository, never()).findPhotos(anyString(), anyInt());
+        verify(accountDeletionRepository, never()).deleteUser(anyString());
+    }
+
+    @Test
+    void deleteAccount_StopsWhenAnotherNodeTakesOver() {
+        when(checkpointRepository.claim(eq(checkpoint.getJobName()), anyString(), eq(120L)))
+                .thenReturn(1)
+                .thenReturn(0);
+
+        assertThatThrownBy(() -> accountDeletionService.deleteAccount(USER_ID))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(accountDeletionRepository, never()).deletePhotos(anyString(), anyList());
+    }
+
+    @Test
+    void requestDeletion_RejectsUnknownUserWithoutCheckpoint() {
+        when(accountDeletionRepository.userExists("missing")).thenReturn(false);
+
+        assertThatThrownBy(() -> accountDeletionService.requestDeletion("missing"))
+                .isInstanceOf(NoSuchElementException.class);
+
+        verify(checkpointRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.repository.AlbumRepository.ExportedPhoto;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class AlbumExportServiceTest {
+    private static final String USER_ID = "user";
+    private static final String ALBUM_ID = "album";
+
+    @Mock
+    private AlbumService albumService;
+
+    private final AtomicInteger openObjects = new AtomicInteger();
+    private final AtomicInteger maxOpenObjects = new AtomicInteger();
+    private final InMemoryPhotoStorage storage = new InMemoryPhotoStorage() {
+        @Override
+        public InputStream open(String key) throws IOException {
+            maxOpenObjects.accumulateAndGet(openObjects.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                return super.open(key);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                openObjects.decrementAndGet();
+            }
+        }
+    };
+    private final List<ExportedPhoto> photos = new ArrayList<>();
+    private final List<byte[]> contents = new ArrayList<>();
+    private AlbumExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties.Export settings = new StorageProperties.Export();
+        settings.setMaxConcurrentExports(1);
+        settings.setPrefetchWindow(3);
+        settings.setPrefetchBuffer(DataSize.ofKilobytes(64));
+        settings.setPageSize(4);
+        exportService = new AlbumExportService(albumService, storage, settings);
+
+        lenient().when(albumService.getUserAlbumExportPage(eq(USER_ID), eq(ALBUM_ID), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            return photos.stream().filter(photo -> photo.getPosition() > after).limit(limit).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportService.shutdown();
+    }
+
+    @Test
+    void export_WritesEveryPhotoInAlbumOrder() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            addPhoto("IMG_" + (100 - i) + ".jpg", "image/jpeg", 4096);
+        }
+
+        List<ZipEntry> entries = new ArrayList<>();
+        List<byte[]> exported = unzip(export(), entries);
+
+        assertThat(entries).extracting(ZipEntry::getName)
+                .startsWith("0001_IMG_100.jpg", "0002_IMG_99.jpg")
+                .hasSize(10);
+        assertThat(exported).containsExactlyElementsOf(contents);
+        assertThat(maxOpenObjects.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void export_StoresCompressedFormatsAndDeflatesOthers() throws IOException {
+        addPhoto("photo.jpg", "image/jpeg", 4096);
+        addPhoto("scan.tiff", "image/tiff", 4096);
+        // Larger than the prefetch buffer, so streamed without a CRC up front
+        addPhoto("panorama.jpg", "image/jpeg", 100 * 1024);
+
+        List<ZipEntry> entries = new ArrayList<>();
+        List<byte[]> exported = unzip(export(), entries);
+
+        assertThat(entries).extracting(ZipEntry::getMethod)
+                .containsExactly(ZipEntry.STORED, ZipEntry.DEFLATED, ZipEntry.DEFLATED);
+        assertThat(exported).containsExactlyElementsOf(contents);
+    }
+
+    @Test
+    void export_FailsWhenAnObjectIsMissing() {
+        addPhoto("photo.jpg", "image/jpeg", 1024);
+        photos.add(new Exported(photos.size() + 1, UUID.randomUUID() + "_gone.jpg", "image/jpeg", 1024));
+
+        assertThatThrownBy(this::export).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void entryName_DropsKeyPrefixAndPathSeparators() {
+        ExportedPhoto photo = new Exported(1, UUID.randomUUID() + "_../holiday/beach.jpg", "image/jpeg", 1);
+
+        assertThat(AlbumExportService.entryName(photo, 12)).isEqualTo("0012_.._holiday_beach.jpg");
+    }
+
+    @Test
+    void exportSlots_AreLimited() {
+        assertThat(exportService.tryBeginExport()).isTrue();
+        assertThat(exportService.tryBeginExport()).isFalse();
+        exportService.endExport();
+        assertThat(exportService.tryBeginExport()).isTrue();
+    }
+
+    private void addPhoto(String originalName, String contentType, int size) {
+        byte[] content = new byte[size];
+        new Random(photos.size()).nextBytes(content);
+        String key = UUID.randomUUID() + "_" + originalName;
+        try {
+            storage.put(key, new ByteArrayInputStream(content), size, contentType);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // Positions are not contiguous
+        photos.add(new Exported(photos.size() * 3L + 1, key, contentType, size));
+        contents.add(content);
+    }
+
+    private record Exported(long position, String fileName, String contentType, long size) implements ExportedPhoto {
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public String getFileName() {
+            return fileName;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public LocalDateTime getUploadDate() {
+            return LocalDateTime.of(2024, 5, 1, 12, 0);
+        }
+    }
+
+    private byte[] export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(USER_ID, ALBUM_ID, out);
+        return out.toByteArray();
+    }
+
+    private static List<byte[]> unzip(byte[] archive, List<ZipEntry> entries) throws IOException {
+        List<byte[]> contents = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry);
+                contents.add(zip.readAllBytes());
+            }
+        }
+        return contents;
+    }
+}
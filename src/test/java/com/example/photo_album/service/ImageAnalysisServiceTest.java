@@ -0,0 +1,89 @@
+package com.example.photo_album.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.rekognition.AmazonRekognition;
+import com.amazonaws.services.rekognition.model.AmazonRekognitionException;
+import com.amazonaws.services.rekognition.model.DetectLabelsRequest;
+import com.amazonaws.services.rekognition.model.DetectLabelsResult;
+import com.amazonaws.services.rekognition.model.Label;
+import com.amazonaws.services.s3.AmazonS3;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.resilience.CircuitBreaker;
+import com.example.photo_album.storage.S3PhotoStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageAnalysisServiceTest {
+
+    @Mock
+    private AmazonRekognition rekognition;
+
+    @Mock
+    private AmazonS3 amazonS3;
+
+    private ImageAnalysisService imageAnalysisService;
+
+    @BeforeEach
+    void setUp() {
+        RekognitionProperties properties = new RekognitionProperties();
+        properties.getCircuitBreaker().setWindowSize(4);
+        properties.getCircuitBreaker().setMinimumCalls(2);
+        imageAnalysisService = new ImageAnalysisService(
+                rekognition, new S3PhotoStorage(amazonS3, "test-bucket"), properties);
+    }
+
+    @Test
+    void analyze_ReturnsLabels() throws IOException {
+        when(rekognition.detectLabels(any(DetectLabelsRequest.class))).thenReturn(new DetectLabelsResult()
+                .withLabels(List.of(new Label().withName("Person").withConfidence(99.8f))));
+
+        ImageAnalysisService.Result result = imageAnalysisService.analyze("photo.jpg", 100);
+
+        assertThat(result.status()).isEqualTo(AnalysisStatus.COMPLETED);
+        assertThat(result.labels()).containsEntry("Person", 99.8f);
+    }
+
+    @Test
+    void analyze_ThrottlingDefersAnalysisAndOpensCircuit() throws IOException {
+        AmazonRekognitionException throttled = new AmazonRekognitionException("Slow down");
+        throttled.setErrorCode("ThrottlingException");
+        throttled.setStatusCode(400);
+        when(rekognition.detectLabels(any(DetectLabelsRequest.class))).thenThrow(throttled);
+
+        assertThat(imageAnalysisService.analyze("a.jpg", 100).status()).isEqualTo(AnalysisStatus.PENDING);
+        assertThat(imageAnalysisService.analyze("b.jpg", 100).status()).isEqualTo(AnalysisStatus.PENDING);
+        assertThat(imageAnalysisService.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // While open, uploads skip Rekognition entirely
+        ImageAnalysisService.Result skipped = imageAnalysisService.analyze("c.jpg", 100);
+        assertThat(skipped.status()).isEqualTo(AnalysisStatus.PENDING);
+        assertThat(skipped.labels()).isEmpty();
+        verify(rekognition, times(2)).detectLabels(any(DetectLabelsRequest.class));
+    }
+
+    @Test
+    void analyze_RejectedImageIsMarkedFailedWithoutTrippingCircuit() throws IOException {
+        AmazonRekognitionException invalid = new AmazonRekognitionException("Bad image");
+        invalid.setErrorCode("InvalidImageFormatException");
+        invalid.setStatusCode(400);
+        invalid.setErrorType(AmazonServiceException.ErrorType.Client);
+        when(rekognition.detectLabels(any(DetectLabelsRequest.class))).thenThrow(invalid);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(imageAnalysisService.analyze("bad.jpg", 100).status()).isEqualTo(AnalysisStatus.FAILED);
+        }
+        assertThat(imageAnalysisService.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
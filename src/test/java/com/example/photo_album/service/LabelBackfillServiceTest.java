@@ -0,0 +1,138 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.model.AnalysisStatus;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoAnalysisBatchRepository;
+import com.example.photo_album.repository.PhotoAnalysisBatchRepository.AnalysisUpdate;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.PhotoRepository.AnalysisCandidate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LabelBackfillServiceTest {
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private PhotoAnalysisBatchRepository photoAnalysisBatchRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private ImageAnalysisService imageAnalysisService;
+
+    @Mock
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
+    private LabelBackfillService labelBackfillService;
+
+    @BeforeEach
+    void setUp() {
+        RekognitionProperties properties = new RekognitionProperties();
+        properties.getBackfill().setBatchSize(2);
+        properties.getBackfill().setMaxRequestsPerSecond(1000);
+        labelBackfillService = new LabelBackfillService(photoRepository, photoAnalysisBatchRepository,
+                checkpointRepository, imageAnalysisService, cacheInvalidator, properties);
+
+        when(imageAnalysisService.getAnalysisVersion()).thenReturn(2);
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void run_ScansInKeysetOrderAndWritesBatches() throws Exception {
+        when(checkpointRepository.findById(LabelBackfillService.JOB_NAME)).thenReturn(Optional.empty());
+        when(photoRepository.findNeedingAnalysis(eq(""), eq(2), any()))
+                .thenReturn(List.of(candidate("a"), candidate("b")));
+        when(photoRepository.findNeedingAnalysis(eq("b"), eq(2), any()))
+                .thenReturn(List.of(candidate("c")));
+        when(photoRepository.findNeedingAnalysis(eq("c"), eq(2), any())).thenReturn(List.of());
+        when(imageAnalysisService.analyze(anyString(), anyLong())).thenAnswer(invocation ->
+                invocation.getArgument(0).equals("c.jpg")
+                        ? new ImageAnalysisService.Result(new HashMap<>(), AnalysisStatus.FAILED, null)
+                        : new ImageAnalysisService.Result(Map.of("Dog", 90F), AnalysisStatus.COMPLETED, 2));
+
+        assertThat(labelBackfillService.start()).isTrue();
+        awaitIdle();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AnalysisUpdate>> batches = ArgumentCaptor.forClass(List.class);
+        verify(photoAnalysisBatchRepository, times(2)).saveAll(batches.capture());
+        assertThat(batches.getAllValues().get(0)).extracting(AnalysisUpdate::photoId).containsExactly("a", "b");
+        assertThat(batches.getAllValues().get(1)).extracting(AnalysisUpdate::status)
+                .containsExactly(AnalysisStatus.FAILED);
+        // Once per batch for the owner of its photos
+        verify(cacheInvalidator, times(2)).evictPhotoListings("user");
+
+        LabelBackfillService.Progress progress = labelBackfillService.getProgress();
+        assertThat(progress.state()).isEqualTo(LabelBackfillService.State.IDLE);
+    }
+
+    @Test
+    void run_ResumesFromUnfinishedCheckpoint() throws Exception {
+        JobCheckpoint checkpoint = JobCheckpoint.builder()
+                .jobName(LabelBackfillService.JOB_NAME)
+                .cursor("m")
+                .processed(10)
+                .startedAt(LocalDateTime.now())
+                .build();
+        when(checkpointRepository.findById(LabelBackfillService.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(photoRepository.findNeedingAnalysis(eq("m"), eq(2), any())).thenReturn(List.of());
+
+        labelBackfillService.resumeInterruptedRun();
+        awaitIdle();
+
+        verify(photoRepository, never()).findNeedingAnalysis(eq(""), anyInt(), any());
+        assertThat(checkpoint.isFinished()).isTrue();
+        assertThat(checkpoint.getProcessed()).isEqualTo(10);
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        for (int i = 0; i < 500 && labelBackfillService.getProgress().state() != LabelBackfillService.State.IDLE; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static AnalysisCandidate candidate(String id) {
+        return new AnalysisCandidate() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getUserId() {
+                return "user";
+            }
+
+            @Override
+            public String getFileName() {
+                return id + ".jpg";
+            }
+
+            @Override
+            public long getSize() {
+                return 100;
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import com.example.photo_album.storage.PhotoStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanObjectSweeperTest {
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    private final InMemoryPhotoStorage storage = new InMemoryPhotoStorage();
+    private final TreeSet<String> fileNames = new TreeSet<>(PhotoStorage.KEY_ORDER);
+    private final StorageProperties properties = new StorageProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.getOrphanSweeper().setPageSize(2);
+        properties.getOrphanSweeper().setDeleteBatchSize(2);
+        properties.getOrphanSweeper().setPrefixes(List.of("a", "b"));
+
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(photoRepository.findFileNamesAfter(anyString(), anyString(), anyInt())).thenAnswer(invocation -> {
+            String prefix = invocation.getArgument(0);
+            String after = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return fileNames.tailSet(after, false).stream()
+                    .filter(name -> name.startsWith(prefix))
+                    .limit(limit)
+                    .toList();
+        });
+        lenient().when(photoRepository.findExistingFileNames(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().filter(fileNames::contains).toList());
+    }
+
+    @Test
+    void sweep_DeletesOnlyUnreferencedObjectsPastGracePeriod() throws IOException {
+        for (String key : List.of(upload("a1"), upload("a2"), upload("a3"), upload("a4"), upload("a5"),
+                upload("b1"), upload("b2"), upload("c1"))) {
+            put(key);
+        }
+        fileNames.addAll(List.of(upload("a2"), upload("a4"), upload("a9"), upload("b2")));
+        when(checkpointRepository.findById(OrphanObjectSweeper.JOB_NAME)).thenReturn(Optional.empty());
+
+        JobCheckpoint result = sweeper(Clock.offset(Clock.systemUTC(), Duration.ofDays(2))).sweep();
+
+        assertThat(storage.list("", null, 100)).extracting(object -> object.key())
+                .containsExactly(upload("a2"), upload("a4"), upload("b2"), upload("c1"));
+        assertThat(result.getProcessed()).isEqualTo(7);
+        assertThat(result.getSucceeded()).isEqualTo(4);
+        assertThat(result.isFinished()).isTrue();
+    }
+
+    @Test
+    void sweep_KeepsRecentOrphans() throws IOException {
+        put(upload("a1"));
+        when(checkpointRepository.findById(OrphanObjectSweeper.JOB_NAME)).thenReturn(Optional.empty());
+
+        JobCheckpoint result = sweeper(Clock.systemUTC()).sweep();
+
+        assertThat(storage.contains(upload("a1"))).isTrue();
+        assertThat(result.getSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    void sweep_ResumesAfterCheckpointCursor() throws IOException {
+        for (String key : List.of(upload("a1"), upload("a2"), upload("b1"))) {
+            put(key);
+        }
+        JobCheckpoint interrupted = JobCheckpoint.builder()
+                .jobName(OrphanObjectSweeper.JOB_NAME)
+                .cursor(upload("a1"))
+                .startedAt(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        when(checkpointRepository.findById(OrphanObjectSweeper.JOB_NAME)).thenReturn(Optional.of(interrupted));
+
+        sweeper(Clock.offset(Clock.systemUTC(), Duration.ofDays(2))).sweep();
+
+        assertThat(storage.contains(upload("a1"))).isTrue();
+        assertThat(storage.contains(upload("a2"))).isFalse();
+        assertThat(storage.contains(upload("b1"))).isFalse();
+    }
+
+    @Test
+    void sweep_DryRunDeletesNothing() throws IOException {
+        put(upload("a1"));
+        properties.getOrphanSweeper().setDryRun(true);
+        when(checkpointRepository.findById(OrphanObjectSweeper.JOB_NAME)).thenReturn(Optional.empty());
+
+        JobCheckpoint result = sweeper(Clock.offset(Clock.systemUTC(), Duration.ofDays(2))).sweep();
+
+        assertThat(storage.contains(upload("a1"))).isTrue();
+        assertThat(result.getSucceeded()).isEqualTo(1);
+    }
+
+    @Test
+    void sweep_KeepsObjectsUnderImportPrefixes() throws IOException {
+        for (String key : List.of(upload("a1"), upload("a2"), upload("a21"), upload("b1"))) {
+            put(key);
+        }
+        when(checkpointRepository.findById(OrphanObjectSweeper.JOB_NAME)).thenReturn(Optional.empty());
+        when(checkpointRepository.findByJobNameStartingWith(PhotoImportService.JOB_PREFIX)).thenReturn(List.of(
+                JobCheckpoint.builder().jobName(PhotoImportService.JOB_PREFIX + "user-1:a2").build()));
+
+        JobCheckpoint result = sweeper(Clock.offset(Clock.systemUTC(), Duration.ofDays(2))).sweep();
+
+        assertThat(storage.list("", null, 100)).extracting(object -> object.key())
+                .containsExactly(upload("a2"), upload("a21"));
+        assertThat(result.getSucceeded()).isEqualTo(2);
+    }
+
+    @Test
+    void sweep_KeepsKeysNotWrittenByUploads() throws IOException {
+        properties.getOrphanSweeper().setPrefixes(List.of("2", "a"));
+        for (String key : List.of("2019/IMG_0001.jpg", "archive/2019/beach.jpg", "a1.jpg", upload("a1"))) {
+            put(key);
+        }
+        when(checkpointRepository.findById(OrphanObjectSweeper.JOB_NAME)).thenReturn(Optional.empty());
+
+        JobCheckpoint result = sweeper(Clock.offset(Clock.systemUTC(), Duration.ofDays(2))).sweep();
+
+        assertThat(storage.list("", null, 100)).extracting(object -> object.key())
+                .containsExactly("2019/IMG_0001.jpg", "a1.jpg", "archive/2019/beach.jpg");
+        assertThat(result.getSucceeded()).isEqualTo(1);
+    }
+
+    private OrphanObjectSweeper sweeper(Clock clock) {
+        return new OrphanObjectSweeper(storage, photoRepository, checkpointRepository, properties, clock);
+    }
+
+    private void put(String key) throws IOException {
+        storage.put(key, new ByteArrayInputStream(new byte[]{1}), 1, "image/jpeg");
+    }
+
+    // An uploaded object's key, "<uuid>_<name>", whose UUID starts with the given hex digits
+    private static String upload(String start) {
+        return start + "0".repeat(8 - start.length()) + "-0000-4000-8000-000000000000_photo.jpg";
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoImportRepository;
+import com.example.photo_album.repository.PhotoImportRepository.ImportedPhoto;
+import com.example.photo_album.repository.PhotoRepository;
+import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.storage.InMemoryPhotoStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoImportServiceTest {
+    private static final String USER_ID = "user-1";
+    private static final String PREFIX = "archive/";
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private PhotoImportRepository photoImportRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private LabelBackfillService labelBackfillService;
+
+    @Mock
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
+    private final InMemoryPhotoStorage storage = new InMemoryPhotoStorage();
+    private final Set<String> fileNames = new HashSet<>();
+    private final List<ImportedPhoto> inserted = new ArrayList<>();
+    private PhotoImportService photoImportService;
+    private JobCheckpoint checkpoint;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.getBulkImport().setBatchSize(2);
+        properties.getBulkImport().setMaxObjectsPerSecond(1000);
+        photoImportService = new PhotoImportService(storage, photoRepository, photoImportRepository, userRepository,
+                checkpointRepository, labelBackfillService, cacheInvalidator,
+                TransactionOperations.withoutTransaction(), properties);
+
+        checkpoint = JobCheckpoint.builder()
+                .jobName(PhotoImportService.JOB_PREFIX + USER_ID + ":" + PREFIX)
+                .cursor("")
+                .startedAt(LocalDateTime.now())
+                .build();
+        lenient().when(checkpointRepository.findById(checkpoint.getJobName())).thenReturn(Optional.of(checkpoint));
+        lenient().when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(photoRepository.findExistingFileNames(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().filter(fileNames::contains).toList());
+        lenient().doAnswer(invocation -> {
+            List<ImportedPhoto> photos = invocation.getArgument(1);
+            inserted.addAll(photos);
+            photos.forEach(photo -> fileNames.add(photo.fileName()));
+            return null;
+        }).when(photoImportRepository).insertAll(eq(USER_ID), anyList());
+    }
+
+    @Test
+    void importPrefix_RegistersImagesInPlaceInBatches() throws IOException {
+        put("archive/2019/beach.JPG", 3);
+        put("archive/2019/notes.txt", 1);
+        put("archive/2020/city.png", 2);
+        put("archive/2020/raw/", 0);
+        put("other/skipped.jpg", 1);
+
+        photoImportService.importPrefix(USER_ID, PREFIX);
+
+        assertThat(inserted).extracting(ImportedPhoto::fileName)
+                .containsExactly("archive/2019/beach.JPG", "archive/2020/city.png");
+        assertThat(inserted).extracting(ImportedPhoto::contentType).containsExactly("image/jpeg", "image/png");
+        assertThat(inserted).extracting(ImportedPhoto::size).containsExactly(3L, 2L);
+        assertThat(inserted).extracting(ImportedPhoto::url)
+                .containsExactly(storage.getUrl("archive/2019/beach.JPG"), storage.getUrl("archive/2020/city.png"));
+        assertThat(storage.contains("archive/2019/beach.JPG")).isTrue();
+        verify(photoImportRepository, times(2)).insertAll(eq(USER_ID), anyList());
+        verify(cacheInvalidator, times(2)).evictPhotoListings(USER_ID);
+
+        assertThat(checkpoint.isFinished()).isTrue();
+        assertThat(checkpoint.getProcessed()).isEqualTo(4);
+        assertThat(checkpoint.getSucceeded()).isEqualTo(2);
+        assertThat(checkpoint.getSkipped()).isEqualTo(2);
+        verify(labelBackfillService).start();
+    }
+
+    @Test
+    void importPrefix_ResumesAfterCursorAndSkipsRegisteredObjects() throws IOException {
+        put("archive/a.jpg", 1);
+        put("archive/b.jpg", 1);
+        put("archive/c.jpg", 1);
+        checkpoint.setCursor("archive/a.jpg");
+        // Inserted by a batch whose checkpoint was not saved
+        fileNames.add("archive/b.jpg");
+
+        photoImportService.importPrefix(USER_ID, PREFIX);
+
+        assertThat(inserted).extracting(ImportedPhoto::fileName).containsExactly("archive/c.jpg");
+        assertThat(checkpoint.getSucceeded()).isEqualTo(1);
+        assertThat(checkpoint.getSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    void importPrefix_ChecksForRegisteredKeysUnderTheImportLock() throws IOException {
+        put("archive/a.jpg", 1);
+
+        photoImportService.importPrefix(USER_ID, PREFIX);
+
+        InOrder inOrder = inOrder(photoImportRepository, photoRepository);
+        inOrder.verify(photoImportRepository).lockImports();
+        inOrder.verify(photoRepository).findExistingFileNames(anyCollection());
+        inOrder.verify(photoImportRepository).insertAll(eq(USER_ID), anyList());
+    }
+
+    @Test
+    void importPrefix_StopsWithoutFinishingWhenStopped() throws IOException {
+        put("archive/a.jpg", 1);
+        put("archive/b.jpg", 1);
+        put("archive/c.jpg", 1);
+        doAnswer(invocation -> {
+            photoImportService.stop();
+            return null;
+        }).when(photoImportRepository).insertAll(eq(USER_ID), anyList());
+
+        photoImportService.importPrefix(USER_ID, PREFIX);
+
+        assertThat(checkpoint.getCursor()).isEqualTo("archive/b.jpg");
+        assertThat(checkpoint.isFinished()).isFalse();
+        verify(photoImportRepository, times(1)).insertAll(eq(USER_ID), anyList());
+        verifyNoInteractions(labelBackfillService);
+    }
+
+    @Test
+    void requestImport_RejectsInvalidPrefixesAndUnknownUsers() {
+        assertThatThrownBy(() -> photoImportService.requestImport(USER_ID, " "))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> photoImportService.requestImport(USER_ID, "/etc"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> photoImportService.requestImport(USER_ID, "archive/../secrets"))
+                .isInstanceOf(IllegalArgumentException.class);
+        when(userRepository.existsById("nobody")).thenReturn(false);
+        assertThatThrownBy(() -> photoImportService.requestImport("nobody", "archive"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    void resumeUnfinishedImports_ClosesImportsOfDeletedUsersAndResumesTheRest() {
+        JobCheckpoint orphaned = JobCheckpoint.builder()
+                .jobName(PhotoImportService.JOB_PREFIX + "deleted-user:" + PREFIX)
+                .cursor("")
+                .startedAt(LocalDateTime.now())
+                .build();
+        when(checkpointRepository.findByJobNameStartingWithAndFinishedAtIsNull(PhotoImportService.JOB_PREFIX))
+                .thenReturn(List.of(orphaned, checkpoint));
+        when(userRepository.existsById("deleted-user")).thenReturn(false);
+        when(userRepository.existsById(USER_ID)).thenReturn(true);
+
+        photoImportService.resumeUnfinishedImports();
+
+        assertThat(orphaned.isFinished()).isTrue();
+        verify(checkpointRepository).save(orphaned);
+        // The other import still runs to completion
+        verify(checkpointRepository, timeout(5000)).save(checkpoint);
+        assertThat(checkpoint.isFinished()).isTrue();
+    }
+
+    @Test
+    void normalizePrefix_MatchesWholeDirectories() {
+        assertThat(PhotoImportService.normalizePrefix("archive/2019")).isEqualTo("archive/2019/");
+        assertThat(PhotoImportService.normalizePrefix("archive/")).isEqualTo("archive/");
+    }
+
+    private void put(String key, int size) throws IOException {
+        storage.put(key, new ByteArrayInputStream(new byte[size]), size, "application/octet-stream");
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.model.JobCheckpoint;
+import com.example.photo_album.repository.JobCheckpointRepository;
+import com.example.photo_album.repository.PhotoPartitioningRepository;
+import com.example.photo_album.repository.PhotoPartitioningRepository.Chunk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoPartitioningServiceTest {
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(2);
+
+    @Mock
+    private PhotoPartitioningRepository partitioningRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    private PhotoPartitioningService photoPartitioningService;
+
+    @BeforeEach
+    void setUp() {
+        photoPartitioningService = new PhotoPartitioningService(partitioningRepository, checkpointRepository,
+                TransactionOperations.withoutTransaction(), 2, Duration.ZERO, LOCK_TIMEOUT, 3);
+        when(checkpointRepository.findById(PhotoPartitioningService.JOB_NAME)).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void migrate_CopiesChunksFromTheCursorThenCutsOver() throws InterruptedException {
+        when(partitioningRepository.isPending()).thenReturn(true);
+        when(partitioningRepository.copyChunk("", 2)).thenReturn(new Chunk("b", 2));
+        when(partitioningRepository.copyChunk("b", 2)).thenReturn(new Chunk("c", 1));
+        when(partitioningRepository.copyChunk("c", 2)).thenReturn(new Chunk(null, 0));
+        when(partitioningRepository.cutover(LOCK_TIMEOUT))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(true);
+
+        photoPartitioningService.migrate();
+
+        verify(partitioningRepository, times(2)).cutover(LOCK_TIMEOUT);
+        JobCheckpoint checkpoint = lastSavedCheckpoint();
+        assertThat(checkpoint.getCursor()).isEqualTo("c");
+        assertThat(checkpoint.getProcessed()).isEqualTo(3);
+        assertThat(checkpoint.getFailed()).isEqualTo(1);
+        assertThat(checkpoint.isFinished()).isTrue();
+    }
+
+    @Test
+    void migrate_KeepsCheckpointOpenWhenCutoverNeverGetsTheLock() {
+        when(partitioningRepository.isPending()).thenReturn(true);
+        when(partitioningRepository.copyChunk("", 2)).thenReturn(new Chunk(null, 0));
+        when(partitioningRepository.cutover(LOCK_TIMEOUT)).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertThatThrownBy(() -> photoPartitioningService.migrate()).isInstanceOf(CannotAcquireLockException.class);
+
+        verify(partitioningRepository, times(3)).cutover(LOCK_TIMEOUT);
+        assertThat(lastSavedCheckpoint().isFinished()).isFalse();
+    }
+
+    @Test
+    void migrate_FinishesWithoutCopyingWhenAlreadyPartitioned() throws InterruptedException {
+        when(partitioningRepository.isPending()).thenReturn(false);
+
+        photoPartitioningService.migrate();
+
+        verify(partitioningRepository, never()).copyChunk(any(), anyInt());
+        verify(partitioningRepository, never()).cutover(any());
+        assertThat(lastSavedCheckpoint().isFinished()).isTrue();
+    }
+
+    private JobCheckpoint lastSavedCheckpoint() {
+        ArgumentCaptor<JobCheckpoint> captor = ArgumentCaptor.forClass(JobCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -7,10 +7,17 @@ import com.amazonaws.services.rekognition.model.DetectLabelsResult;
 import com.amazonaws.services.rekognition.model.Label;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.PutObjectResult;
+import com.example.photo_album.cache.SecondLevelCacheInvalidator;
+import com.example.photo_album.config.RekognitionProperties;
+import com.example.photo_album.config.StorageProperties;
 import com.example.photo_album.model.Photo;
 import com.example.photo_album.model.User;
+import com.example.photo_album.outbox.OutboxPublisher;
+import com.example.photo_album.outbox.PhotoUploadedEvent;
 import com.example.photo_album.repository.PhotoRepository;
 import com.example.photo_album.repository.UserRepository;
+import com.example.photo_album.storage.PhotoStorage;
+import com.example.photo_album.storage.S3PhotoStorage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,17 +25,21 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.net.URL;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -48,6 +59,12 @@ class PhotoServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
     private PhotoService photoService;
     private static final String BUCKET_NAME = "test-bucket";
     private User testUser;
@@ -64,7 +81,12 @@ class PhotoServiceTest {
                 .build();
 
         // Fixed constructor to match actual implementation
-        photoService = new PhotoService(amazonS3, rekognition, photoRepository, userRepository, BUCKET_NAME);
+        PhotoStorage storage = new S3PhotoStorage(amazonS3, BUCKET_NAME);
+        photoService = new PhotoService(storage,
+                new PhotoUrlService(storage, new StorageProperties.Urls(), Clock.systemUTC()),
+                new ImageAnalysisService(rekognition, storage, new RekognitionProperties()),
+                photoRepository, userRepository, outboxPublisher, cacheInvalidator,
+                TransactionOperations.withoutTransaction());
     }
 
     @Test
@@ -78,6 +100,7 @@ class PhotoServiceTest {
         );
 
         // Mock UserRepository response
+        when(userRepository.existsById(testUser.getId())).thenReturn(true);
         when(userRepository.findById(eq(testUser.getId())))
                 .thenReturn(Optional.of(testUser));
 
@@ -123,6 +146,52 @@ class PhotoServiceTest {
         Photo savedPhoto = photoCaptor.getValue();
         assertThat(savedPhoto.getContentType()).isEqualTo("image/jpeg");
         assertThat(savedPhoto.getUser().getId()).isEqualTo(testUser.getId());
+
+        // Verify the upload event was recorded for post-commit processing
+        verify(outboxPublisher).publish(eq(PhotoUploadedEvent.TYPE), eq(savedPhoto.getId()), any(PhotoUploadedEvent.class));
+        verify(cacheInvalidator).evictPhotoListings(testUser.getId());
+    }
+
+    @Test
+    void uploadPhotoForUser_FailedInsertDeletesStoredObject() throws IOException {
+        // Arrange
+        MultipartFile file = new MockMultipartFile(
+                "test.jpg",
+                "test.jpg",
+                "image/jpeg",
+                "test image content".getBytes()
+        );
+        when(amazonS3.putObject(eq(BUCKET_NAME), any(), any(), any()))
+                .thenReturn(new PutObjectResult());
+        when(amazonS3.getUrl(eq(BUCKET_NAME), any()))
+                .thenReturn(new URL("https://test-bucket.s3.amazonaws.com/test.jpg"));
+        when(rekognition.detectLabels(any(DetectLabelsRequest.class)))
+                .thenReturn(new DetectLabelsResult().withLabels(List.of()));
+        // Deleted between the check and the insert
+        when(userRepository.existsById("deleted")).thenReturn(true);
+        when(userRepository.findById(eq("deleted"))).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> photoService.uploadPhotoForUser("deleted", file))
+                .isInstanceOf(NoSuchElementException.class);
+
+        // The object is stored before the row is inserted, so it has to be removed again
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(amazonS3).putObject(eq(BUCKET_NAME), key.capture(), any(), any());
+        verify(amazonS3).deleteObject(BUCKET_NAME, key.getValue());
+        verify(photoRepository, never()).save(any(Photo.class));
+    }
+
+    @Test
+    void uploadPhotoForUser_UnknownUserIsRejectedBeforeStorage() {
+        MultipartFile file = new MockMultipartFile("test.jpg", "test.jpg", "image/jpeg", "test".getBytes());
+        when(userRepository.existsById("missing")).thenReturn(false);
+
+        assertThatThrownBy(() -> photoService.uploadPhotoForUser("missing", file))
+                .isInstanceOf(NoSuchElementException.class);
+
+        verifyNoInteractions(amazonS3, rekognition);
+        verify(photoRepository, never()).save(any(Photo.class));
     }
 
     @Test
@@ -142,7 +211,7 @@ class PhotoServiceTest {
                 .build();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(photoRepository.findById(photoId)).thenReturn(Optional.of(mockPhoto));
+        when(photoRepository.findByUserAndId(testUser, photoId)).thenReturn(Optional.of(mockPhoto));
 
         // Act
         Optional<Photo> result = photoService.getUserPhotoById(userId, photoId);
@@ -151,7 +220,7 @@ class PhotoServiceTest {
         assertThat(result).isPresent();
         assertThat(result.get().getId()).isEqualTo(photoId);
         assertThat(result.get().getUser().getId()).isEqualTo(userId);
-        verify(photoRepository).findById(photoId);
+        verify(photoRepository).findByUserAndId(testUser, photoId);
         verify(userRepository).findById(userId);
     }
 
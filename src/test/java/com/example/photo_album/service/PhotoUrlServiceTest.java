@@ -0,0 +1,145 @@
+package com.example.photo_album.service;
+
+import com.example.photo_album.config.StorageProperties;
+import com.example.photo_album.model.Photo;
+import com.example.photo_album.storage.PhotoStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoUrlServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Mock
+    private PhotoStorage photoStorage;
+
+    private StorageProperties.Urls properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StorageProperties.Urls();
+        properties.setMode(StorageProperties.UrlMode.PRESIGNED);
+        properties.setSignatureTtl(Duration.ofHours(1));
+        properties.setRefreshMargin(Duration.ofMinutes(15));
+    }
+
+    @Test
+    void applyUrls_SignsEachPhotoOncePerTtlWindow() {
+        when(photoStorage.getSignedUrl(any(), any()))
+                .thenAnswer(invocation -> "https://signed/" + invocation.getArgument(0));
+        PhotoUrlService service = new PhotoUrlService(photoStorage, properties, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        List<Photo> page = List.of(photo("a.jpg"), photo("b.jpg"));
+        service.applyUrls(page);
+        service.applyUrls(List.of(photo("a.jpg"), photo("b.jpg")));
+
+        assertThat(page).extracting(Photo::getUrl).containsExactly("https://signed/a.jpg", "https://signed/b.jpg");
+        verify(photoStorage).getSignedUrl("a.jpg", NOW.plus(Duration.ofHours(1)));
+        verify(photoStorage).getSignedUrl("b.jpg", NOW.plus(Duration.ofHours(1)));
+        verifyNoMoreInteractions(photoStorage);
+    }
+
+    @Test
+    void applyUrls_ResignsBeforeSignatureExpires() {
+        when(photoStorage.getSignedUrl(eq("a.jpg"), any())).thenReturn("first", "second");
+        MutableClock clock = new MutableClock(NOW);
+        PhotoUrlService service = new PhotoUrlService(photoStorage, properties, clock);
+
+        Photo photo = photo("a.jpg");
+        service.applyUrls(List.of(photo));
+        assertThat(photo.getUrl()).isEqualTo("first");
+
+        // Still inside TTL minus margin: cached
+        clock.now = NOW.plus(Duration.ofMinutes(44));
+        service.applyUrls(List.of(photo));
+        assertThat(photo.getUrl()).isEqualTo("first");
+
+        // Within the refresh margin: a URL with a fresh signature is issued
+        clock.now = NOW.plus(Duration.ofMinutes(45));
+        service.applyUrls(List.of(photo));
+        assertThat(photo.getUrl()).isEqualTo("second");
+    }
+
+    @Test
+    void applyUrls_PublicModeKeepsStoredUrl() {
+        properties.setMode(StorageProperties.UrlMode.PUBLIC);
+        PhotoUrlService service = new PhotoUrlService(photoStorage, properties, Clock.systemUTC());
+
+        Photo photo = photo("a.jpg");
+        service.applyUrls(List.of(photo));
+
+        assertThat(photo.getUrl()).isEqualTo("https://bucket/a.jpg");
+        verifyNoInteractions(photoStorage);
+    }
+
+    @Test
+    void getUrl_CachesPerDerivative() {
+        when(photoStorage.getSignedUrl(any(), any()))
+                .thenAnswer(invocation -> "https://signed/" + invocation.getArgument(0));
+        PhotoUrlService service = new PhotoUrlService(photoStorage, properties, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThat(service.getUrl("a.jpg", PhotoUrlService.ORIGINAL)).isEqualTo("https://signed/a.jpg");
+        assertThat(service.getUrl("a.jpg", "thumb")).isEqualTo("https://signed/derivatives/thumb/a.jpg");
+        assertThat(service.cachedUrls()).isEqualTo(2);
+    }
+
+    @Test
+    void applyUrls_FullCacheEvictsSomeUrlsNotAll() {
+        properties.setMaxCachedUrls(2);
+        when(photoStorage.getSignedUrl(any(), any()))
+                .thenAnswer(invocation -> "https://signed/" + invocation.getArgument(0));
+        PhotoUrlService service = new PhotoUrlService(photoStorage, properties, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        service.applyUrls(List.of(photo("a.jpg"), photo("b.jpg")));
+        service.applyUrls(List.of(photo("c.jpg")));
+
+        assertThat(service.cachedUrls()).isEqualTo(2);
+    }
+
+    private static Photo photo(String fileName) {
+        return Photo.builder()
+                .id(fileName)
+                .fileName(fileName)
+                .url("https://bucket/" + fileName)
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
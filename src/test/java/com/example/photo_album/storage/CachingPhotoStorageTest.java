@@ -0,0 +1,240 @@
+package com.example.photo_album.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingPhotoStorageTest {
+
+    @TempDir
+    private Path cacheDir;
+
+    private final CountingStorage backing = new CountingStorage();
+
+    @Test
+    void open_SecondReadIsServedFromCache() throws IOException {
+        backing.put("photo.jpg", bytes(100), 100, "image/jpeg");
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+
+        assertThat(read(cache.open("photo.jpg"))).hasSize(100);
+        assertThat(read(cache.open("photo.jpg"))).hasSize(100);
+
+        assertThat(backing.opens.get()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getBytesSaved()).isEqualTo(100);
+        assertThat(cache.hitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void open_RangeIsReadFromCachedFile() throws IOException {
+        byte[] content = "0123456789".getBytes();
+        backing.put("photo.jpg", new ByteArrayInputStream(content), content.length, "image/jpeg");
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+
+        // The miss reads only its range and the whole object is cached behind it
+        assertThat(new String(read(cache.open("photo.jpg", 3, 4)))).isEqualTo("3456");
+        assertThat(backing.rangeOpens.get()).isEqualTo(1);
+        awaitCached(cache, content.length);
+
+        assertThat(new String(read(cache.open("photo.jpg", 8, 2)))).isEqualTo("89");
+        assertThat(backing.opens.get()).isEqualTo(1);
+        assertThat(backing.rangeOpens.get()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_RestoresCacheLeftByPreviousRun() throws IOException {
+        backing.put("photo.jpg", bytes(100), 100, "image/jpeg");
+        CachingPhotoStorage first = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+        read(first.open("photo.jpg"));
+        first.close();
+
+        CachingPhotoStorage restarted = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+
+        assertThat(restarted.cachedBytes()).isEqualTo(100);
+        assertThat(read(restarted.open("photo.jpg"))).hasSize(100);
+        assertThat(backing.opens.get()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_KeepsOtherFilesInConfiguredDirectory() throws IOException {
+        Path unrelated = Files.writeString(cacheDir.resolve("notes.txt"), "keep");
+        Path leftover = Files.createDirectories(cacheDir.resolve(CachingPhotoStorage.SUBDIRECTORY))
+                .resolve(".fill-123.tmp");
+        Files.writeString(leftover, "partial");
+
+        new CachingPhotoStorage(backing, cacheDir, 1000, 1000).close();
+
+        assertThat(unrelated).hasContent("keep");
+        assertThat(leftover).doesNotExist();
+    }
+
+    @Test
+    void open_EvictsLeastRecentlyUsed() throws IOException {
+        backing.put("a", bytes(400), 400, "image/jpeg");
+        backing.put("b", bytes(400), 400, "image/jpeg");
+        backing.put("c", bytes(400), 400, "image/jpeg");
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+
+        read(cache.open("a"));
+        read(cache.open("b"));
+        read(cache.open("a"));
+        // Exceeds 1000 bytes; "b" is the least recently used
+        read(cache.open("c"));
+
+        assertThat(cache.cachedBytes()).isEqualTo(800);
+        read(cache.open("a"));
+        assertThat(backing.opens.get()).isEqualTo(3);
+        read(cache.open("b"));
+        assertThat(backing.opens.get()).isEqualTo(4);
+    }
+
+    @Test
+    void open_LargeObjectsBypassCache() throws IOException {
+        backing.put("big", bytes(600), 600, "image/jpeg");
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 500);
+
+        read(cache.open("big"));
+        read(cache.open("big"));
+
+        assertThat(backing.opens.get()).isEqualTo(2);
+        assertThat(cache.cachedBytes()).isZero();
+    }
+
+    @Test
+    void put_InvalidatesCachedCopy() throws IOException {
+        backing.put("photo.jpg", bytes(10), 10, "image/jpeg");
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+        read(cache.open("photo.jpg"));
+
+        cache.put("photo.jpg", new ByteArrayInputStream(new byte[]{7}), 1, "image/jpeg");
+
+        assertThat(read(cache.open("photo.jpg"))).containsExactly(7);
+    }
+
+    @Test
+    void open_ConcurrentMissesShareOneDownload() throws Exception {
+        backing.put("photo.jpg", bytes(100), 100, "image/jpeg");
+        CountDownLatch release = new CountDownLatch(1);
+        backing.gate = release;
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+
+        int readers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                results.add(executor.submit(() -> read(cache.open("photo.jpg"))));
+            }
+            // Let every reader reach the cache before the single download completes
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<byte[]> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).hasSize(100);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(backing.opens.get()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void delete_DuringFillIsNotUndoneByTheFill() throws Exception {
+        backing.put("photo.jpg", bytes(100), 100, "image/jpeg");
+        CountDownLatch release = new CountDownLatch(1);
+        backing.gate = release;
+        CachingPhotoStorage cache = new CachingPhotoStorage(backing, cacheDir, 1000, 1000);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> reader = executor.submit(() -> read(cache.open("photo.jpg")));
+            for (int attempt = 0; attempt < 100 && backing.opens.get() == 0; attempt++) {
+                Thread.sleep(20);
+            }
+            // The fill has fetched the object and is held before admitting it
+            assertThat(backing.opens.get()).isEqualTo(1);
+            cache.delete("photo.jpg");
+            release.countDown();
+
+            try {
+                reader.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // Falling back to the backing storage finds the object deleted
+                assertThat(e.getCause()).isInstanceOf(IOException.class);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.cachedBytes()).isZero();
+        try (Stream<Path> files = Files.list(cacheDir.resolve(CachingPhotoStorage.SUBDIRECTORY))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static void awaitCached(CachingPhotoStorage cache, long bytes) {
+        for (int attempt = 0; attempt < 100 && cache.cachedBytes() < bytes; attempt++) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+        assertThat(cache.cachedBytes()).isEqualTo(bytes);
+    }
+
+    private static ByteArrayInputStream bytes(int size) {
+        return new ByteArrayInputStream(new byte[size]);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static class CountingStorage extends InMemoryPhotoStorage {
+        private final AtomicInteger opens = new AtomicInteger();
+        private final AtomicInteger rangeOpens = new AtomicInteger();
+        private volatile CountDownLatch gate;
+
+        @Override
+        public InputStream open(String key, long offset, long length) throws IOException {
+            rangeOpens.incrementAndGet();
+            return super.open(key, offset, length);
+        }
+
+        @Override
+        public InputStream open(String key) throws IOException {
+            // The object is fetched before the gate holds the caller
+            InputStream content = super.open(key);
+            opens.incrementAndGet();
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            return content;
+        }
+    }
+}
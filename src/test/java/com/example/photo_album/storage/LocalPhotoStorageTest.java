@@ -0,0 +1,83 @@
+package com.example.photo_album.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalPhotoStorageTest {
+
+    @TempDir
+    private Path rootDir;
+
+    @Test
+    void putThenOpen_RoundTripsContent() throws IOException {
+        LocalPhotoStorage storage = new LocalPhotoStorage(rootDir, "");
+        byte[] content = "test image content".getBytes();
+
+        storage.put("a/b/photo.jpg", new ByteArrayInputStream(content), content.length, "image/jpeg");
+
+        try (InputStream in = storage.open("a/b/photo.jpg")) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        // No temporary files are left next to the object
+        try (var files = Files.list(rootDir.resolve("a/b"))) {
+            assertThat(files).containsExactly(rootDir.resolve("a/b/photo.jpg"));
+        }
+    }
+
+    @Test
+    void put_ReplacesExistingObject() throws IOException {
+        LocalPhotoStorage storage = new LocalPhotoStorage(rootDir, "");
+
+        storage.put("photo.jpg", new ByteArrayInputStream(new byte[]{1, 2, 3}), 3, "image/jpeg");
+        storage.put("photo.jpg", new ByteArrayInputStream(new byte[]{4}), 1, "image/jpeg");
+
+        assertThat(Files.readAllBytes(rootDir.resolve("photo.jpg"))).containsExactly(4);
+    }
+
+    @Test
+    void delete_RemovesObject() throws IOException {
+        LocalPhotoStorage storage = new LocalPhotoStorage(rootDir, "");
+        storage.put("photo.jpg", new ByteArrayInputStream(new byte[]{1}), 1, "image/jpeg");
+
+        storage.delete("photo.jpg");
+
+        assertThatThrownBy(() -> storage.open("photo.jpg")).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void list_ReturnsKeysAfterCursorInOrder() throws IOException {
+        LocalPhotoStorage storage = new LocalPhotoStorage(rootDir, "");
+        for (String key : new String[]{"b.jpg", "a/2.jpg", "a/1.jpg", "c.jpg"}) {
+            storage.put(key, new ByteArrayInputStream(new byte[]{1}), 1, "image/jpeg");
+        }
+
+        assertThat(storage.list("", "a/1.jpg", 2)).extracting(StoredObject::key)
+                .containsExactly("a/2.jpg", "b.jpg");
+        assertThat(storage.list("a/", null, 10)).extracting(StoredObject::key)
+                .containsExactly("a/1.jpg", "a/2.jpg");
+    }
+
+    @Test
+    void resolve_RejectsKeysOutsideRoot() throws IOException {
+        LocalPhotoStorage storage = new LocalPhotoStorage(rootDir, "");
+
+        assertThatThrownBy(() -> storage.resolve("../escape.jpg")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void getUrl_UsesBaseUrlWhenConfigured() throws IOException {
+        LocalPhotoStorage storage = new LocalPhotoStorage(rootDir, "https://cdn.example.com/photos");
+
+        assertThat(storage.getUrl("photo.jpg")).isEqualTo("https://cdn.example.com/photos/photo.jpg");
+    }
+}